@@ -0,0 +1,674 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-process stand-in for Artifactory serving /api/repositories, /api/search/gavc, /api/search/aql,
+ * /api/storage/**, artifact downloads and deploys from synthetic repositories. Latency, error rate, response size,
+ * gzip compression and slow-drip bodies can be changed while the server is running, so load tests can exercise connection pooling,
+ * caching, retries and timeouts without touching a real server.
+ * Repository 0 is {@link Payloads#DEFAULT_REPOSITORY}, every repository holds the artifacts
+ * {@link Payloads#path(int)} for 0 to artifactsPerRepository - 1 under group org.acme.
+ * @author klee@serena.com
+ */
+public class FakeArtifactoryServer {
+
+    private static final Pattern AQL_REPO = Pattern.compile("\\{\"repo\":\"([^\"]+)\"\\}");
+    private static final Pattern AQL_PATH_MATCH = Pattern.compile("\"path\":\\{\"\\$match\":\"([^\"]*)\"\\}");
+    private static final Pattern AQL_PATH_NMATCH = Pattern.compile("\"path\":\\{\"\\$nmatch\":\"([^\"]*)\"\\}");
+    private static final Pattern AQL_ITEM = Pattern.compile("\\{\"path\":\"([^\"]*)\"\\},\\{\"name\":\"([^\"]*)\"\\}");
+    private static final Pattern AQL_OFFSET = Pattern.compile("\\.offset\\((\\d+)\\)");
+    private static final Pattern AQL_LIMIT = Pattern.compile("\\.limit\\((\\d+)\\)");
+    private static final Pattern AQL_PAGING = Pattern.compile("\\.(sort|offset|limit)\\(");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String url;
+    private final List<String> repositories = new ArrayList<>();
+    private final int artifactsPerRepository;
+
+    private volatile long latencyMillis = 0;
+    private volatile long latencyJitterMillis = 0;
+    private volatile double errorRate = 0.0;
+    private volatile int errorStatus = 503;
+    private volatile int dripChunkBytes = 0;
+    private volatile long dripDelayMillis = 0;
+    private volatile String padding = null;
+    private volatile boolean compression = false;
+    private volatile boolean contentChecksums = false;
+    private volatile boolean aqlSha256 = true;
+    private volatile boolean ranges = true;
+    private volatile double truncationRate = 0.0;
+
+    private final AtomicLong repositoryRequests = new AtomicLong();
+    private final AtomicLong gavcRequests = new AtomicLong();
+    private final AtomicLong aqlRequests = new AtomicLong();
+    private final AtomicLong storageRequests = new AtomicLong();
+    private final AtomicLong downloadRequests = new AtomicLong();
+    private final AtomicLong rangeRequests = new AtomicLong();
+    private final AtomicLong deployRequests = new AtomicLong();
+    private final AtomicLong checksumDeploys = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    // checksums of deployed content, SHA-1 and SHA-256 both map to {sha1, sha256, md5, size}
+    private final Map<String, String[]> deployedContent = new ConcurrentHashMap<>();
+    private final AtomicLong errorResponses = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /**
+     * Start a fake server on a free local port.
+     *
+     * @param repositoryCount  the number of repositories
+     * @param artifactsPerRepository  the number of artifacts in every repository
+     * @param threads  the number of request handler threads
+     * @throws IOException
+     */
+    public FakeArtifactoryServer(int repositoryCount, int artifactsPerRepository, int threads) throws IOException {
+        this.artifactsPerRepository = artifactsPerRepository;
+        for (int i = 0; i < repositoryCount; i++) {
+            repositories.add((i == 0) ? Payloads.DEFAULT_REPOSITORY : "repo-" + i + ((i % 3 == 0) ? "-snapshot-local" : "-release-local"));
+        }
+
+        // write small responses straight away instead of waiting for the delayed ACK of the headers
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/artifactory";
+        server.createContext("/artifactory/api/repositories", new FakeHandler() {
+            @Override
+            String respond(HttpExchange exchange) {
+                repositoryRequests.incrementAndGet();
+                return repositoriesJson();
+            }
+        });
+        server.createContext("/artifactory/api/search/gavc", new FakeHandler() {
+            @Override
+            String respond(HttpExchange exchange) {
+                gavcRequests.incrementAndGet();
+                return gavc(parseQuery(exchange.getRequestURI()));
+            }
+        });
+        server.createContext("/artifactory/api/search/aql", new FakeHandler() {
+            @Override
+            void serve(HttpExchange exchange) throws IOException, InterruptedException {
+                aqlRequests.incrementAndGet();
+                String query = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+                // like Artifactory, only sort and page queries that include item fields alone
+                if (!aqlSha256 && query.contains("\"sha256\"")) {
+                    send(exchange, 400, "{\"errors\":[{\"status\":400,\"message\":\"Unknown field sha256\"}]}");
+                } else if (query.contains("\"property\"") && AQL_PAGING.matcher(query).find()) {
+                    send(exchange, 400, "{\"errors\":[{\"status\":400,\"message\":\"Sort, offset and limit require primary domain fields only\"}]}");
+                } else {
+                    send(exchange, 200, aql(query));
+                }
+            }
+
+            @Override
+            String respond(HttpExchange exchange) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        server.createContext("/artifactory/api/storage/", new FakeHandler() {
+            @Override
+            String respond(HttpExchange exchange) {
+                storageRequests.incrementAndGet();
+                return storage(exchange.getRequestURI().getPath().substring("/artifactory/api/storage".length()));
+            }
+        });
+        server.createContext("/artifactory/", new FakeHandler() {
+            @Override
+            String respond(HttpExchange exchange) {
+                return null;
+            }
+
+            @Override
+            void serve(HttpExchange exchange) throws IOException, InterruptedException {
+                String repoPath = exchange.getRequestURI().getPath().substring("/artifactory".length());
+                if ("PUT".equals(exchange.getRequestMethod())) {
+                    deployRequests.incrementAndGet();
+                    deploy(exchange, repoPath);
+                } else {
+                    downloadRequests.incrementAndGet();
+                    download(exchange, repoPath);
+                }
+            }
+        });
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public List<String> getRepositories() {
+        return repositories;
+    }
+
+    public int getArtifactsPerRepository() {
+        return artifactsPerRepository;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Delay every response.
+     *
+     * @param latencyMillis  the fixed delay in milliseconds
+     * @param jitterMillis  the maximum random delay added in milliseconds
+     */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = jitterMillis;
+    }
+
+    /**
+     * Fail a share of the requests.
+     *
+     * @param errorRate  the share of failed requests, 0.0 to 1.0
+     * @param errorStatus  the status of failed requests, e.g. 503
+     */
+    public void setErrors(double errorRate, int errorStatus) {
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * Send response bodies in small chunks with a pause after each chunk, 0 bytes sends them at once.
+     *
+     * @param chunkBytes  the size of a chunk
+     * @param delayMillis  the pause after a chunk in milliseconds
+     */
+    public void setSlowDrip(int chunkBytes, long delayMillis) {
+        this.dripChunkBytes = chunkBytes;
+        this.dripDelayMillis = delayMillis;
+    }
+
+    /**
+     * Enlarge every storage info result by an extra property.
+     *
+     * @param bytes  the size of the extra property value, 0 for none
+     */
+    public void setResultPadding(int bytes) {
+        if (bytes <= 0) {
+            padding = null;
+        } else {
+            char[] chars = new char[bytes];
+            Arrays.fill(chars, 'x');
+            padding = new String(chars);
+        }
+    }
+
+    /**
+     * Gzip response bodies for clients that accept it.
+     *
+     * @param compression  true to compress
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Report the real checksums of the artifact content instead of synthetic ones, so downloads can be
+     * verified. They are computed once per artifact, which takes a while for many large artifacts.
+     *
+     * @param contentChecksums  true for real checksums
+     */
+    public void setContentChecksums(boolean contentChecksums) {
+        this.contentChecksums = contentChecksums;
+    }
+
+    /**
+     * Accept or, like older Artifactory servers, reject AQL queries that include the sha256 field.
+     *
+     * @param aqlSha256  false to reject them
+     */
+    public void setAqlSha256(boolean aqlSha256) {
+        this.aqlSha256 = aqlSha256;
+    }
+
+    /**
+     * Honour byte range requests for downloads, or send the whole content.
+     *
+     * @param ranges  true to honour ranges
+     */
+    public void setRanges(boolean ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Drop the connection halfway through a share of the downloads.
+     *
+     * @param truncationRate  the share of truncated downloads, 0.0 to 1.0
+     */
+    public void setDownloadTruncation(double truncationRate) {
+        this.truncationRate = truncationRate;
+    }
+
+    public long getRepositoryRequests() {
+        return repositoryRequests.get();
+    }
+
+    public long getGavcRequests() {
+        return gavcRequests.get();
+    }
+
+    public long getDownloadRequests() {
+        return downloadRequests.get();
+    }
+
+    public long getDeployRequests() {
+        return deployRequests.get();
+    }
+
+    public long getChecksumDeploys() {
+        return checksumDeploys.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getRangeRequests() {
+        return rangeRequests.get();
+    }
+
+    public long getAqlRequests() {
+        return aqlRequests.get();
+    }
+
+    public long getStorageRequests() {
+        return storageRequests.get();
+    }
+
+    public long getErrorResponses() {
+        return errorResponses.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FakeArtifactoryServer{" + "repositories=" + repositoryRequests + ", gavc=" + gavcRequests + ", aql=" + aqlRequests +
+                ", storage=" + storageRequests + ", downloads=" + downloadRequests + ", ranges=" + rangeRequests + ", deploys=" + deployRequests + ", checksumDeploys=" + checksumDeploys + ", errors=" + errorResponses + ", bytesSent=" + bytesSent + ", bytesReceived=" + bytesReceived + '}';
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private String repositoriesJson() {
+        StringBuilder sb = new StringBuilder(repositories.size() * 160 + 2).append('[');
+        for (int i = 0; i < repositories.size(); i++) {
+            if (i > 0) sb.append(',');
+            String key = repositories.get(i);
+            sb.append("{\"key\":\"").append(key).append("\",\"type\":\"LOCAL\",\"description\":\"Repository ").append(i)
+                    .append("\",\"url\":\"").append(url).append('/').append(key).append("\"}");
+        }
+        return sb.append(']').toString();
+    }
+
+    private String gavc(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder(8192).append("{\"results\":[");
+        String group = params.get("g");
+        String module = params.get("a");
+        String version = params.get("v");
+        boolean first = true;
+        if (params.get("c") == null && (group == null || glob(group, "org.acme"))) {
+            for (String repo : split(params.get("repos"))) {
+                if (!repositories.contains(repo)) continue;
+                for (int i = 0; i < artifactsPerRepository; i++) {
+                    if ((module != null && !glob(module, Payloads.module(i))) || (version != null && !glob(version, Payloads.version(i)))) {
+                        continue;
+                    }
+                    if (!first) sb.append(',');
+                    first = false;
+                    Payloads.appendStorageInfo(sb, url, repo, i, padding, contentChecksums);
+                }
+            }
+        }
+        return sb.append("]}").toString();
+    }
+
+    private String aql(String query) {
+        Matcher repoMatcher = AQL_REPO.matcher(query);
+        String repo = repoMatcher.find() ? repoMatcher.group(1) : null;
+        boolean properties = query.contains("\"property\"");
+        // like Artifactory, sha256 is only returned when it is included
+        boolean sha256 = query.contains("\"sha256\"");
+        List<Integer> matches = new ArrayList<>();
+        if (repo != null && repositories.contains(repo)) {
+            Matcher items = AQL_ITEM.matcher(query);
+            boolean byPath = false;
+            while (items.find()) {
+                byPath = true;
+                int index = Payloads.indexOf("/" + items.group(1) + "/" + items.group(2));
+                if (index >= 0 && index < artifactsPerRepository) {
+                    matches.add(index);
+                }
+            }
+            if (!byPath) {
+                Matcher pathMatcher = AQL_PATH_MATCH.matcher(query);
+                String pattern = pathMatcher.find() ? pathMatcher.group(1) : "*";
+                Matcher excludeMatcher = AQL_PATH_NMATCH.matcher(query);
+                String exclude = excludeMatcher.find() ? excludeMatcher.group(1) : null;
+                for (int i = 0; i < artifactsPerRepository; i++) {
+                    String folder = Payloads.path(i).substring(1, Payloads.path(i).lastIndexOf('/'));
+                    if (glob(pattern, folder) && (exclude == null || !glob(exclude, folder))) {
+                        matches.add(i);
+                    }
+                }
+            }
+        }
+
+        Matcher offsetMatcher = AQL_OFFSET.matcher(query);
+        Matcher limitMatcher = AQL_LIMIT.matcher(query);
+        int offset = offsetMatcher.find() ? Integer.parseInt(offsetMatcher.group(1)) : 0;
+        int limit = limitMatcher.find() ? Integer.parseInt(limitMatcher.group(1)) : Integer.MAX_VALUE;
+        int end = (int) Math.min(matches.size(), (long) offset + limit);
+
+        StringBuilder sb = new StringBuilder(8192).append("{\"results\":[");
+        for (int m = offset; m < end; m++) {
+            int i = matches.get(m);
+            String path = Payloads.path(i);
+            int idx = path.lastIndexOf('/');
+            if (m > offset) sb.append(',');
+            sb.append("{\"repo\":\"").append(repo).append("\",\"path\":\"").append(path, 1, idx)
+                    .append("\",\"name\":\"").append(path, idx + 1, path.length())
+                    .append("\",\"type\":\"file\",\"size\":").append(Payloads.size(i))
+                    .append(",\"created\":\"2016-03-21T10:15:30.123+02:00\",\"created_by\":\"jenkins\"")
+                    .append(",\"modified\":\"2016-03-21T10:15:30.123+02:00\",\"modified_by\":\"jenkins\"")
+                    .append(",\"updated\":\"2016-03-21T10:15:30.123+02:00\"");
+            if (contentChecksums) {
+                sb.append(",\"actual_sha1\":\"").append(Payloads.contentChecksum(i, "SHA-1"))
+                        .append("\",\"actual_md5\":\"").append(Payloads.contentChecksum(i, "MD5")).append('"');
+                if (sha256) {
+                    sb.append(",\"sha256\":\"").append(Payloads.contentChecksum(i, "SHA-256")).append('"');
+                }
+            }
+            if (properties) {
+                sb.append(",\"properties\":[{\"key\":\"build.number\",\"value\":\"").append(i).append("\"}]");
+            }
+            sb.append('}');
+        }
+        return sb.append("],\"range\":{\"start_pos\":").append(offset).append(",\"end_pos\":").append(Math.max(offset, end))
+                .append(",\"total\":").append(Math.max(0, end - offset)).append("}}").toString();
+    }
+
+    private String storage(String storagePath) {
+        int idx = storagePath.indexOf('/', 1);
+        if (idx < 0 || !repositories.contains(storagePath.substring(1, idx))) {
+            return null;
+        }
+        int index = Payloads.indexOf(storagePath.substring(idx));
+        if (index < 0 || index >= artifactsPerRepository) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(1024);
+        Payloads.appendStorageInfo(sb, url, storagePath.substring(1, idx), index, padding, contentChecksums);
+        return sb.toString();
+    }
+
+    /**
+     * Stream the content of an artifact, {@link Payloads#size(int)} bytes of {@link Payloads#contentByte(int, long)},
+     * or a single byte range of it.
+     */
+    private void download(HttpExchange exchange, String repoPath) throws IOException, InterruptedException {
+        int idx = repoPath.indexOf('/', 1);
+        int index = (idx < 0 || !repositories.contains(repoPath.substring(1, idx))) ? -1 : Payloads.indexOf(repoPath.substring(idx));
+        if (index < 0 || index >= artifactsPerRepository) {
+            byte[] notFound = "{\"errors\":[{\"status\":404,\"message\":\"Not Found\"}]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(404, notFound.length);
+            exchange.getResponseBody().write(notFound);
+            return;
+        }
+        long size = Payloads.size(index);
+        long start = 0;
+        long end = size;
+        exchange.getResponseHeaders().set("Content-Type", "application/java-archive");
+        exchange.getResponseHeaders().set("Accept-Ranges", ranges ? "bytes" : "none");
+        Matcher range = RANGE.matcher(String.valueOf(exchange.getRequestHeaders().getFirst("Range")));
+        if (ranges && range.matches()) {
+            rangeRequests.incrementAndGet();
+            start = Long.parseLong(range.group(1));
+            end = range.group(2).isEmpty() ? size : Math.min(size, Long.parseLong(range.group(2)) + 1);
+            if (start >= end) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + size);
+            exchange.sendResponseHeaders(206, end - start);
+        } else {
+            exchange.sendResponseHeaders(200, size);
+        }
+        if (truncationRate > 0 && ThreadLocalRandom.current().nextDouble() < truncationRate) {
+            end = start + (end - start) / 2;
+        }
+
+        OutputStream out = exchange.getResponseBody();
+        byte[] chunk = new byte[(dripChunkBytes > 0) ? dripChunkBytes : 65536];
+        for (long position = start; position < end; ) {
+            int length = (int) Math.min(chunk.length, end - position);
+            for (int i = 0; i < length; i++) {
+                chunk[i] = Payloads.contentByte(index, position + i);
+            }
+            out.write(chunk, 0, length);
+            position += length;
+            bytesSent.addAndGet(length);
+            if (dripChunkBytes > 0) {
+                out.flush();
+                TimeUnit.MILLISECONDS.sleep(dripDelayMillis);
+            }
+        }
+    }
+
+    /**
+     * Deploy an artifact. A checksum deploy succeeds if content with the checksum was deployed before;
+     * an upload is read, checked against the checksums sent with it and remembered.
+     */
+    private void deploy(HttpExchange exchange, String repoPath) throws IOException {
+        int idx = repoPath.indexOf('/', 1);
+        String sha1 = exchange.getRequestHeaders().getFirst("X-Checksum-Sha1");
+        String sha256 = exchange.getRequestHeaders().getFirst("X-Checksum-Sha256");
+        String[] content;
+        int status;
+        if (idx < 0 || !repositories.contains(repoPath.substring(1, idx))) {
+            IOUtils.skip(exchange.getRequestBody(), Long.MAX_VALUE);
+            status = 404;
+            content = null;
+        } else if ("true".equals(exchange.getRequestHeaders().getFirst("X-Checksum-Deploy"))) {
+            content = (sha256 != null) ? deployedContent.get(sha256) : (sha1 != null) ? deployedContent.get(sha1) : null;
+            status = (content == null) ? 404 : 201;
+            if (content != null) {
+                checksumDeploys.incrementAndGet();
+            }
+        } else {
+            MessageDigest[] digests = {digest("SHA-1"), digest("SHA-256"), digest("MD5")};
+            long size = 0;
+            try (InputStream in = new DigestInputStream(new DigestInputStream(new DigestInputStream(exchange.getRequestBody(),
+                    digests[0]), digests[1]), digests[2])) {
+                byte[] buffer = new byte[65536];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                }
+            }
+            bytesReceived.addAndGet(size);
+            content = new String[]{hex(digests[0].digest()), hex(digests[1].digest()), hex(digests[2].digest()), String.valueOf(size)};
+            if ((sha1 != null && !sha1.equals(content[0])) || (sha256 != null && !sha256.equals(content[1]))) {
+                status = 409;
+            } else {
+                status = 201;
+                deployedContent.put(content[0], content);
+                deployedContent.put(content[1], content);
+            }
+        }
+
+        String body;
+        if (status == 201) {
+            String repo = repoPath.substring(1, idx);
+            String path = repoPath.substring(idx);
+            body = "{\"repo\":\"" + repo + "\",\"path\":\"" + path + "\",\"created\":\"2016-03-21T10:15:30.123+02:00\"" +
+                    ",\"createdBy\":\"deployer\",\"downloadUri\":\"" + url + repoPath + "\",\"mimeType\":\"application/octet-stream\"" +
+                    ",\"size\":\"" + content[3] + "\",\"checksums\":{\"sha1\":\"" + content[0] + "\",\"md5\":\"" + content[2] +
+                    "\",\"sha256\":\"" + content[1] + "\"},\"originalChecksums\":{\"sha1\":\"" + content[0] + "\",\"md5\":\"" + content[2] +
+                    "\",\"sha256\":\"" + content[1] + "\"},\"uri\":\"" + url + "/api/storage" + repoPath + "\"}";
+        } else {
+            body = "{\"errors\":[{\"status\":" + status + ",\"message\":\"" + ((status == 409) ? "Checksum mismatch" : "Not Found") + "\"}]}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0x0f, 16)).append(Character.forDigit(b & 0x0f, 16));
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int idx = param.indexOf('=');
+                if (idx > 0) {
+                    params.put(param.substring(0, idx), param.substring(idx + 1));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static List<String> split(String value) {
+        return (value == null) ? new ArrayList<String>() : Arrays.asList(value.split(","));
+    }
+
+    private static boolean glob(String pattern, String value) {
+        if (!pattern.contains("*")) {
+            return pattern.equals(value);
+        }
+        return value.matches(Pattern.quote(pattern).replace("*", "\\E.*\\Q"));
+    }
+
+    /**
+     * Applies the configured latency, errors and slow drip to a response.
+     */
+    private abstract class FakeHandler implements HttpHandler {
+
+        abstract String respond(HttpExchange exchange) throws IOException;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                long delay = latencyMillis + ((latencyJitterMillis > 0) ? ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1) : 0);
+                if (delay > 0) {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                }
+                if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    errorResponses.incrementAndGet();
+                    send(exchange, errorStatus, "{\"errors\":[{\"status\":" + errorStatus + ",\"message\":\"Injected failure\"}]}");
+                    return;
+                }
+                serve(exchange);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+
+        void serve(HttpExchange exchange) throws IOException, InterruptedException {
+            String body = respond(exchange);
+            if (body == null) {
+                send(exchange, 404, "{\"errors\":[{\"status\":404,\"message\":\"Not Found\"}]}");
+            } else {
+                send(exchange, 200, body);
+            }
+        }
+
+        void send(HttpExchange exchange, int status, String body) throws IOException, InterruptedException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (compression && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(bytes);
+                }
+                bytes = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            int chunk = dripChunkBytes;
+            if (chunk <= 0) {
+                exchange.sendResponseHeaders(status, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            } else {
+                // chunked transfer so the client sees every chunk as it is written
+                exchange.sendResponseHeaders(status, 0);
+                OutputStream out = exchange.getResponseBody();
+                for (int off = 0; off < bytes.length; off += chunk) {
+                    out.write(bytes, off, Math.min(chunk, bytes.length - off));
+                    out.flush();
+                    TimeUnit.MILLISECONDS.sleep(dripDelayMillis);
+                }
+            }
+            bytesSent.addAndGet(bytes.length);
+        }
+    }
+
+}
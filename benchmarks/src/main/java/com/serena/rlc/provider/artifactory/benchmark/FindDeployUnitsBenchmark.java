@@ -0,0 +1,88 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.benchmark;
+
+import com.serena.rlc.provider.artifactory.ArtifactoryDeploymentUnitProvider;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClientRegistry;
+import com.serena.rlc.provider.domain.Field;
+import com.serena.rlc.provider.domain.ProviderInfoResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end findDeployUnits against a local fake server, with the search window cache disabled
+ * so every call performs a search.
+ * @author klee@serena.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindDeployUnitsBenchmark {
+
+    @Param({"10", "1000"})
+    public int results;
+
+    private FakeArtifactoryServer server;
+    private ArtifactoryDeploymentUnitProvider provider;
+    private List<Field> properties;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new FakeArtifactoryServer(20, results, 8);
+        provider = new ArtifactoryDeploymentUnitProvider();
+        provider.setArtifactoryUrl(server.getUrl());
+        provider.setServiceUser("admin");
+        provider.setServicePassword("password");
+        provider.setDeployUnitResultLimit(String.valueOf(results));
+        provider.setDeployUnitSearchWindowTtl("0");
+
+        properties = new ArrayList<>();
+        properties.add(field("artifactRepo", Payloads.DEFAULT_REPOSITORY));
+        properties.add(field("artifactGroup", "org.acme"));
+        properties.add(field("artifactName", null));
+        properties.add(field("artifactClass", null));
+        properties.add(field("artifactVersion", null));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+        ArtifactoryClientRegistry.getDefault().shutdown();
+    }
+
+    @Benchmark
+    public ProviderInfoResult findDeployUnits() throws Exception {
+        return provider.findDeployUnits(properties, 0L, (long) results);
+    }
+
+    static Field field(String name, String value) {
+        Field field = new Field(name, name);
+        field.setValue(value);
+        return field;
+    }
+
+}
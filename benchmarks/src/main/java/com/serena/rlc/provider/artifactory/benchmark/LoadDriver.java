@@ -0,0 +1,257 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.benchmark;
+
+import com.serena.rlc.provider.artifactory.ArtifactoryDeploymentUnitProvider;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClientRegistry;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryConnectionPool;
+import com.serena.rlc.provider.domain.Field;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drives concurrent provider calls against a {@link FakeArtifactoryServer} and reports latency
+ * percentiles, throughput, errors and heap use. The workload mixes searches, single unit lookups and
+ * repository lists, every thread uses its own provider as the server would.
+ * <pre>
+ *     java -cp target/benchmarks.jar com.serena.rlc.provider.artifactory.benchmark.LoadDriver \
+ *         --threads=16 --duration=30 --latency=20 --errorRate=0.01
+ * </pre>
+ * Options, all optional: threads, duration and warmup in seconds, repositories, artifacts per repository,
+ * results per search, engine (gavc or aql), latency and jitter in milliseconds, errorRate, errorStatus,
+ * dripBytes and dripDelay in milliseconds, padding in bytes, compression (true or false), windowTtl in seconds.
+ * @author klee@serena.com
+ */
+public class LoadDriver {
+
+    private static final int SEARCH_PERCENT = 70;
+    private static final int DEPLOY_UNIT_PERCENT = 20;
+
+    private final Map<String, String> options;
+    private final FakeArtifactoryServer server;
+    private final Recorder search = new Recorder("findDeployUnits");
+    private final Recorder deployUnit = new Recorder("getDeployUnit");
+    private final Recorder repositories = new Recorder("getRepositoryFieldValues");
+    private volatile boolean recording = false;
+    private volatile boolean stopped = false;
+
+    public LoadDriver(Map<String, String> options) throws Exception {
+        this.options = options;
+        int threads = getInt("threads", 8);
+        server = new FakeArtifactoryServer(getInt("repositories", 5), getInt("artifacts", 500), Math.max(8, threads * 2));
+        server.setLatency(getInt("latency", 0), getInt("jitter", 0));
+        server.setErrors(Double.parseDouble(get("errorRate", "0")), getInt("errorStatus", 503));
+        server.setSlowDrip(getInt("dripBytes", 0), getInt("dripDelay", 0));
+        server.setResultPadding(getInt("padding", 0));
+        server.setCompression(Boolean.parseBoolean(get("compression", "false")));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Unknown argument " + arg + ", expected --option=value");
+                System.exit(1);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadDriver(options).run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        int threads = getInt("threads", 8);
+        int warmup = getInt("warmup", 5);
+        int duration = getInt("duration", 20);
+        System.out.println("Driving " + server.getUrl() + " with " + threads + " threads, options " + options);
+
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final ArtifactoryDeploymentUnitProvider provider = createProvider();
+            Thread worker = new Thread("load-driver-" + t) {
+                @Override
+                public void run() {
+                    try {
+                        while (!stopped) {
+                            callOnce(provider);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        TimeUnit.SECONDS.sleep(warmup);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long started = System.nanoTime();
+        recording = true;
+        long peakHeap = heapBefore;
+        long end = started + TimeUnit.SECONDS.toNanos(duration);
+        while (System.nanoTime() < end) {
+            TimeUnit.MILLISECONDS.sleep(100);
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+        }
+        recording = false;
+        long elapsed = System.nanoTime() - started;
+        stopped = true;
+        done.await(60, TimeUnit.SECONDS);
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        double seconds = elapsed / 1e9;
+        System.out.println();
+        System.out.println(String.format("%-26s %9s %9s %8s %8s %8s %8s %8s", "operation", "calls", "ops/s", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Recorder recorder : Arrays.asList(search, deployUnit, repositories)) {
+            System.out.println(recorder.report(seconds));
+        }
+        System.out.println();
+        System.out.println(String.format("heap used: before %,d KB, peak %,d KB, after GC %,d KB", heapBefore / 1024,
+                peakHeap / 1024, heapAfter / 1024));
+        System.out.println("connection pools: " + ArtifactoryConnectionPool.getAllStats());
+        System.out.println("artifact cache: " + ArtifactoryClientRegistry.getDefault().getArtifactCache().getStats());
+        System.out.println("server: " + server);
+
+        server.stop();
+        ArtifactoryClientRegistry.getDefault().shutdown();
+    }
+
+    private ArtifactoryDeploymentUnitProvider createProvider() {
+        ArtifactoryDeploymentUnitProvider provider = new ArtifactoryDeploymentUnitProvider();
+        provider.setArtifactoryUrl(server.getUrl());
+        provider.setServiceUser("admin");
+        provider.setServicePassword("password");
+        provider.setDeployUnitResultLimit(get("results", "100"));
+        provider.setDeployUnitSearchEngine(get("engine", "gavc"));
+        provider.setDeployUnitSearchWindowTtl(get("windowTtl", "0"));
+        return provider;
+    }
+
+    private void callOnce(ArtifactoryDeploymentUnitProvider provider) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        Recorder recorder;
+        if (roll < SEARCH_PERCENT) {
+            recorder = search;
+        } else if (roll < SEARCH_PERCENT + DEPLOY_UNIT_PERCENT) {
+            recorder = deployUnit;
+        } else {
+            recorder = repositories;
+        }
+
+        List<String> repos = server.getRepositories();
+        String repo = repos.get(random.nextInt(repos.size()));
+        long started = System.nanoTime();
+        boolean failed = false;
+        try {
+            if (recorder == search) {
+                List<Field> properties = new ArrayList<>();
+                properties.add(FindDeployUnitsBenchmark.field("artifactRepo", repo));
+                properties.add(FindDeployUnitsBenchmark.field("artifactGroup", "org.acme"));
+                // a third of the searches narrow down to one module
+                properties.add(FindDeployUnitsBenchmark.field("artifactName",
+                        (random.nextInt(3) == 0) ? Payloads.module(random.nextInt(50)) : null));
+                properties.add(FindDeployUnitsBenchmark.field("artifactClass", null));
+                properties.add(FindDeployUnitsBenchmark.field("artifactVersion", null));
+                provider.findDeployUnits(properties, 0L, Long.valueOf(get("results", "100")));
+            } else if (recorder == deployUnit) {
+                Field property = new Field("artifactPath", "artifactPath");
+                property.setId("/" + repo + Payloads.path(random.nextInt(server.getArtifactsPerRepository())));
+                failed = provider.getDeployUnit(property) == null;
+            } else {
+                provider.getRepositoryFieldValues("artifactRepo", null);
+            }
+        } catch (Exception ex) {
+            failed = true;
+        }
+        if (recording) {
+            recorder.record(System.nanoTime() - started, failed);
+        }
+    }
+
+    private String get(String name, String defaultValue) {
+        String value = options.get(name);
+        return (value == null) ? defaultValue : value;
+    }
+
+    private int getInt(String name, int defaultValue) {
+        return Integer.parseInt(get(name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * Latency histogram with 10 microsecond buckets up to 1 second, slower calls fall into the last bucket.
+     * Kept small so it does not distort the heap figures.
+     */
+    static class Recorder {
+        private static final int BUCKET_MICROS = 10;
+        private static final int BUCKETS = 100000;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Recorder(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, boolean failed) {
+            int bucket = (int) Math.min(BUCKETS - 1, TimeUnit.NANOSECONDS.toMicros(nanos) / BUCKET_MICROS);
+            buckets.incrementAndGet(bucket);
+            calls.incrementAndGet();
+            if (failed) {
+                errors.incrementAndGet();
+            }
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        double percentileMillis(double percentile) {
+            long total = calls.get();
+            if (total == 0) {
+                return 0.0;
+            }
+            long target = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return (i + 1) * BUCKET_MICROS / 1000.0;
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+
+        String report(double seconds) {
+            return String.format("%-26s %9d %9.1f %8d %8.2f %8.2f %8.2f %8.2f", name, calls.get(), calls.get() / seconds,
+                    errors.get(), percentileMillis(0.50), percentileMillis(0.90), percentileMillis(0.99), maxNanos.get() / 1e6);
+        }
+    }
+
+}
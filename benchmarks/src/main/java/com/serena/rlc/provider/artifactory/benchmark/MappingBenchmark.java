@@ -0,0 +1,104 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.benchmark;
+
+import com.serena.rlc.provider.artifactory.ArtifactoryDeploymentUnitProvider;
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import com.serena.rlc.provider.domain.ProviderInfo;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of 10k parsed results to artifacts and of artifacts to RLC deployment units.
+ * The legacy mapping repeats the commons-httpclient URI split that parseSingle used to do per result.
+ * @author klee@serena.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    private static final String BASE_URL = "http://localhost:8081/artifactory";
+    private static final int RESULTS = 10000;
+
+    private JSONObject[] elements;
+    private Artifact[] artifacts;
+    private MappingProvider provider;
+
+    /**
+     * Exposes the deployment unit mapping of the provider.
+     */
+    static class MappingProvider extends ArtifactoryDeploymentUnitProvider {
+        ProviderInfo map(Artifact artifact) {
+            return getProviderInfo(artifact, artifact.getRepo());
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        JSONArray results = (JSONArray) ((JSONObject) new JSONParser().parse(Payloads.gavcResults(BASE_URL, RESULTS))).get("results");
+        elements = new JSONObject[RESULTS];
+        artifacts = new Artifact[RESULTS];
+        for (int i = 0; i < RESULTS; i++) {
+            elements[i] = (JSONObject) results.get(i);
+            artifacts[i] = Artifact.parseSingle(elements[i]);
+        }
+        provider = new MappingProvider();
+        provider.setArtifactoryUrl(BASE_URL);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public void mapStorageInfo(Blackhole bh) {
+        for (JSONObject element : elements) {
+            bh.consume(Artifact.parseSingle(element));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public void mapStorageInfoLegacyUriSplit(Blackhole bh) throws Exception {
+        for (JSONObject element : elements) {
+            Artifact artifact = Artifact.parseSingle(element);
+            org.apache.commons.httpclient.URI uri = new org.apache.commons.httpclient.URI((String) element.get("uri"));
+            artifact.setName(uri.getName());
+            String[] segments = uri.getPath().split("/");
+            artifact.setVersion(segments[segments.length - 2]);
+            bh.consume(artifact);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public void mapProviderInfo(Blackhole bh) {
+        for (Artifact artifact : artifacts) {
+            bh.consume(provider.map(artifact));
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.benchmark;
+
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import com.serena.rlc.provider.artifactory.domain.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of search and repository list responses of 10, 1k and 100k results.
+ * @author klee@serena.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    private static final String BASE_URL = "http://localhost:8081/artifactory";
+
+    @Param({"10", "1000", "100000"})
+    public int results;
+
+    private String gavc;
+    private String aql;
+    private String repositories;
+
+    @Setup
+    public void setup() {
+        gavc = Payloads.gavcResults(BASE_URL, results);
+        aql = Payloads.aqlResults(results);
+        repositories = Payloads.repositories(BASE_URL, results);
+    }
+
+    @Benchmark
+    public List<Artifact> parseGavc() throws IOException {
+        return Artifact.parse(new StringReader(gavc), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Artifact> parseGavcFirstPage() throws IOException {
+        return Artifact.parse(new StringReader(gavc), 10);
+    }
+
+    @Benchmark
+    public List<Artifact> parseAql() throws IOException {
+        return Artifact.parseAql(new StringReader(aql), Integer.MAX_VALUE, BASE_URL);
+    }
+
+    @Benchmark
+    public List<Repository> parseRepositories() {
+        return Repository.parse(repositories);
+    }
+
+}
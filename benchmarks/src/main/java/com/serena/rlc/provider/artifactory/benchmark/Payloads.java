@@ -0,0 +1,270 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.benchmark;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deterministic response bodies shaped like those recorded from Artifactory, so every run parses the same data.
+ * @author klee@serena.com
+ */
+public final class Payloads {
+
+    public static final String DEFAULT_REPOSITORY = "libs-release-local";
+    public static final String GROUP_PATH = "org/acme";
+
+    private static final String TIMESTAMP = "2016-03-21T10:15:30.123+02:00";
+    private static final String[] USERS = {"jenkins", "admin", "deployer", "release-bot"};
+    private static final Map<String, String> CONTENT_CHECKSUMS = new ConcurrentHashMap<>();
+
+    private Payloads() {
+    }
+
+    /**
+     * Get a GAVC search response with storage info, as returned with X-Result-Detail: info, properties.
+     *
+     * @param baseUrl  the Artifactory url
+     * @param count  the number of results
+     * @return the response body
+     */
+    public static String gavcResults(String baseUrl, int count) {
+        StringBuilder sb = new StringBuilder(count * 900 + 32).append("{\"results\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            appendStorageInfo(sb, baseUrl, DEFAULT_REPOSITORY, i, null);
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Get the storage info of a single artifact.
+     *
+     * @param baseUrl  the Artifactory url
+     * @param repo  the repository key
+     * @param index  the artifact number
+     * @return the response body
+     */
+    public static String storageInfo(String baseUrl, String repo, int index) {
+        StringBuilder sb = new StringBuilder(1024);
+        appendStorageInfo(sb, baseUrl, repo, index, null);
+        return sb.toString();
+    }
+
+    /**
+     * Get an AQL items.find() response.
+     *
+     * @param count  the number of results
+     * @return the response body
+     */
+    public static String aqlResults(int count) {
+        StringBuilder sb = new StringBuilder(count * 500 + 96).append("{\"results\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            String folder = GROUP_PATH + "/" + module(i) + "/" + version(i);
+            sb.append("{\"repo\":\"").append(DEFAULT_REPOSITORY)
+                    .append("\",\"path\":\"").append(folder)
+                    .append("\",\"name\":\"").append(fileName(i))
+                    .append("\",\"type\":\"file\",\"size\":").append(size(i))
+                    .append(",\"created\":\"").append(TIMESTAMP)
+                    .append("\",\"created_by\":\"").append(user(i))
+                    .append("\",\"modified\":\"").append(TIMESTAMP)
+                    .append("\",\"modified_by\":\"").append(user(i))
+                    .append("\",\"updated\":\"").append(TIMESTAMP)
+                    .append("\",\"actual_sha1\":\"").append(checksum(i, 40))
+                    .append("\",\"actual_md5\":\"").append(checksum(i, 32))
+                    .append("\",\"properties\":[{\"key\":\"build.number\",\"value\":\"").append(i).append("\"}]}");
+        }
+        return sb.append("],\"range\":{\"start_pos\":0,\"end_pos\":").append(count).append(",\"total\":").append(count)
+                .append("}}").toString();
+    }
+
+    /**
+     * Get a repository list response.
+     *
+     * @param baseUrl  the Artifactory url
+     * @param count  the number of repositories
+     * @return the response body
+     */
+    public static String repositories(String baseUrl, int count) {
+        StringBuilder sb = new StringBuilder(count * 160 + 2).append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            String key = (i == 0) ? DEFAULT_REPOSITORY : "repo-" + i + ((i % 3 == 0) ? "-snapshot-local" : "-release-local");
+            sb.append("{\"key\":\"").append(key)
+                    .append("\",\"type\":\"").append((i % 5 == 4) ? "REMOTE" : "LOCAL")
+                    .append("\",\"description\":\"Repository ").append(i)
+                    .append("\",\"url\":\"").append(baseUrl).append('/').append(key).append("\"}");
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Get the artifact number of a path created by {@link #path(int)}.
+     *
+     * @param path  the path within the repository
+     * @return the artifact number or -1 if the path was not created by this class
+     */
+    public static int indexOf(String path) {
+        String prefix = "/" + GROUP_PATH + "/module-";
+        if (!path.startsWith(prefix)) {
+            return -1;
+        }
+        int moduleEnd = path.indexOf('/', prefix.length());
+        int minorStart = path.indexOf('.', moduleEnd);
+        int minorEnd = (minorStart < 0) ? -1 : path.indexOf('.', minorStart + 1);
+        if (moduleEnd < 0 || minorEnd < 0) {
+            return -1;
+        }
+        try {
+            int module = Integer.parseInt(path.substring(prefix.length(), moduleEnd));
+            int minor = Integer.parseInt(path.substring(minorStart + 1, minorEnd));
+            int index = minor * 50 + module;
+            return (module < 50 && path.equals(path(index))) ? index : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    public static String module(int index) {
+        return "module-" + (index % 50);
+    }
+
+    public static String version(int index) {
+        return "1." + (index / 50) + "." + (index % 7);
+    }
+
+    public static String fileName(int index) {
+        return module(index) + "-" + version(index) + ".jar";
+    }
+
+    public static String path(int index) {
+        return "/" + GROUP_PATH + "/" + module(index) + "/" + version(index) + "/" + fileName(index);
+    }
+
+    public static long size(int index) {
+        return 10000L + (index * 7919L) % 5000000L;
+    }
+
+    /**
+     * Get a byte of the synthetic content of an artifact.
+     *
+     * @param index  the artifact number
+     * @param position  the position in the content
+     * @return the byte
+     */
+    public static byte contentByte(int index, long position) {
+        return (byte) ((position * 31 + index) ^ (position >>> 9));
+    }
+
+    /**
+     * Get the checksum of the synthetic content of an artifact, computed once per artifact.
+     *
+     * @param index  the artifact number
+     * @param algorithm  the digest algorithm, e.g. SHA-256
+     * @return the checksum in hex
+     */
+    public static String contentChecksum(int index, String algorithm) {
+        String key = index + ":" + algorithm;
+        String checksum = CONTENT_CHECKSUMS.get(key);
+        if (checksum == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalArgumentException(ex);
+            }
+            byte[] chunk = new byte[65536];
+            long size = size(index);
+            for (long position = 0; position < size; position += chunk.length) {
+                int length = (int) Math.min(chunk.length, size - position);
+                for (int i = 0; i < length; i++) {
+                    chunk[i] = contentByte(index, position + i);
+                }
+                digest.update(chunk, 0, length);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format(Locale.ENGLISH, "%02x", b));
+            }
+            checksum = hex.toString();
+            CONTENT_CHECKSUMS.put(key, checksum);
+        }
+        return checksum;
+    }
+
+    /**
+     * Append the storage info of a single artifact.
+     *
+     * @param sb  the buffer
+     * @param baseUrl  the Artifactory url
+     * @param repo  the repository key
+     * @param index  the artifact number
+     * @param padding  the value of an extra property used to enlarge the response, may be null
+     */
+    static void appendStorageInfo(StringBuilder sb, String baseUrl, String repo, int index, String padding) {
+        appendStorageInfo(sb, baseUrl, repo, index, padding, false);
+    }
+
+    /**
+     * Append the storage info of a single artifact.
+     *
+     * @param sb  the buffer
+     * @param baseUrl  the Artifactory url
+     * @param repo  the repository key
+     * @param index  the artifact number
+     * @param padding  the value of an extra property used to enlarge the response, may be null
+     * @param contentChecksums  true for the real checksums of the content, false for cheap synthetic ones
+     */
+    static void appendStorageInfo(StringBuilder sb, String baseUrl, String repo, int index, String padding, boolean contentChecksums) {
+        String path = path(index);
+        String sha1 = contentChecksums ? contentChecksum(index, "SHA-1") : checksum(index, 40);
+        String md5 = contentChecksums ? contentChecksum(index, "MD5") : checksum(index, 32);
+        sb.append("{\"repo\":\"").append(repo)
+                .append("\",\"path\":\"").append(path)
+                .append("\",\"created\":\"").append(TIMESTAMP)
+                .append("\",\"createdBy\":\"").append(user(index))
+                .append("\",\"lastModified\":\"").append(TIMESTAMP)
+                .append("\",\"modifiedBy\":\"").append(user(index))
+                .append("\",\"lastUpdated\":\"").append(TIMESTAMP)
+                .append("\",\"downloadUri\":\"").append(baseUrl).append('/').append(repo).append(path)
+                .append("\",\"mimeType\":\"application/java-archive\",\"size\":\"").append(size(index))
+                .append("\",\"checksums\":{\"sha1\":\"").append(sha1)
+                .append("\",\"md5\":\"").append(md5);
+        if (contentChecksums) {
+            sb.append("\",\"sha256\":\"").append(contentChecksum(index, "SHA-256"));
+        }
+        sb.append("\"},\"originalChecksums\":{\"sha1\":\"").append(sha1)
+                .append("\",\"md5\":\"").append(md5)
+                .append("\"},\"properties\":{\"build.number\":[\"").append(index).append("\"]");
+        if (padding != null) {
+            sb.append(",\"padding\":[\"").append(padding).append("\"]");
+        }
+        sb.append("},\"uri\":\"").append(baseUrl).append("/api/storage/").append(repo).append(path).append("\"}");
+    }
+
+    private static String user(int index) {
+        return USERS[index % USERS.length];
+    }
+
+    private static String checksum(int index, int length) {
+        String hex = Integer.toHexString(index * 31 + 17);
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(hex);
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+}
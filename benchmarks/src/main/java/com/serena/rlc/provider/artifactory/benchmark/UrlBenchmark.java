@@ -0,0 +1,87 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.benchmark;
+
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClient;
+import com.serena.rlc.provider.artifactory.client.UrlBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request url building, compared with the regex and concatenation based building it replaced.
+ * @author klee@serena.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlBenchmark {
+
+    private static final String BASE_URL = "http://localhost:8081/artifactory";
+
+    private ArtifactoryClient client;
+    private String storagePath;
+
+    @Setup
+    public void setup() {
+        client = new ArtifactoryClient(null, BASE_URL, "admin", "password");
+        storagePath = "/api/storage/" + Payloads.DEFAULT_REPOSITORY + Payloads.path(4711);
+    }
+
+    @Benchmark
+    public String storageUrl() {
+        return client.createUrl(storagePath, "");
+    }
+
+    @Benchmark
+    public String storageUrlLegacy() {
+        return legacyCreateUrl(storagePath, "");
+    }
+
+    @Benchmark
+    public String gavcUrl() {
+        StringBuilder params = new StringBuilder(64);
+        UrlBuilder.appendParam(params, "repos", Payloads.DEFAULT_REPOSITORY);
+        UrlBuilder.appendParam(params, "g", "org.acme");
+        UrlBuilder.appendParam(params, "a", "module-1");
+        UrlBuilder.appendParam(params, "v", "1.*");
+        return client.createUrl("/api/search/gavc", params.toString());
+    }
+
+    @Benchmark
+    public String gavcUrlLegacy() {
+        String params = "repos=" + Payloads.DEFAULT_REPOSITORY;
+        params += "&g=" + "org.acme";
+        params += "&a=" + "module-1";
+        params += "&v=" + "1.*";
+        return legacyCreateUrl("/api/search/gavc", params);
+    }
+
+    private static String legacyCreateUrl(String path, String parameters) {
+        path = path.trim().replaceAll(" ", "%20");
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        return BASE_URL + path + "?" + parameters;
+    }
+
+}
@@ -11,19 +11,32 @@ package com.serena.rlc.provider.artifactory;
 
 import com.serena.rlc.provider.annotations.ConfigProperty;
 import com.serena.rlc.provider.annotations.Getter;
+import com.serena.rlc.provider.artifactory.cache.ArtifactCache;
+import com.serena.rlc.provider.artifactory.cache.ExpiringCache;
 import com.serena.rlc.provider.artifactory.client.ArtifactoryClient;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClientKey;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClientRegistry;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryTimeouts;
+import com.serena.rlc.provider.artifactory.domain.Artifact;
 import com.serena.rlc.provider.artifactory.domain.Repository;
 import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
 import com.serena.rlc.provider.domain.*;
 import com.serena.rlc.provider.exceptions.ProviderException;
 import com.serena.rlc.provider.spi.IBaseServiceProvider;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -40,6 +53,19 @@ public abstract class ArtifactoryBaseServiceProvider implements IBaseServiceProv
     final static String ARTIFACT_NAME = "artifactName";
     final static String ARTIFACT_VERSION = "artifactVersion";
     final static String ARTIFACT_PATH = "artifactPath";
+    final static String ARTIFACT_LATEST = "artifactLatest";
+
+    final static int REPOSITORY_RESULT_LIMIT = 200;
+    final static long DEFAULT_REPOSITORY_CACHE_TTL = 300L;
+    final static long DEFAULT_REPOSITORY_CACHE_STALE_TTL = 3600L;
+    final static long DEFAULT_ARTIFACT_CACHE_REVALIDATE_INTERVAL = 30L;
+    final static long DEFAULT_ARTIFACT_CACHE_RELEASE_REVALIDATE_INTERVAL = 3600L;
+    final static long DEFAULT_CONNECT_TIMEOUT = 10L;
+    final static long DEFAULT_READ_TIMEOUT = 60L;
+    final static long DEFAULT_POOL_TIMEOUT = 10L;
+    final static long DEFAULT_REPOSITORY_REQUEST_DEADLINE = 30L;
+    final static long DEFAULT_SEARCH_REQUEST_DEADLINE = 120L;
+    final static long DEFAULT_STORAGE_REQUEST_DEADLINE = 30L;
 
     //================================================================================
     // Configuration Properties
@@ -73,13 +99,73 @@ public abstract class ArtifactoryBaseServiceProvider implements IBaseServiceProv
             dataType = DataType.PASSWORD)
     private String servicePassword;
 
+    @ConfigProperty(name = "repository_cache_ttl", displayName = "Repository Cache TTL",
+            description = "Number of seconds the repository list is cached, 0 to disable caching.",
+            defaultValue = "300",
+            dataType = DataType.TEXT)
+    private String repositoryCacheTtl;
+
+    @ConfigProperty(name = "repository_cache_stale_ttl", displayName = "Repository Cache Stale TTL",
+            description = "Number of seconds an expired repository list may still be shown while it is refreshed in the background.",
+            defaultValue = "3600",
+            dataType = DataType.TEXT)
+    private String repositoryCacheStaleTtl;
+
+    @ConfigProperty(name = "artifact_cache_revalidate_interval", displayName = "Artifact Cache Revalidate Interval",
+            description = "Number of seconds before cached snapshot artifacts are revalidated with Artifactory, 0 to revalidate on every lookup.",
+            defaultValue = "30",
+            dataType = DataType.TEXT)
+    private String artifactCacheRevalidateInterval;
+
+    @ConfigProperty(name = "artifact_cache_release_revalidate_interval", displayName = "Artifact Cache Release Revalidate Interval",
+            description = "Number of seconds before cached release artifacts are revalidated with Artifactory, in case they were redeployed.",
+            defaultValue = "3600",
+            dataType = DataType.TEXT)
+    private String artifactCacheReleaseRevalidateInterval;
+
+    @ConfigProperty(name = "connect_timeout", displayName = "Connect Timeout",
+            description = "Number of seconds to wait for a connection to Artifactory to be established.",
+            defaultValue = "10",
+            dataType = DataType.TEXT)
+    private String connectTimeout;
+
+    @ConfigProperty(name = "read_timeout", displayName = "Read Timeout",
+            description = "Number of seconds to wait for data from Artifactory before a request fails.",
+            defaultValue = "60",
+            dataType = DataType.TEXT)
+    private String readTimeout;
+
+    @ConfigProperty(name = "pool_timeout", displayName = "Connection Pool Timeout",
+            description = "Number of seconds to wait for a free pooled connection before a request fails.",
+            defaultValue = "10",
+            dataType = DataType.TEXT)
+    private String poolTimeout;
+
+    @ConfigProperty(name = "repository_request_deadline", displayName = "Repository Request Deadline",
+            description = "Maximum number of seconds a repository list request may take, 0 for no limit.",
+            defaultValue = "30",
+            dataType = DataType.TEXT)
+    private String repositoryRequestDeadline;
+
+    @ConfigProperty(name = "search_request_deadline", displayName = "Search Request Deadline",
+            description = "Maximum number of seconds an artifact search request may take, 0 for no limit.",
+            defaultValue = "120",
+            dataType = DataType.TEXT)
+    private String searchRequestDeadline;
+
+    @ConfigProperty(name = "storage_request_deadline", displayName = "Storage Request Deadline",
+            description = "Maximum number of seconds an artifact storage info request may take, 0 for no limit.",
+            defaultValue = "30",
+            dataType = DataType.TEXT)
+    private String storageRequestDeadline;
+
     private SessionData session;
     private Long providerId;
     private String providerUuid;
     private String providerNamespaceId;
 
-    @Autowired
-    ArtifactoryClient artifactoryClient;
+    @Autowired(required = false)
+    ArtifactoryClientRegistry artifactoryClientRegistry;
 
     public SessionData getSession() {
         return session;
@@ -170,6 +256,96 @@ public abstract class ArtifactoryBaseServiceProvider implements IBaseServiceProv
         }
     }
 
+    public String getRepositoryCacheTtl() {
+        return repositoryCacheTtl;
+    }
+
+    @Autowired(required = false)
+    public void setRepositoryCacheTtl(String repositoryCacheTtl) {
+        this.repositoryCacheTtl = repositoryCacheTtl;
+    }
+
+    public String getRepositoryCacheStaleTtl() {
+        return repositoryCacheStaleTtl;
+    }
+
+    @Autowired(required = false)
+    public void setRepositoryCacheStaleTtl(String repositoryCacheStaleTtl) {
+        this.repositoryCacheStaleTtl = repositoryCacheStaleTtl;
+    }
+
+    public String getArtifactCacheRevalidateInterval() {
+        return artifactCacheRevalidateInterval;
+    }
+
+    @Autowired(required = false)
+    public void setArtifactCacheRevalidateInterval(String artifactCacheRevalidateInterval) {
+        this.artifactCacheRevalidateInterval = artifactCacheRevalidateInterval;
+    }
+
+    public String getArtifactCacheReleaseRevalidateInterval() {
+        return artifactCacheReleaseRevalidateInterval;
+    }
+
+    @Autowired(required = false)
+    public void setArtifactCacheReleaseRevalidateInterval(String artifactCacheReleaseRevalidateInterval) {
+        this.artifactCacheReleaseRevalidateInterval = artifactCacheReleaseRevalidateInterval;
+    }
+
+    public String getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    @Autowired(required = false)
+    public void setConnectTimeout(String connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public String getReadTimeout() {
+        return readTimeout;
+    }
+
+    @Autowired(required = false)
+    public void setReadTimeout(String readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public String getPoolTimeout() {
+        return poolTimeout;
+    }
+
+    @Autowired(required = false)
+    public void setPoolTimeout(String poolTimeout) {
+        this.poolTimeout = poolTimeout;
+    }
+
+    public String getRepositoryRequestDeadline() {
+        return repositoryRequestDeadline;
+    }
+
+    @Autowired(required = false)
+    public void setRepositoryRequestDeadline(String repositoryRequestDeadline) {
+        this.repositoryRequestDeadline = repositoryRequestDeadline;
+    }
+
+    public String getSearchRequestDeadline() {
+        return searchRequestDeadline;
+    }
+
+    @Autowired(required = false)
+    public void setSearchRequestDeadline(String searchRequestDeadline) {
+        this.searchRequestDeadline = searchRequestDeadline;
+    }
+
+    public String getStorageRequestDeadline() {
+        return storageRequestDeadline;
+    }
+
+    @Autowired(required = false)
+    public void setStorageRequestDeadline(String storageRequestDeadline) {
+        this.storageRequestDeadline = storageRequestDeadline;
+    }
+
     //================================================================================
     // Getter Methods
     // -------------------------------------------------------------------------------
@@ -181,10 +357,9 @@ public abstract class ArtifactoryBaseServiceProvider implements IBaseServiceProv
     @Getter(name = ARTIFACT_REPO, displayName = "Repository", description = "Get Artifactory Repository.")
     public FieldInfo getRepositoryFieldValues(String fieldName, List<Field> properties) throws ProviderException {
         FieldInfo fieldInfo = new FieldInfo(fieldName);
-        setArtifactoryClientConnectionDetails();
 
         try {
-            List<Repository> repositories = getArtifactoryClient().getRepositories(200);
+            List<Repository> repositories = getRepositories();
             if (repositories == null || repositories.size() < 1) {
                 return null;
             }
@@ -208,16 +383,156 @@ public abstract class ArtifactoryBaseServiceProvider implements IBaseServiceProv
     // Additional Public Methods
     //================================================================================
 
-    public ArtifactoryClient getArtifactoryClient() {
-        if (artifactoryClient == null) {
-            artifactoryClient = new ArtifactoryClient();
+    public ArtifactoryClientRegistry getArtifactoryClientRegistry() {
+        if (artifactoryClientRegistry == null) {
+            artifactoryClientRegistry = ArtifactoryClientRegistry.getDefault();
         }
 
-        return artifactoryClient;
+        return artifactoryClientRegistry;
+    }
+
+    /**
+     * Get the repositories of the configured Artifactory, served from the repository cache when fresh.
+     *
+     * @return a list of Repositories
+     * @throws ArtifactoryClientException
+     */
+    public List<Repository> getRepositories() throws ArtifactoryClientException {
+        ArtifactoryClient client = getArtifactoryClient();
+        long ttl = TimeUnit.SECONDS.toMillis(NumberUtils.toLong(getRepositoryCacheTtl(), DEFAULT_REPOSITORY_CACHE_TTL));
+        long staleTtl = TimeUnit.SECONDS.toMillis(NumberUtils.toLong(getRepositoryCacheStaleTtl(), DEFAULT_REPOSITORY_CACHE_STALE_TTL));
+
+        return getArtifactoryClientRegistry().getRepositoryCache().get(client.getKey(), ttl, staleTtl,
+                new ExpiringCache.Loader<ArtifactoryClientKey, List<Repository>>() {
+                    @Override
+                    public List<Repository> load(ArtifactoryClientKey key) throws ArtifactoryClientException {
+                        return Collections.unmodifiableList(getArtifactoryClient().getRepositories(REPOSITORY_RESULT_LIMIT));
+                    }
+                });
+    }
+
+    /**
+     * Drop the cached repository list for this provider's configuration, e.g. after a repository was added.
+     */
+    public void invalidateRepositoryCache() {
+        getArtifactoryClientRegistry().getRepositoryCache().invalidate(getArtifactoryClient().getKey());
+    }
+
+    /**
+     * Get an artifact by path, served from the artifact cache. Cached artifacts are revalidated with a conditional
+     * request once their revalidate interval passed, a short one for snapshots and a long one for releases.
+     *
+     * @param path  the storage path or storage uri of the artifact
+     * @return the artifact
+     * @throws ArtifactoryClientException
+     */
+    public Artifact getArtifact(String path) throws ArtifactoryClientException {
+        ArtifactoryClient client = getArtifactoryClient();
+        ArtifactCache cache = getArtifactoryClientRegistry().getArtifactCache();
+        String storagePath = client.toStoragePath(path);
+
+        ArtifactCache.Entry entry = cache.get(client.getKey(), storagePath);
+        if (entry != null) {
+            if (isCurrent(entry)) {
+                return entry.getArtifact();
+            }
+            Artifact modified = client.getArtifactIfModified(storagePath, entry.getArtifact());
+            if (modified == null) {
+                cache.revalidated(client.getKey(), storagePath, entry);
+                return entry.getArtifact();
+            }
+            cache.put(client.getKey(), storagePath, modified);
+            return modified;
+        }
+
+        Artifact artifact = client.getArtifact(storagePath);
+        cache.put(client.getKey(), storagePath, artifact);
+        return artifact;
+    }
+
+    /**
+     * Get many artifacts by path. Artifacts are served from the artifact cache where possible and all
+     * others, including artifacts due for revalidation, are resolved with batched requests.
+     *
+     * @param paths  the storage paths or storage uris of the artifacts
+     * @return the artifacts found, keyed by the requested path in the order requested; paths that do not exist are left out
+     * @throws ArtifactoryClientException
+     */
+    public Map<String, Artifact> getArtifacts(Collection<String> paths) throws ArtifactoryClientException {
+        ArtifactoryClient client = getArtifactoryClient();
+        ArtifactCache cache = getArtifactoryClientRegistry().getArtifactCache();
+
+        Map<String, Artifact> resolved = new HashMap<>();
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (String path : paths) {
+            String storagePath = client.toStoragePath(path);
+            ArtifactCache.Entry entry = cache.get(client.getKey(), storagePath);
+            if (entry != null && isCurrent(entry)) {
+                resolved.put(path, entry.getArtifact());
+            } else {
+                missing.put(storagePath, path);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, Artifact> found = client.getArtifacts(missing.keySet());
+            for (Map.Entry<String, Artifact> entry : found.entrySet()) {
+                cache.put(client.getKey(), entry.getKey(), entry.getValue());
+                String path = missing.get(entry.getKey());
+                if (path != null) {
+                    resolved.put(path, entry.getValue());
+                }
+            }
+        }
+
+        // keep the requested order whichever artifacts came from the cache
+        Map<String, Artifact> artifacts = new LinkedHashMap<>();
+        for (String path : paths) {
+            Artifact artifact = resolved.get(path);
+            if (artifact != null) {
+                artifacts.put(path, artifact);
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * Check whether a cached artifact can be used without asking Artifactory.
+     */
+    private boolean isCurrent(ArtifactCache.Entry entry) {
+        // releases are not expected to change, but generic, remote and virtual repositories allow redeploys
+        long revalidateInterval = TimeUnit.SECONDS.toMillis(entry.isImmutable() ?
+                NumberUtils.toLong(getArtifactCacheReleaseRevalidateInterval(), DEFAULT_ARTIFACT_CACHE_RELEASE_REVALIDATE_INTERVAL) :
+                NumberUtils.toLong(getArtifactCacheRevalidateInterval(), DEFAULT_ARTIFACT_CACHE_REVALIDATE_INTERVAL));
+        return System.currentTimeMillis() - entry.getValidatedAt() < revalidateInterval;
+    }
+
+    /**
+     * Get the shared client for this provider's configuration.
+     *
+     * @return the Artifactory client for the configured url, user and password
+     */
+    public ArtifactoryClient getArtifactoryClient() {
+        return getArtifactoryClientRegistry().getClient(getArtifactoryUrl(), getServiceUser(), getServicePassword(), getTimeouts());
+    }
+
+    /**
+     * Get the configured timeouts and request deadlines.
+     *
+     * @return the timeouts in milliseconds
+     */
+    public ArtifactoryTimeouts getTimeouts() {
+        return new ArtifactoryTimeouts(
+                toMillis(getConnectTimeout(), DEFAULT_CONNECT_TIMEOUT),
+                toMillis(getReadTimeout(), DEFAULT_READ_TIMEOUT),
+                toMillis(getPoolTimeout(), DEFAULT_POOL_TIMEOUT),
+                toMillis(getRepositoryRequestDeadline(), DEFAULT_REPOSITORY_REQUEST_DEADLINE),
+                toMillis(getSearchRequestDeadline(), DEFAULT_SEARCH_REQUEST_DEADLINE),
+                toMillis(getStorageRequestDeadline(), DEFAULT_STORAGE_REQUEST_DEADLINE));
     }
 
-    public void setArtifactoryClientConnectionDetails() {
-        getArtifactoryClient().createConnection(getSession(), getArtifactoryUrl(), getServiceUser(), getServicePassword());
+    private static long toMillis(String seconds, long defaultSeconds) {
+        return TimeUnit.SECONDS.toMillis(Math.max(0L, NumberUtils.toLong(StringUtils.trim(seconds), defaultSeconds)));
     }
 
 }
@@ -10,18 +10,32 @@
 package com.serena.rlc.provider.artifactory;
 
 import com.serena.rlc.provider.annotations.*;
+import com.serena.rlc.provider.artifactory.cache.ArtifactIndex;
+import com.serena.rlc.provider.artifactory.cache.ExpiringCache;
+import com.serena.rlc.provider.artifactory.client.ArtifactSearchEngine;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClient;
 import com.serena.rlc.provider.artifactory.domain.Artifact;
+import com.serena.rlc.provider.artifactory.domain.ArtifactQuery;
+import com.serena.rlc.provider.artifactory.domain.ArtifactSearchResult;
+import com.serena.rlc.provider.artifactory.domain.LatestVersions;
+import com.serena.rlc.provider.artifactory.domain.MavenVersion;
 import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
 import com.serena.rlc.provider.domain.*;
 import com.serena.rlc.provider.exceptions.ProviderException;
 import com.serena.rlc.provider.spi.IDeployUnitProvider;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -32,6 +46,13 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
 
     final static Logger logger = LoggerFactory.getLogger(ArtifactoryDeploymentUnitProvider.class);
 
+    final static int DEFAULT_DEPLOY_UNIT_RESULT_LIMIT = 200;
+    final static long DEFAULT_SEARCH_WINDOW_TTL = 60L;
+    final static int SEARCH_PREFETCH_PAGES = 2;
+    final static long DEFAULT_INDEX_REFRESH_INTERVAL = 30L;
+    final static long DEFAULT_INDEX_MAX_STALENESS = 300L;
+    final static String SORT_ORDER_VERSION = "version";
+
     //================================================================================
     // Configuration Properties
     // -------------------------------------------------------------------------------
@@ -58,6 +79,42 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
             dataType = DataType.TEXT)
     private String deployUnitResultLimit;
 
+    @ConfigProperty(name = "deploy_unit_search_window_ttl", displayName = "Search Window TTL",
+            description = "Number of seconds search results are kept to serve further pages of the same search.",
+            defaultValue = "60",
+            dataType = DataType.TEXT)
+    private String deployUnitSearchWindowTtl;
+
+    @ConfigProperty(name = "deploy_unit_search_engine", displayName = "Search Engine",
+            description = "Artifactory search API used to find deployment units: gavc or aql.",
+            defaultValue = "gavc",
+            dataType = DataType.TEXT)
+    private String deployUnitSearchEngine;
+
+    @ConfigProperty(name = "deploy_unit_index_enabled", displayName = "Local Index Enabled",
+            description = "Answer find deployment units from a local index of each repository, kept in sync with AQL: true or false.",
+            defaultValue = "false",
+            dataType = DataType.TEXT)
+    private String deployUnitIndexEnabled;
+
+    @ConfigProperty(name = "deploy_unit_index_refresh_interval", displayName = "Local Index Refresh Interval",
+            description = "Number of seconds after which a search starts a background sync of the local index.",
+            defaultValue = "30",
+            dataType = DataType.TEXT)
+    private String deployUnitIndexRefreshInterval;
+
+    @ConfigProperty(name = "deploy_unit_index_max_staleness", displayName = "Local Index Max Staleness",
+            description = "Number of seconds since its last sync after which the local index is not used and searches go to Artifactory.",
+            defaultValue = "300",
+            dataType = DataType.TEXT)
+    private String deployUnitIndexMaxStaleness;
+
+    @ConfigProperty(name = "deploy_unit_sort_order", displayName = "Sort Order",
+            description = "Order of found deployment units: search, as returned by Artifactory, or version, newest Maven version first.",
+            defaultValue = "search",
+            dataType = DataType.TEXT)
+    private String deployUnitSortOrder;
+
     @Override
     public String getProviderName() {
         return this.providerName;
@@ -93,6 +150,60 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
         this.deployUnitResultLimit = deployUnitResultLimit;
     }
 
+    public String getDeployUnitSearchWindowTtl() {
+        return deployUnitSearchWindowTtl;
+    }
+
+    @Autowired(required = false)
+    public void setDeployUnitSearchWindowTtl(String deployUnitSearchWindowTtl) {
+        this.deployUnitSearchWindowTtl = deployUnitSearchWindowTtl;
+    }
+
+    public String getDeployUnitSearchEngine() {
+        return deployUnitSearchEngine;
+    }
+
+    @Autowired(required = false)
+    public void setDeployUnitSearchEngine(String deployUnitSearchEngine) {
+        this.deployUnitSearchEngine = deployUnitSearchEngine;
+    }
+
+    public String getDeployUnitIndexEnabled() {
+        return deployUnitIndexEnabled;
+    }
+
+    @Autowired(required = false)
+    public void setDeployUnitIndexEnabled(String deployUnitIndexEnabled) {
+        this.deployUnitIndexEnabled = deployUnitIndexEnabled;
+    }
+
+    public String getDeployUnitIndexRefreshInterval() {
+        return deployUnitIndexRefreshInterval;
+    }
+
+    @Autowired(required = false)
+    public void setDeployUnitIndexRefreshInterval(String deployUnitIndexRefreshInterval) {
+        this.deployUnitIndexRefreshInterval = deployUnitIndexRefreshInterval;
+    }
+
+    public String getDeployUnitIndexMaxStaleness() {
+        return deployUnitIndexMaxStaleness;
+    }
+
+    @Autowired(required = false)
+    public void setDeployUnitIndexMaxStaleness(String deployUnitIndexMaxStaleness) {
+        this.deployUnitIndexMaxStaleness = deployUnitIndexMaxStaleness;
+    }
+
+    public String getDeployUnitSortOrder() {
+        return deployUnitSortOrder;
+    }
+
+    @Autowired(required = false)
+    public void setDeployUnitSortOrder(String deployUnitSortOrder) {
+        this.deployUnitSortOrder = deployUnitSortOrder;
+    }
+
     //================================================================================
     // Services Methods
     // -------------------------------------------------------------------------------
@@ -101,22 +212,21 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
     @Override
     @Service(name = FIND_DEPLOY_UNITS, displayName = "Find Deploy Units", description = "Find Artifactory Artifact Versions.")
         @Params(params = {
-            @Param(fieldName = ARTIFACT_REPO, displayName = "Repository", description = "Artifactory Repository", required = true, dataType = DataType.SELECT),
+            @Param(fieldName = ARTIFACT_REPO, displayName = "Repository", description = "Artifactory Repositories", required = true, dataType = DataType.MULTI_SELECT),
             @Param(fieldName = ARTIFACT_GROUP, displayName = "Group Filter", description = "Artifact Group Filter", required = true, dataType = DataType.TEXT),
             @Param(fieldName = ARTIFACT_CLASS, displayName = "Class Filter", description = "Artifact Class Filter", required = false, dataType = DataType.TEXT),
             @Param(fieldName = ARTIFACT_NAME, displayName = "Artifact Filter", description = "Artifact Filter", required = false, dataType = DataType.TEXT),
-            @Param(fieldName = ARTIFACT_VERSION, displayName = "Version Filter", description = "Artifact Version Filter", required = false, dataType = DataType.TEXT)
+            @Param(fieldName = ARTIFACT_VERSION, displayName = "Version Filter", description = "Artifact Version Filter", required = false, dataType = DataType.TEXT),
+            @Param(fieldName = ARTIFACT_LATEST, displayName = "Latest Versions", description = "Number of newest versions to list per artifact", required = false, dataType = DataType.TEXT)
     })
     public ProviderInfoResult findDeployUnits(List<Field> properties, Long startIndex, Long resultCount) throws ProviderException {
         List<ProviderInfo> list = new ArrayList<ProviderInfo>();
 
-        Field field = Field.getFieldByName(properties, ARTIFACT_REPO);
-        if (field == null || StringUtils.isEmpty(field.getValue()))
+        List<String> repoIds = getRepositoryIds(properties);
+        if (repoIds.isEmpty())
             throw new ProviderException("Missing required property: " + ARTIFACT_REPO);
-        String repoId = field.getValue();
-        String repoName = field.getDisplayValue();
 
-        field = Field.getFieldByName(properties, ARTIFACT_GROUP);
+        Field field = Field.getFieldByName(properties, ARTIFACT_GROUP);
         if (field == null || StringUtils.isEmpty(field.getValue()))
             throw new ProviderException("Missing required property: " + ARTIFACT_GROUP);
         String groupFilter = field.getValue();
@@ -130,21 +240,31 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
         field = Field.getFieldByName(properties, ARTIFACT_VERSION);
         String versionFilter = field.getValue();
 
-        setArtifactoryClientConnectionDetails();
+        field = Field.getFieldByName(properties, ARTIFACT_LATEST);
+        int latestVersions = (field == null) ? 0 : Math.max(0, NumberUtils.toInt(StringUtils.trim(field.getValue()), 0));
+        boolean byVersion = SORT_ORDER_VERSION.equalsIgnoreCase(StringUtils.trim(getDeployUnitSortOrder()));
 
-        List<Artifact> artifacts = null;
+        long start = (startIndex == null || startIndex < 0) ? 0 : startIndex;
+        int resultLimit = NumberUtils.toInt(getDeployUnitResultLimit(), DEFAULT_DEPLOY_UNIT_RESULT_LIMIT);
+        long count = (resultCount == null || resultCount <= 0) ? resultLimit : resultCount;
+
+        long total = 0;
         try {
-            logger.debug("Retrieving Artifact Versions for Repository: {} Group: {} Artifact: {} Class: {} Version: {}",
-                    repoId, groupFilter, artifactFilter, classFilter, versionFilter);
-            artifacts = getArtifactoryClient().getArtifacts(repoId, groupFilter, artifactFilter, classFilter, versionFilter, Integer.valueOf(getDeployUnitResultLimit()));
-            for (Artifact a : artifacts) {
-                list.add(getProviderInfo(a, repoId));
+            logger.debug("Retrieving Artifact Versions for Repositories: {} Group: {} Artifact: {} Class: {} Version: {} Latest: {}",
+                    repoIds, groupFilter, artifactFilter, classFilter, versionFilter, latestVersions);
+            ArtifactSearchResult result = searchArtifacts(repoIds, groupFilter, artifactFilter, classFilter, versionFilter,
+                    latestVersions, byVersion, start, count, resultLimit);
+            for (Artifact a : result.getPage(start, count)) {
+                list.add(getProviderInfo(a, (a.getRepo() != null) ? a.getRepo() : repoIds.get(0)));
             }
+            // an incomplete window has more results on the server, report one more so the next page is requested
+            total = result.isComplete() ? result.size() : Math.min(result.size() + 1L, Math.max(resultLimit, result.size()));
         } catch (ArtifactoryClientException ex) {
             logger.error("Error retrieving Artifacts: {}", ex.getMessage());
+            throw new ProviderException(ex.getLocalizedMessage());
         }
 
-        return new ProviderInfoResult(0, list.size(), list.toArray(new ProviderInfo[list.size()]));
+        return new ProviderInfoResult(start, total, list.toArray(new ProviderInfo[list.size()]));
     }
 
     @Override
@@ -158,12 +278,10 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
         if (StringUtils.isEmpty(path))
             throw new ProviderException("Missing required field: " + ARTIFACT_PATH);
 
-        setArtifactoryClientConnectionDetails();
-
         Artifact artifact = null;
         try {
             logger.debug("Retrieving Artifact from path: {}" + path);
-            artifact = getArtifactoryClient().getArtifact(path);
+            artifact = getArtifact(path);
         } catch (ArtifactoryClientException ex) {
             logger.error("Error retrieving Artifact: {}", ex.getMessage());
         }
@@ -175,6 +293,38 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
         return getProviderInfo(artifact, artifact.getRepo());
     }
 
+    /**
+     * Get many deployment units at once, e.g. all units of a release package. Cached units are served
+     * locally and the rest are resolved with one request per repository and batch of paths instead of
+     * one request per unit.
+     *
+     * @param properties  the deployment unit fields, their ids are the artifact paths
+     * @return the deployment units found, in the order requested
+     * @throws ProviderException
+     */
+    public ProviderInfoResult getDeployUnits(List<Field> properties) throws ProviderException {
+        List<String> paths = new ArrayList<>();
+        for (Field property : properties) {
+            if (StringUtils.isNotEmpty(property.getId())) {
+                paths.add(property.getId());
+            }
+        }
+
+        List<ProviderInfo> list = new ArrayList<ProviderInfo>();
+        try {
+            logger.debug("Retrieving {} Artifacts by path", paths.size());
+            Map<String, Artifact> artifacts = getArtifacts(paths);
+            for (Artifact artifact : artifacts.values()) {
+                list.add(getProviderInfo(artifact, artifact.getRepo()));
+            }
+        } catch (ArtifactoryClientException ex) {
+            logger.error("Error retrieving Artifacts: {}", ex.getMessage());
+            throw new ProviderException(ex.getLocalizedMessage());
+        }
+
+        return new ProviderInfoResult(0, list.size(), list.toArray(new ProviderInfo[list.size()]));
+    }
+
     //================================================================================
     // Getter Methods
     // -------------------------------------------------------------------------------
@@ -183,7 +333,148 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
 
     //
 
-    private ProviderInfo getProviderInfo(Artifact artifact, String repoId) {
+    /**
+     * Get the selected repositories. A multi-select field may be passed once per value or with
+     * comma separated values.
+     *
+     * @param properties  the service properties
+     * @return the repository ids in the order selected, without duplicates
+     */
+    private static List<String> getRepositoryIds(List<Field> properties) {
+        Set<String> repoIds = new LinkedHashSet<>();
+        List<Field> fields = Field.getFieldsByName(properties, ARTIFACT_REPO);
+        if (fields != null) {
+            for (Field field : fields) {
+                for (String repoId : StringUtils.split(StringUtils.defaultString(field.getValue()), ',')) {
+                    if (StringUtils.isNotBlank(repoId)) {
+                        repoIds.add(repoId.trim());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(repoIds);
+    }
+
+    /**
+     * Search artifacts for a page of results. The search result window is kept for a short time so
+     * further pages are served without a new search. When a page lies beyond the window, engines with
+     * server side paging fetch only the missing results, others repeat the search with a larger window.
+     * Several repositories are searched in parallel and their merged results ordered by recency, such
+     * windows are always searched again from the start. No more than resultLimit artifacts are ever read
+     * per repository.
+     * <p>
+     * Results ordered by version are searched once up to resultLimit and sorted with one parsed version per
+     * artifact. With latestVersions only the newest versions of each artifact are kept while results are
+     * streamed, so all matches are read but no more than those versions are held.
+     */
+    private ArtifactSearchResult searchArtifacts(List<String> repoIds, String groupFilter, String artifactFilter, String classFilter,
+                                                 String versionFilter, int latestVersions, boolean byVersion,
+                                                 long start, long count, int resultLimit) throws ArtifactoryClientException {
+        ArtifactoryClient client = getArtifactoryClient();
+        ArtifactQuery query = new ArtifactQuery(repoIds.get(0), groupFilter, artifactFilter, classFilter, versionFilter);
+        query.setLatestVersions(latestVersions);
+        ArtifactSearchResult indexed = searchIndex(client, repoIds, query, resultLimit);
+        if (indexed != null) {
+            return byVersion ? sortByVersion(indexed) : indexed;
+        }
+
+        ArtifactSearchEngine engine = ArtifactoryClient.getSearchEngine(getDeployUnitSearchEngine());
+        ExpiringCache<List<Object>, ArtifactSearchResult> windows = getArtifactoryClientRegistry().getSearchWindowCache();
+        long ttl = TimeUnit.SECONDS.toMillis(NumberUtils.toLong(getDeployUnitSearchWindowTtl(), DEFAULT_SEARCH_WINDOW_TTL));
+        List<Object> key = Arrays.<Object>asList(client.getKey(), engine.getName(), repoIds, groupFilter, artifactFilter,
+                classFilter, versionFilter, latestVersions, byVersion);
+        long end = Math.min(resultLimit, start + count);
+
+        ArtifactSearchResult window = windows.getIfPresent(key, ttl);
+        if (window != null && window.covers(end)) {
+            logger.debug("Serving results {} to {} from search window {}", start, end, window);
+            return window;
+        }
+
+        boolean ordered = latestVersions > 0 || byVersion;
+        int fetch = ordered ? resultLimit : (int) Math.min(resultLimit, start + count * SEARCH_PREFETCH_PAGES);
+        if (repoIds.size() > 1) {
+            query.setLimit(fetch);
+            ArtifactSearchResult merged = client.searchArtifacts(engine, repoIds, query);
+            List<Artifact> artifacts = merged.getArtifacts();
+            if (latestVersions > 0) {
+                // the merge ordered by recency, select across repositories again
+                artifacts = LatestVersions.select(artifacts, latestVersions);
+            } else if (byVersion) {
+                artifacts = MavenVersion.sortNewestFirst(artifacts);
+            }
+            window = new ArtifactSearchResult(artifacts, merged.isComplete() || fetch >= resultLimit);
+            if (ttl > 0) {
+                windows.put(key, window);
+            }
+            return window;
+        }
+
+        List<Artifact> artifacts = new ArrayList<>();
+        if (window != null && engine.supportsOffset()) {
+            artifacts.addAll(window.getArtifacts());
+        }
+        query.setOffset(artifacts.size());
+        query.setLimit(fetch - artifacts.size());
+        List<Artifact> fetched = client.searchArtifacts(engine, query);
+        artifacts.addAll((byVersion && latestVersions == 0) ? MavenVersion.sortNewestFirst(fetched) : fetched);
+
+        window = new ArtifactSearchResult(artifacts, fetched.size() < query.getLimit() || fetch >= resultLimit);
+        if (ttl > 0) {
+            windows.put(key, window);
+        }
+        return window;
+    }
+
+    private static ArtifactSearchResult sortByVersion(ArtifactSearchResult result) {
+        return new ArtifactSearchResult(MavenVersion.sortNewestFirst(result.getArtifacts()), result.isComplete());
+    }
+
+    /**
+     * Search the local indexes of the repositories, if enabled. Indexes due for a refresh are synced in
+     * the background; if any index was never synced or is older than the staleness bound the search
+     * falls back to Artifactory.
+     *
+     * @return the results of all repositories, merged by recency if there are several, or null to search Artifactory
+     */
+    private ArtifactSearchResult searchIndex(ArtifactoryClient client, List<String> repoIds, ArtifactQuery query, int resultLimit) {
+        if (!Boolean.parseBoolean(StringUtils.trim(getDeployUnitIndexEnabled()))) {
+            return null;
+        }
+        long refreshInterval = TimeUnit.SECONDS.toMillis(NumberUtils.toLong(getDeployUnitIndexRefreshInterval(), DEFAULT_INDEX_REFRESH_INTERVAL));
+        long maxStaleness = TimeUnit.SECONDS.toMillis(NumberUtils.toLong(getDeployUnitIndexMaxStaleness(), DEFAULT_INDEX_MAX_STALENESS));
+
+        List<ArtifactSearchResult> results = new ArrayList<>(repoIds.size());
+        boolean usable = true;
+        for (String repoId : repoIds) {
+            ArtifactIndex index = getArtifactoryClientRegistry().getArtifactIndex(client.getKey(), repoId);
+            long age = index.getAgeMillis();
+            if (age >= refreshInterval) {
+                index.syncAsync(client);
+            }
+            if (age > maxStaleness) {
+                logger.debug("Artifact index of {} is not synced or too old, searching Artifactory", repoId);
+                usable = false;
+            } else if (usable) {
+                ArtifactSearchResult result = index.search(query, resultLimit);
+                usable = result != null;
+                results.add(result);
+            }
+        }
+        if (!usable) {
+            return null;
+        }
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        ArtifactSearchResult merged = ArtifactSearchResult.merge(results, resultLimit);
+        if (query.getLatestVersions() > 0) {
+            return new ArtifactSearchResult(LatestVersions.select(merged.getArtifacts(), query.getLatestVersions()), merged.isComplete());
+        }
+        return merged;
+    }
+
+    protected ProviderInfo getProviderInfo(Artifact artifact, String repoId) {
         ProviderInfo providerInfo = new ProviderInfo(artifact.getId(), artifact.getName(), "Artifact", artifact.getVersion(), artifact.getDownloadUri());
         providerInfo.setDescription(artifact.getName());
 
@@ -248,11 +539,6 @@ public class ArtifactoryDeploymentUnitProvider extends ArtifactoryBaseServicePro
         throw new ProviderException("Unsupported get values for field name: " + fieldName);
     }
 
-    @Override
-    public void setArtifactoryClientConnectionDetails() {
-        getArtifactoryClient().createConnection(getSession(), getArtifactoryUrl(), getServiceUser(), getServicePassword());
-    }
-
     @Override
     public ServiceInfo getServiceInfo(String service) throws ProviderException {
         return AnnotationUtil.getServiceInfo(this.getClass(), service);
@@ -0,0 +1,602 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory;
+
+import com.serena.rlc.provider.annotations.*;
+import com.serena.rlc.provider.artifactory.cache.ArtifactCache;
+import com.serena.rlc.provider.artifactory.cache.ContentStore;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClient;
+import com.serena.rlc.provider.artifactory.client.ArtifactoryConnectionPool;
+import com.serena.rlc.provider.artifactory.client.Checksum;
+import com.serena.rlc.provider.artifactory.client.UrlBuilder;
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
+import com.serena.rlc.provider.data.model.IActionInfo;
+import com.serena.rlc.provider.domain.*;
+import com.serena.rlc.provider.exceptions.ProviderException;
+import com.serena.rlc.provider.spi.IExecutionProvider;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Artifactory Execution Provider, downloads deployment units to a local staging directory and deploys
+ * files from it back to Artifactory.
+ * @author klee@serena.com
+ */
+public class ArtifactoryExecutionProvider extends ArtifactoryBaseServiceProvider implements IExecutionProvider {
+
+    final static Logger logger = LoggerFactory.getLogger(ArtifactoryExecutionProvider.class);
+
+    final static String DOWNLOAD_ARTIFACTS = "downloadArtifacts";
+    final static String STAGING_FOLDER = "stagingFolder";
+    final static String DEPLOY_ARTIFACT = "deployArtifact";
+    final static String SOURCE_FILE = "sourceFile";
+    final static String TARGET_PATH = "targetPath";
+
+    final static int DEFAULT_DOWNLOAD_PARALLELISM = 4;
+    final static long DEFAULT_DOWNLOAD_RANGE_SIZE_MB = 64;
+    final static long DEFAULT_CONTENT_STORE_MAX_SIZE_MB = 10240;
+    // leave pooled connections for searches and lookups running at the same time
+    final static int MAX_DOWNLOAD_PARALLELISM = ArtifactoryConnectionPool.DEFAULT_MAX_PER_ROUTE - 2;
+
+    //================================================================================
+    // Configuration Properties
+    // -------------------------------------------------------------------------------
+    // The configuration properties are marked with the @ConfigProperty annotaion
+    // and will be displayed in the provider administration page when creating a
+    // configuration of this plugin for use.
+    //================================================================================
+
+    @ConfigProperty(name = "execution_provider_name", displayName = "Execution Provider Name",
+            description = "provider name",
+            defaultValue = "Artifactory Execution Provider",
+            dataType = DataType.TEXT)
+    private String providerName;
+
+    @ConfigProperty(name = "execution_provider_description", displayName = "Execution Provider Description",
+            description = "provider description",
+            defaultValue = "",
+            dataType = DataType.TEXT)
+    private String providerDescription;
+
+    @ConfigProperty(name = "download_staging_directory", displayName = "Staging Directory",
+            description = "Local directory deployment units are downloaded to, defaults to rlc-artifactory-staging in the temporary directory.",
+            defaultValue = "",
+            dataType = DataType.TEXT)
+    private String downloadStagingDirectory;
+
+    @ConfigProperty(name = "download_parallelism", displayName = "Download Parallelism",
+            description = "Number of connections downloading deployment units at the same time, at most 8; connections not needed for one unit each fetch ranges of large units.",
+            defaultValue = "4",
+            dataType = DataType.TEXT)
+    private String downloadParallelism;
+
+    @ConfigProperty(name = "download_range_size", displayName = "Download Range Size",
+            description = "Deployment units larger than this many megabytes are downloaded as byte ranges in parallel and resumed after a failure, 0 to disable.",
+            defaultValue = "64",
+            dataType = DataType.TEXT)
+    private String downloadRangeSize;
+
+    @ConfigProperty(name = "content_store_directory", displayName = "Content Store Directory",
+            description = "Local directory keeping downloaded deployment units by SHA-256 checksum, so a unit deployed again is linked from there instead of downloaded; empty to disable.",
+            defaultValue = "",
+            dataType = DataType.TEXT)
+    private String contentStoreDirectory;
+
+    @ConfigProperty(name = "content_store_max_size", displayName = "Content Store Max Size",
+            description = "Maximum size of the content store in megabytes, the least recently used units are removed beyond it.",
+            defaultValue = "10240",
+            dataType = DataType.TEXT)
+    private String contentStoreMaxSize;
+
+    @Override
+    public String getProviderName() {
+        return this.providerName;
+    }
+
+    @Autowired(required = false)
+    public void setProviderName(String providerName) {
+        if (StringUtils.isNotEmpty(providerName)) {
+            providerName = providerName.trim();
+        }
+        this.providerName = providerName;
+    }
+
+    @Override
+    public String getProviderDescription() {
+        return this.providerDescription;
+    }
+
+    @Autowired(required = false)
+    public void setProviderDescription(String providerDescription) {
+        if (StringUtils.isNotEmpty(providerDescription)) {
+            providerDescription = providerDescription.trim();
+        }
+        this.providerDescription = providerDescription;
+    }
+
+    public String getDownloadStagingDirectory() {
+        return downloadStagingDirectory;
+    }
+
+    @Autowired(required = false)
+    public void setDownloadStagingDirectory(String downloadStagingDirectory) {
+        this.downloadStagingDirectory = downloadStagingDirectory;
+    }
+
+    public String getDownloadParallelism() {
+        return downloadParallelism;
+    }
+
+    @Autowired(required = false)
+    public void setDownloadParallelism(String downloadParallelism) {
+        this.downloadParallelism = downloadParallelism;
+    }
+
+    public String getContentStoreDirectory() {
+        return contentStoreDirectory;
+    }
+
+    @Autowired(required = false)
+    public void setContentStoreDirectory(String contentStoreDirectory) {
+        this.contentStoreDirectory = contentStoreDirectory;
+    }
+
+    public String getContentStoreMaxSize() {
+        return contentStoreMaxSize;
+    }
+
+    @Autowired(required = false)
+    public void setContentStoreMaxSize(String contentStoreMaxSize) {
+        this.contentStoreMaxSize = contentStoreMaxSize;
+    }
+
+    public String getDownloadRangeSize() {
+        return downloadRangeSize;
+    }
+
+    @Autowired(required = false)
+    public void setDownloadRangeSize(String downloadRangeSize) {
+        this.downloadRangeSize = downloadRangeSize;
+    }
+
+    //================================================================================
+    // Action Methods
+    // -------------------------------------------------------------------------------
+    //================================================================================
+
+    @Action(name = DOWNLOAD_ARTIFACTS, displayName = "Download Artifacts", title = "Download Artifacts",
+            description = "Download deployment units from Artifactory to the staging directory.")
+        @Params(params = {
+            @Param(fieldName = ARTIFACT_PATH, displayName = "Deployment Units", description = "Artifacts to download", required = true, deployUnit = true),
+            @Param(fieldName = STAGING_FOLDER, displayName = "Staging Folder", description = "Folder inside the staging directory, e.g. the release name", required = false, dataType = DataType.TEXT)
+    })
+    public ExecutionInfo downloadArtifacts(List<Field> properties, boolean validateOnly) throws ProviderException {
+        Set<String> paths = new LinkedHashSet<>();
+        List<Field> units = Field.getFieldsByName(properties, ARTIFACT_PATH);
+        if (units != null) {
+            for (Field unit : units) {
+                String path = StringUtils.isNotEmpty(unit.getId()) ? unit.getId() : unit.getValue();
+                if (StringUtils.isNotBlank(path)) {
+                    paths.add(path.trim());
+                }
+            }
+        }
+        if (paths.isEmpty())
+            throw new ProviderException("Missing required property: " + ARTIFACT_PATH);
+
+        Field field = Field.getFieldByName(properties, STAGING_FOLDER);
+        Path staging = getStagingPath((field == null) ? null : field.getValue());
+
+        Map<String, Artifact> artifacts;
+        try {
+            logger.debug("Resolving {} Artifacts to download", paths.size());
+            artifacts = getArtifacts(paths);
+        } catch (ArtifactoryClientException ex) {
+            logger.error("Error retrieving Artifacts: {}", ex.getMessage());
+            throw new ProviderException(ex.getLocalizedMessage());
+        }
+        if (artifacts.size() < paths.size()) {
+            Set<String> missing = new LinkedHashSet<>(paths);
+            missing.removeAll(artifacts.keySet());
+            return failed("Artifacts not found: " + StringUtils.join(missing, ", "));
+        }
+
+        long totalBytes = 0;
+        for (Artifact artifact : artifacts.values()) {
+            totalBytes += Math.max(0L, artifact.getSizeBytes());
+        }
+        try {
+            Files.createDirectories(staging);
+            long usable = Files.getFileStore(staging).getUsableSpace();
+            if (usable < totalBytes) {
+                return failed("Not enough space in " + staging + ": " + FileUtils.byteCountToDisplaySize(totalBytes) +
+                        " needed, " + FileUtils.byteCountToDisplaySize(usable) + " available");
+            }
+        } catch (IOException ex) {
+            return failed("Staging directory " + staging + " is not usable: " + ex.getMessage());
+        }
+
+        if (validateOnly) {
+            return completed(artifacts.size() + " Artifacts (" + FileUtils.byteCountToDisplaySize(totalBytes) +
+                    ") can be downloaded to " + staging);
+        }
+        return download(new ArrayList<>(artifacts.values()), staging);
+    }
+
+    @Action(name = DEPLOY_ARTIFACT, displayName = "Deploy Artifact", title = "Deploy Artifact",
+            description = "Deploy a file from the staging directory to an Artifactory repository, by checksum if Artifactory already has its content.")
+        @Params(params = {
+            @Param(fieldName = SOURCE_FILE, displayName = "Source File", description = "File inside the staging directory, e.g. release-1/bundle.tar.gz", required = true, dataType = DataType.TEXT),
+            @Param(fieldName = ARTIFACT_REPO, displayName = "Repository", description = "Artifactory Repository to deploy to", required = true, dataType = DataType.SELECT),
+            @Param(fieldName = TARGET_PATH, displayName = "Target Path", description = "Path in the repository, e.g. org/acme/bundle/1.0/bundle-1.0.tar.gz", required = true, dataType = DataType.TEXT)
+    })
+    public ExecutionInfo deployArtifact(List<Field> properties, boolean validateOnly) throws ProviderException {
+        Field sourceField = Field.getFieldByName(properties, SOURCE_FILE);
+        Field repoField = Field.getFieldByName(properties, ARTIFACT_REPO);
+        Field pathField = Field.getFieldByName(properties, TARGET_PATH);
+        if (sourceField == null || StringUtils.isBlank(sourceField.getValue()))
+            throw new ProviderException("Missing required property: " + SOURCE_FILE);
+        String repoId = (repoField == null) ? null : StringUtils.isNotBlank(repoField.getId()) ? repoField.getId() : repoField.getValue();
+        if (StringUtils.isBlank(repoId))
+            throw new ProviderException("Missing required property: " + ARTIFACT_REPO);
+        if (pathField == null || StringUtils.isBlank(pathField.getValue()))
+            throw new ProviderException("Missing required property: " + TARGET_PATH);
+
+        Path file = getStagingPath(sourceField.getValue());
+        String path = pathField.getValue().trim();
+        path = path.startsWith("/") ? path : "/" + path;
+        if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+            return failed("Source file " + file + " does not exist or can not be read");
+        }
+
+        try {
+            long size = Files.size(file);
+            if (validateOnly) {
+                return completed(file + " (" + FileUtils.byteCountToDisplaySize(size) + ") can be deployed to " + repoId + path);
+            }
+
+            ArtifactoryClient client = getArtifactoryClient();
+            long started = System.currentTimeMillis();
+            Checksum[] checksums = Checksum.of(file, Checksum.SHA1, Checksum.SHA256, Checksum.MD5);
+            Artifact artifact = client.deployByChecksum(repoId, path, checksums);
+            if (artifact != null) {
+                invalidateArtifact(client, repoId, path);
+                return completed("Deployed " + file + " to " + repoId + path + " by checksum, Artifactory already had its content (" +
+                        FileUtils.byteCountToDisplaySize(size) + " not sent) in " + (System.currentTimeMillis() - started) + " ms");
+            }
+            client.upload(repoId, path, file, checksums);
+            invalidateArtifact(client, repoId, path);
+            return completed("Uploaded " + file + " (" + FileUtils.byteCountToDisplaySize(size) + ") to " + repoId + path +
+                    " in " + (System.currentTimeMillis() - started) + " ms");
+        } catch (IOException ex) {
+            return failed("Unable to read " + file + ": " + ex.getMessage());
+        } catch (ArtifactoryClientException ex) {
+            logger.error("Error deploying {} to {}{}: {}", file, repoId, path, ex.getMessage());
+            return failed("Failed to deploy " + file + " to " + repoId + path + ": " + ex.getMessage());
+        }
+    }
+
+    //================================================================================
+    // IExecutionProvider Methods
+    //================================================================================
+
+    @Override
+    public ExecutionInfo execute(String action, String taskTitle, String taskDescription, List<Field> properties) throws ProviderException {
+        return executeAction(action, properties, false);
+    }
+
+    @Override
+    public ExecutionInfo retryExecution(ExecutionInfo executionInfo, String action, String taskTitle, String taskDescription,
+                                        List<Field> properties) throws ProviderException {
+        // completed downloads are replaced and deploys overwrite, a retry runs the action again
+        return executeAction(action, properties, false);
+    }
+
+    @Override
+    public ExecutionInfo cancelExecution(ExecutionInfo executionInfo, String action, String taskTitle, String taskDescription,
+                                         List<Field> properties) throws ProviderException {
+        // downloads run within execute, there is nothing left to cancel once it returned
+        ExecutionInfo info = new ExecutionInfo("Execution is not running", false);
+        info.setExecutionId((executionInfo == null) ? null : executionInfo.getExecutionId());
+        info.setStatus(ExecutionStatus.CANCELED);
+        return info;
+    }
+
+    @Override
+    public ExecutionInfo validate(String action, String taskTitle, String taskDescription, List<Field> properties) throws ProviderException {
+        return executeAction(action, properties, true);
+    }
+
+    @Override
+    public ActionInfo getActionInfo(String action) throws ProviderException {
+        return AnnotationUtil.getActionInfo(this.getClass(), action);
+    }
+
+    @Override
+    public ActionInfoResult getActions() throws ProviderException {
+        List<ActionInfo> actions = AnnotationUtil.getActions(this.getClass());
+
+        return new ActionInfoResult(0, actions.size(), actions.toArray(new IActionInfo[actions.size()]));
+    }
+
+    private ExecutionInfo executeAction(String action, List<Field> properties, boolean validateOnly) throws ProviderException {
+        if (DOWNLOAD_ARTIFACTS.equalsIgnoreCase(action)) {
+            return downloadArtifacts(properties, validateOnly);
+        } else if (DEPLOY_ARTIFACT.equalsIgnoreCase(action)) {
+            return deployArtifact(properties, validateOnly);
+        }
+
+        throw new ProviderException("Unsupported execution action: " + action);
+    }
+
+    //
+
+    /**
+     * Get a folder or file inside the configured staging directory.
+     *
+     * @param folder  the folder or file relative to the staging directory, may be empty
+     * @return the absolute staging path
+     * @throws ProviderException if the path lies outside the staging directory
+     */
+    private Path getStagingPath(String folder) throws ProviderException {
+        Path root = StringUtils.isBlank(getDownloadStagingDirectory()) ?
+                Paths.get(System.getProperty("java.io.tmpdir"), "rlc-artifactory-staging") :
+                Paths.get(getDownloadStagingDirectory().trim());
+        root = root.toAbsolutePath().normalize();
+        if (StringUtils.isBlank(folder)) {
+            return root;
+        }
+        Path staging = root.resolve(folder.trim()).normalize();
+        if (!staging.startsWith(root)) {
+            throw new ProviderException("Path must be inside the staging directory: " + folder);
+        }
+        return staging;
+    }
+
+    /**
+     * Drop the cached storage info of a path that was just deployed to, so the new size and checksums are
+     * read from Artifactory. The deploy response has no properties, so it is not cached in its place.
+     */
+    private void invalidateArtifact(ArtifactoryClient client, String repoId, String path) {
+        ArtifactCache cache = getArtifactoryClientRegistry().getArtifactCache();
+        String storagePath = "/" + repoId + path;
+        cache.invalidate(client.getKey(), storagePath);
+        // artifacts looked up by storage uri are cached under the percent-encoded path
+        cache.invalidate(client.getKey(), UrlBuilder.build("", storagePath, null));
+    }
+
+    /**
+     * Get the content store, if one is configured.
+     *
+     * @return the shared store, or null if it is disabled or can not be opened
+     */
+    private ContentStore getContentStore() {
+        if (StringUtils.isBlank(getContentStoreDirectory())) {
+            return null;
+        }
+        long maxBytes = Math.max(0L, NumberUtils.toLong(StringUtils.trim(getContentStoreMaxSize()), DEFAULT_CONTENT_STORE_MAX_SIZE_MB)) * 1024 * 1024;
+        try {
+            return getArtifactoryClientRegistry().getContentStore(Paths.get(getContentStoreDirectory().trim()), maxBytes);
+        } catch (IOException ex) {
+            logger.warn("Content store {} is not usable, downloading without it: {}", getContentStoreDirectory(), ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Look up the SHA-256 checksums the content store is keyed by for the artifacts that lack them, with
+     * one request per repository and batch of paths. Servers that reject the sha256 field leave the
+     * artifacts unchanged, their storage info is then read one by one while downloading.
+     */
+    private void addSha256(ArtifactoryClient client, List<Artifact> artifacts) {
+        Map<String, Integer> missing = new LinkedHashMap<>();
+        for (int i = 0; i < artifacts.size(); i++) {
+            Artifact artifact = artifacts.get(i);
+            if (!ContentStore.isKey(artifact.getSha256())) {
+                missing.put(client.toStoragePath("/" + artifact.getRepo() + artifact.getPath()), i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<String, Artifact> found;
+        try {
+            found = client.getArtifactsWithSha256(missing.keySet());
+        } catch (ArtifactoryClientException ex) {
+            logger.debug("Unable to look up SHA-256 checksums of {} Artifacts: {}", missing.size(), ex.getMessage());
+            return;
+        }
+        ArtifactCache cache = getArtifactoryClientRegistry().getArtifactCache();
+        for (Map.Entry<String, Artifact> entry : found.entrySet()) {
+            Integer i = missing.get(entry.getKey());
+            if (i != null) {
+                artifacts.set(i, entry.getValue());
+                cache.put(client.getKey(), entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Download artifacts in parallel, each to staging/repository/path. The connections not needed for
+     * one artifact each are shared out to fetch the ranges of large artifacts.
+     */
+    private ExecutionInfo download(List<Artifact> artifacts, final Path staging) {
+        final ArtifactoryClient client = getArtifactoryClient();
+        int connections = Math.max(1, Math.min(MAX_DOWNLOAD_PARALLELISM,
+                NumberUtils.toInt(StringUtils.trim(getDownloadParallelism()), DEFAULT_DOWNLOAD_PARALLELISM)));
+        int parallelism = Math.min(connections, artifacts.size());
+        final int rangeParallelism = Math.max(1, connections / parallelism);
+        final long rangeSize = Math.max(0L, NumberUtils.toLong(StringUtils.trim(getDownloadRangeSize()), DEFAULT_DOWNLOAD_RANGE_SIZE_MB)) * 1024 * 1024;
+        final ContentStore store = getContentStore();
+        if (store != null) {
+            addSha256(client, artifacts);
+        }
+        final AtomicInteger stored = new AtomicInteger();
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "artifactory-download-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        long started = System.currentTimeMillis();
+        List<Future<Long>> downloads = new ArrayList<>(artifacts.size());
+        try {
+            for (final Artifact artifact : artifacts) {
+                downloads.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        Path target = staging.resolve(artifact.getRepo() + artifact.getPath()).normalize();
+                        if (!target.startsWith(staging)) {
+                            throw new ArtifactoryClientException("Artifact path outside of staging directory: " + artifact.getPath());
+                        }
+                        Files.createDirectories(target.getParent());
+                        if (store == null) {
+                            return client.download(artifact, target, rangeSize, rangeParallelism);
+                        }
+
+                        Artifact content = artifact;
+                        if (!ContentStore.isKey(content.getSha256())) {
+                            // search results may lack the SHA-256, storage info has it
+                            content = client.getArtifact("/" + artifact.getRepo() + artifact.getPath());
+                        }
+                        if (!ContentStore.isKey(content.getSha256())) {
+                            return client.download(content, target, rangeSize, rangeParallelism);
+                        }
+                        if (store.copyTo(content.getSha256(), content.getSizeBytes(), target)) {
+                            logger.debug("Artifact {} served from the content store", artifact.getPath());
+                            stored.incrementAndGet();
+                            return Files.size(target);
+                        }
+                        // the download is verified against the SHA-256 before it is stored
+                        long bytes = client.download(content, target, rangeSize, rangeParallelism);
+                        try {
+                            store.put(content.getSha256(), target);
+                        } catch (IOException ex) {
+                            logger.warn("Unable to store Artifact {} in the content store: {}", artifact.getPath(), ex.getMessage());
+                        }
+                        return bytes;
+                    }
+                }));
+            }
+
+            long totalBytes = 0;
+            List<String> failures = new ArrayList<>();
+            for (int i = 0; i < downloads.size(); i++) {
+                Artifact artifact = artifacts.get(i);
+                try {
+                    totalBytes += downloads.get(i).get();
+                } catch (ExecutionException ex) {
+                    logger.error("Error downloading Artifact {}: {}", artifact.getPath(), ex.getCause().getMessage());
+                    failures.add(artifact.getRepo() + artifact.getPath() + ": " + ex.getCause().getMessage());
+                }
+            }
+
+            long elapsed = System.currentTimeMillis() - started;
+            if (!failures.isEmpty()) {
+                return failed("Failed to download " + failures.size() + " of " + artifacts.size() + " Artifacts: " +
+                        StringUtils.join(failures, "; "));
+            }
+            return completed("Downloaded " + artifacts.size() + " Artifacts (" + FileUtils.byteCountToDisplaySize(totalBytes) +
+                    ") to " + staging + " in " + elapsed + " ms" + ((stored.get() > 0) ? ", " + stored.get() + " from the content store" : ""));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return failed("Interrupted while downloading Artifacts to " + staging);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public FieldInfo getFieldValues(String fieldName, List<Field> properties) throws ProviderException {
+        if (fieldName.equalsIgnoreCase(ARTIFACT_REPO)) {
+            return getRepositoryFieldValues(fieldName, properties);
+        }
+
+        throw new ProviderException("Unsupported get values for field name: " + fieldName);
+    }
+
+    @Override
+    public ServiceInfo getServiceInfo(String service) throws ProviderException {
+        return AnnotationUtil.getServiceInfo(this.getClass(), service);
+    }
+
+    @Override
+    public ServiceInfoResult getServices() throws ProviderException {
+        List<ServiceInfo> services = AnnotationUtil.getServices(this.getClass());
+
+        return new ServiceInfoResult(0, services.size(), services.toArray(new ServiceInfo[services.size()]));
+    }
+
+    @Override
+    public FieldValuesGetterFunction findFieldValuesGetterFunction(String fieldName) throws ProviderException {
+        return AnnotationUtil.findFieldValuesGetterFunction(this.getClass(), fieldName);
+    }
+
+    @Override
+    public FieldValuesGetterFunctionResult findFieldValuesGetterFunctions() throws ProviderException {
+        List<FieldValuesGetterFunction> getters = AnnotationUtil.findFieldValuesGetterFunctions(this.getClass());
+
+        return new FieldValuesGetterFunctionResult(0, getters.size(), getters.toArray(new FieldValuesGetterFunction[getters.size()]));
+    }
+
+    @Override
+    public ConfigurationPropertyResult getConfigurationProperties() throws ProviderException {
+        List<ConfigurationProperty> configProps = AnnotationUtil.getConfigurationProperties(this.getClass(), this);
+
+        return new ConfigurationPropertyResult(0, configProps.size(), configProps.toArray(new ConfigurationProperty[configProps.size()]));
+    }
+
+    private static ExecutionInfo completed(String message) {
+        logger.debug(message);
+        ExecutionInfo info = new ExecutionInfo(message, true);
+        info.setExecutionId(UUID.randomUUID().toString());
+        info.setStatus(ExecutionStatus.COMPLETED);
+        return info;
+    }
+
+    private static ExecutionInfo failed(String message) {
+        logger.error(message);
+        ExecutionInfo info = new ExecutionInfo(message, false);
+        info.setExecutionId(UUID.randomUUID().toString());
+        info.setStatus(ExecutionStatus.FAILED);
+        return info;
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.cache;
+
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClientKey;
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of artifact storage info keyed by client configuration and storage path.
+ * Entries are handed back with their validation time so callers can revalidate them: snapshot
+ * artifacts change often, release artifacts are marked immutable and only need an occasional
+ * check in case they were redeployed.
+ * @author klee@serena.com
+ */
+public class ArtifactCache {
+
+    private final Map<Key, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxEntries  the maximum number of artifacts, least recently used are evicted first
+     */
+    public ArtifactCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<Key, Entry>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a cached artifact.
+     *
+     * @param clientKey  the client configuration
+     * @param path  the storage path of the artifact
+     * @return the cache entry or null if the artifact is not cached
+     */
+    public Entry get(ArtifactoryClientKey clientKey, String path) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(new Key(clientKey, path));
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Cache an artifact, release artifacts are marked immutable.
+     *
+     * @param clientKey  the client configuration
+     * @param path  the storage path of the artifact
+     * @param artifact  the artifact
+     */
+    public void put(ArtifactoryClientKey clientKey, String path, Artifact artifact) {
+        if (artifact == null) {
+            return;
+        }
+        Entry entry = new Entry(artifact, !isSnapshot(path, artifact.getRepo()), System.currentTimeMillis());
+        synchronized (entries) {
+            entries.put(new Key(clientKey, path), entry);
+        }
+    }
+
+    /**
+     * Record that a cached artifact was confirmed unchanged by the server.
+     *
+     * @param clientKey  the client configuration
+     * @param path  the storage path of the artifact
+     * @param entry  the entry that was revalidated
+     */
+    public void revalidated(ArtifactoryClientKey clientKey, String path, Entry entry) {
+        revalidations.incrementAndGet();
+        synchronized (entries) {
+            entries.put(new Key(clientKey, path), new Entry(entry.artifact, entry.immutable, System.currentTimeMillis()));
+        }
+    }
+
+    public void invalidate(ArtifactoryClientKey clientKey, String path) {
+        synchronized (entries) {
+            entries.remove(new Key(clientKey, path));
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public CacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), revalidations.get(), size);
+    }
+
+    /**
+     * Check whether an artifact belongs to a snapshot version or repository.
+     *
+     * @param path  the storage path of the artifact
+     * @param repo  the repository key, may be null
+     * @return true if the artifact may change over time
+     */
+    public static boolean isSnapshot(String path, String repo) {
+        return (path != null && path.contains("-SNAPSHOT")) ||
+                (repo != null && repo.toLowerCase().contains("snapshot"));
+    }
+
+    /**
+     * A cached artifact together with the time it was last fetched or revalidated.
+     */
+    public static final class Entry {
+        private final Artifact artifact;
+        private final boolean immutable;
+        private final long validatedAt;
+
+        Entry(Artifact artifact, boolean immutable, long validatedAt) {
+            this.artifact = artifact;
+            this.immutable = immutable;
+            this.validatedAt = validatedAt;
+        }
+
+        public Artifact getArtifact() {
+            return artifact;
+        }
+
+        public boolean isImmutable() {
+            return immutable;
+        }
+
+        public long getValidatedAt() {
+            return validatedAt;
+        }
+    }
+
+    private static final class Key {
+        private final ArtifactoryClientKey clientKey;
+        private final String path;
+
+        Key(ArtifactoryClientKey clientKey, String path) {
+            this.clientKey = clientKey;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return clientKey.equals(that.clientKey) && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * clientKey.hashCode() + path.hashCode();
+        }
+    }
+
+}
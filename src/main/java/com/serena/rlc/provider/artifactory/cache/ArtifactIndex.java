@@ -0,0 +1,407 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.cache;
+
+import com.serena.rlc.provider.artifactory.client.ArtifactoryClient;
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import com.serena.rlc.provider.artifactory.domain.ArtifactQuery;
+import com.serena.rlc.provider.artifactory.domain.ArtifactSearchResult;
+import com.serena.rlc.provider.artifactory.domain.LatestVersions;
+import com.serena.rlc.provider.artifactory.domain.Timestamps;
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of the Maven artifacts of one repository, answering GAVC searches locally.
+ * The index is seeded with every file of the repository and then kept up to date with AQL queries
+ * for files modified since the last sync; a full sync every {@link #FULL_SYNC_INTERVAL_MILLIS} drops
+ * deleted files. Searches read an immutable snapshot that is replaced after each sync, so they never
+ * wait for a sync. Group, artifact, version and classifier filters may use * and ? wildcards.
+ * @author klee@serena.com
+ */
+public class ArtifactIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactIndex.class);
+
+    public static final int SYNC_PAGE_SIZE = 10000;
+    public static final long FULL_SYNC_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // files are requested from a little before the newest known modification, in case of clock skew between nodes
+    public static final long SYNC_OVERLAP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Executor syncExecutor = new ThreadPoolExecutor(1, 2, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(64), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "artifactory-index-sync");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final String repoId;
+    private final AtomicBoolean syncing = new AtomicBoolean(false);
+    private volatile Snapshot snapshot = null;
+    private volatile long syncedAt = 0L;
+    private volatile long fullSyncedAt = 0L;
+
+    public ArtifactIndex(String repoId) {
+        this.repoId = repoId;
+    }
+
+    public String getRepoId() {
+        return repoId;
+    }
+
+    /**
+     * Get the time since the last successful sync.
+     *
+     * @return the age in milliseconds, {@link Long#MAX_VALUE} if the index was never synced
+     */
+    public long getAgeMillis() {
+        return (snapshot == null) ? Long.MAX_VALUE : System.currentTimeMillis() - syncedAt;
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return (current == null) ? 0 : current.byPath.size();
+    }
+
+    /**
+     * Search the index like a GAVC search of this repository.
+     *
+     * @param query  the group, artifact, version and classifier filters
+     * @param limit  the maximum number of artifacts
+     * @return the artifacts in path order, or newest version first if only the latest versions are wanted,
+     * or null if the index was never synced
+     */
+    public ArtifactSearchResult search(ArtifactQuery query, int limit) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+
+        String versionPattern = trimToGlob(query.getVersionId());
+        String classifierPattern = trimToGlob(query.getClassId());
+        LatestVersions latest = (query.getLatestVersions() > 0) ? new LatestVersions(query.getLatestVersions()) : null;
+        List<Artifact> artifacts = new ArrayList<>();
+        for (NavigableMap<String, Entry[]> modules : select(current.groups, trimToGlob(query.getGroupId())).values()) {
+            for (Entry[] entries : select(modules, trimToGlob(query.getArtifactId())).values()) {
+                for (Entry entry : entries) {
+                    if (entry.matches(versionPattern, classifierPattern)) {
+                        if (latest != null) {
+                            latest.add(entry.artifact);
+                            continue;
+                        }
+                        if (artifacts.size() >= limit) {
+                            return new ArtifactSearchResult(artifacts, false);
+                        }
+                        artifacts.add(entry.artifact);
+                    }
+                }
+            }
+        }
+        if (latest != null) {
+            artifacts = latest.getArtifacts();
+            if (artifacts.size() > limit) {
+                return new ArtifactSearchResult(new ArrayList<>(artifacts.subList(0, limit)), false);
+            }
+        }
+        return new ArtifactSearchResult(artifacts, true);
+    }
+
+    /**
+     * Sync the index in the background unless a sync is already running.
+     *
+     * @param client  the client for the Artifactory server of the repository
+     */
+    public void syncAsync(final ArtifactoryClient client) {
+        if (!syncing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            syncExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        doSync(client);
+                    } catch (ArtifactoryClientException | RuntimeException ex) {
+                        logger.warn("Error syncing artifact index of {}: {}", repoId, ex.getMessage());
+                    } finally {
+                        syncing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            syncing.set(false);
+        }
+    }
+
+    /**
+     * Sync the index now, fully if it was never synced or the last full sync is too old and
+     * incrementally otherwise.
+     *
+     * @param client  the client for the Artifactory server of the repository
+     * @throws ArtifactoryClientException
+     */
+    public void sync(ArtifactoryClient client) throws ArtifactoryClientException {
+        doSync(client);
+    }
+
+    private synchronized void doSync(ArtifactoryClient client) throws ArtifactoryClientException {
+        long started = System.currentTimeMillis();
+        Snapshot current = snapshot;
+        boolean full = current == null || started - fullSyncedAt >= FULL_SYNC_INTERVAL_MILLIS;
+        long modifiedAfter = (full || current.maxModified == Timestamps.NONE) ? Timestamps.NONE : current.maxModified - SYNC_OVERLAP_MILLIS;
+
+        Map<String, Entry> byPath = full ? new HashMap<String, Entry>() : new HashMap<>(current.byPath);
+        long maxModified = full ? Timestamps.NONE : current.maxModified;
+        int changed = 0;
+        for (long offset = 0; ; offset += SYNC_PAGE_SIZE) {
+            List<Artifact> page = client.getArtifactsModifiedAfter(repoId, modifiedAfter, offset, SYNC_PAGE_SIZE);
+            for (Artifact artifact : page) {
+                maxModified = Math.max(maxModified, artifact.getLastModifiedMillis());
+                Entry entry = Entry.of(artifact);
+                if (entry != null) {
+                    Entry previous = byPath.put(artifact.getPath(), entry);
+                    if (previous == null || previous.artifact.getLastModifiedMillis() != artifact.getLastModifiedMillis()) {
+                        changed++;
+                    }
+                }
+            }
+            if (page.size() < SYNC_PAGE_SIZE) {
+                break;
+            }
+        }
+
+        if (full || changed > 0) {
+            snapshot = new Snapshot(byPath, maxModified);
+        }
+        syncedAt = started;
+        if (full) {
+            fullSyncedAt = started;
+        }
+        logger.debug("{} sync of artifact index of {} took {} ms, {} changed, {} indexed", full ? "Full" : "Incremental",
+                repoId, System.currentTimeMillis() - started, changed, byPath.size());
+    }
+
+    /**
+     * Select the entries of a map whose keys match a pattern, using the literal prefix of the pattern
+     * to narrow down the keys to check.
+     */
+    private static <V> NavigableMap<String, V> select(NavigableMap<String, V> map, String pattern) {
+        if (pattern == null) {
+            return map;
+        }
+        int wildcard = StringUtils.indexOfAny(pattern, '*', '?');
+        if (wildcard < 0) {
+            V value = map.get(pattern);
+            NavigableMap<String, V> selected = new TreeMap<>();
+            if (value != null) {
+                selected.put(pattern, value);
+            }
+            return selected;
+        }
+        String prefix = pattern.substring(0, wildcard);
+        NavigableMap<String, V> candidates = prefix.isEmpty() ? map : map.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+        if ("*".equals(pattern.substring(wildcard))) {
+            return candidates;
+        }
+        NavigableMap<String, V> selected = new TreeMap<>();
+        for (Map.Entry<String, V> candidate : candidates.entrySet()) {
+            if (matches(pattern, candidate.getKey())) {
+                selected.put(candidate.getKey(), candidate.getValue());
+            }
+        }
+        return selected;
+    }
+
+    private static String trimToGlob(String filter) {
+        String trimmed = StringUtils.trimToNull(filter);
+        return ("*".equals(trimmed)) ? null : trimmed;
+    }
+
+    /**
+     * Match a value against a pattern with * for any characters and ? for a single character.
+     */
+    static boolean matches(String pattern, String value) {
+        int p = 0, v = 0, star = -1, mark = 0;
+        while (v < value.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == value.charAt(v))) {
+                p++;
+                v++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = v;
+            } else if (star >= 0) {
+                p = star + 1;
+                v = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * An indexed artifact with its Maven coordinates, parsed from its path.
+     */
+    static final class Entry {
+        private static final Pattern SNAPSHOT_VERSION = Pattern.compile("SNAPSHOT|\\d{8}\\.\\d{6}-\\d+");
+
+        private static final Comparator<Entry> BY_PATH = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry e1, Entry e2) {
+                return e1.artifact.getPath().compareTo(e2.artifact.getPath());
+            }
+        };
+
+        final String group;
+        final String module;
+        final String version;
+        final String classifier;
+        final Artifact artifact;
+
+        private Entry(String group, String module, String version, String classifier, Artifact artifact) {
+            this.group = group;
+            this.module = module;
+            this.version = version;
+            this.classifier = classifier;
+            this.artifact = artifact;
+        }
+
+        /**
+         * Parse the coordinates of an artifact in Maven layout, e.g. /org/acme/app/1.0/app-1.0-sources.jar
+         *
+         * @param artifact  the artifact
+         * @return the entry, or null if the path is not in Maven layout, e.g. maven-metadata.xml
+         */
+        static Entry of(Artifact artifact) {
+            String path = artifact.getPath();
+            if (path == null) {
+                return null;
+            }
+            int fileStart = path.lastIndexOf('/');
+            int versionStart = (fileStart > 0) ? path.lastIndexOf('/', fileStart - 1) : -1;
+            int moduleStart = (versionStart > 0) ? path.lastIndexOf('/', versionStart - 1) : -1;
+            if (moduleStart <= 0) {
+                return null;
+            }
+            String module = path.substring(moduleStart + 1, versionStart);
+            String version = path.substring(versionStart + 1, fileStart);
+            String file = path.substring(fileStart + 1);
+
+            // snapshot files carry SNAPSHOT or a timestamp, e.g. app-1.0-20160321.101530-1.jar in 1.0-SNAPSHOT
+            boolean snapshot = version.endsWith("-SNAPSHOT");
+            String prefix = module + "-" + (snapshot ? version.substring(0, version.length() - "SNAPSHOT".length()) : version);
+            if (!file.startsWith(prefix)) {
+                return null;
+            }
+            int idx = prefix.length();
+            if (snapshot) {
+                Matcher matcher = SNAPSHOT_VERSION.matcher(file).region(idx, file.length());
+                if (!matcher.lookingAt()) {
+                    return null;
+                }
+                idx = matcher.end();
+            }
+            String classifier = null;
+            if (idx < file.length() && file.charAt(idx) == '-') {
+                int end = file.indexOf('.', idx);
+                classifier = file.substring(idx + 1, (end < 0) ? file.length() : end);
+            } else if (idx < file.length() && file.charAt(idx) != '.') {
+                return null;
+            }
+            return new Entry(path.substring(1, moduleStart).replace('/', '.'), module, version, classifier, artifact);
+        }
+
+        boolean matches(String versionPattern, String classifierPattern) {
+            if (versionPattern != null && !ArtifactIndex.matches(versionPattern, version)) {
+                return false;
+            }
+            return classifierPattern == null || (classifier != null && ArtifactIndex.matches(classifierPattern, classifier));
+        }
+    }
+
+    /**
+     * Immutable view of the index, artifacts by group and artifact id in path order.
+     */
+    private static final class Snapshot {
+        final Map<String, Entry> byPath;
+        final NavigableMap<String, NavigableMap<String, Entry[]>> groups;
+        final long maxModified;
+
+        Snapshot(Map<String, Entry> byPath, long maxModified) {
+            this.byPath = Collections.unmodifiableMap(byPath);
+            this.maxModified = maxModified;
+
+            Map<String, String> names = new HashMap<>();
+            Map<String, Map<String, List<Entry>>> grouped = new HashMap<>();
+            for (Entry entry : byPath.values()) {
+                String group = intern(names, entry.group);
+                Map<String, List<Entry>> modules = grouped.get(group);
+                if (modules == null) {
+                    modules = new HashMap<>();
+                    grouped.put(group, modules);
+                }
+                String module = intern(names, entry.module);
+                List<Entry> entries = modules.get(module);
+                if (entries == null) {
+                    entries = new ArrayList<>();
+                    modules.put(module, entries);
+                }
+                entries.add(entry);
+            }
+
+            this.groups = new TreeMap<>();
+            for (Map.Entry<String, Map<String, List<Entry>>> group : grouped.entrySet()) {
+                NavigableMap<String, Entry[]> modules = new TreeMap<>();
+                for (Map.Entry<String, List<Entry>> module : group.getValue().entrySet()) {
+                    Entry[] entries = module.getValue().toArray(new Entry[module.getValue().size()]);
+                    Arrays.sort(entries, Entry.BY_PATH);
+                    modules.put(module.getKey(), entries);
+                }
+                this.groups.put(group.getKey(), Collections.unmodifiableNavigableMap(modules));
+            }
+        }
+
+        private static String intern(Map<String, String> names, String name) {
+            String existing = names.get(name);
+            if (existing == null) {
+                names.put(name, name);
+                return name;
+            }
+            return existing;
+        }
+    }
+
+}
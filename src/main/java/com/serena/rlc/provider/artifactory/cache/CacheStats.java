@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.cache;
+
+import java.io.Serializable;
+
+/**
+ * Point in time statistics of a cache.
+ * @author klee@serena.com
+ */
+public class CacheStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long revalidations;
+    private final long size;
+
+    public CacheStats(long hits, long misses, long evictions, long revalidations, long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.revalidations = revalidations;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getRevalidations() {
+        return revalidations;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return (requests == 0) ? 0.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" + "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions +
+                ", revalidations=" + revalidations + ", size=" + size + '}';
+    }
+
+}
@@ -0,0 +1,369 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.cache;
+
+import com.serena.rlc.provider.artifactory.client.Checksum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressable store of downloaded artifacts on local disk, keyed by the SHA-256 checksum
+ * Artifactory reports for them, so an artifact deployed to several environments is downloaded once.
+ * Files are stored as root/ab/abcdef... as private read-only copies and handed out as hard links, falling
+ * back to a copy that is verified against the checksum while it is streamed when the target is on another
+ * file system.
+ * <p>
+ * A hard link shares the stored file, and read-only does not stop its owner or root from changing it in
+ * place. The size and modification time of each file are therefore recorded when it is stored and checked
+ * before it is handed out; if they changed the content is verified against the checksum again and
+ * removed when it no longer matches.
+ * <p>
+ * Lookups are lock-free: a reader that finds an entry another thread is evicting gets a miss when its
+ * link or copy fails, and a link made before the eviction keeps the content. The total size is bounded;
+ * when it is exceeded the least recently used entries are deleted. Use is recorded in the file access
+ * times, which leaves the modification times alone and keeps the order across a restart.
+ * @author klee@serena.com
+ */
+public class ContentStore {
+    private static final Logger logger = LoggerFactory.getLogger(ContentStore.class);
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path root;
+    private volatile long maxBytes;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * Open a store, indexing the files already in it.
+     *
+     * @param root  the store directory, created if it does not exist
+     * @param maxBytes  the maximum total size of the stored files
+     * @throws IOException if the directory can not be created or read
+     */
+    public ContentStore(Path root, long maxBytes) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.root);
+        load();
+        evict(null);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Change the maximum total size, evicting the least recently used entries if the store no longer fits.
+     *
+     * @param maxBytes  the maximum total size of the stored files
+     */
+    public void setMaxBytes(long maxBytes) {
+        if (this.maxBytes != maxBytes) {
+            logger.debug("Changing maximum size of content store \"{}\" to {} bytes", root, maxBytes);
+            this.maxBytes = maxBytes;
+            evict(null);
+        }
+    }
+
+    /**
+     * Get the total size of the stored files.
+     *
+     * @return the size in bytes
+     */
+    public long getSizeBytes() {
+        return size.get();
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), 0, entries.size());
+    }
+
+    /**
+     * Check whether a checksum can be used as a key.
+     *
+     * @param sha256  the SHA-256 checksum, may be null
+     * @return true if it is 64 hex digits
+     */
+    public static boolean isKey(String sha256) {
+        return sha256 != null && SHA256.matcher(sha256.trim().toLowerCase(Locale.ENGLISH)).matches();
+    }
+
+    /**
+     * Place the stored content with a checksum at a target path, replacing the target.
+     *
+     * @param sha256  the SHA-256 checksum of the content
+     * @param expectedSize  the size of the content, -1 if unknown
+     * @param target  the file to create
+     * @return true if the content was stored and placed, false if it has to be downloaded
+     */
+    public boolean copyTo(String sha256, long expectedSize, Path target) {
+        String key = sha256.trim().toLowerCase(Locale.ENGLISH);
+        Entry entry = entries.get(key);
+        if (entry == null || (expectedSize >= 0 && entry.size != expectedSize)) {
+            misses.incrementAndGet();
+            return false;
+        }
+
+        Path file = pathOf(key);
+        try {
+            if (!isIntact(key, entry, file)) {
+                logger.warn("Stored content {} does not match its checksum, removing it", key);
+                remove(key, entry);
+                misses.incrementAndGet();
+                return false;
+            }
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, file);
+            } catch (UnsupportedOperationException | FileSystemException ex) {
+                // no hard links across file systems, copy while checking the content
+                if (!Files.exists(file)) {
+                    throw ex;
+                }
+                if (!copyVerified(key, file, target)) {
+                    logger.warn("Stored content {} does not match its checksum, removing it", key);
+                    remove(key, entry);
+                    misses.incrementAndGet();
+                    return false;
+                }
+            }
+        } catch (IOException | UnsupportedOperationException ex) {
+            logger.debug("Unable to use stored content {} for \"{}\": {}", key, target, ex.getMessage());
+            // the target may be in use or not writable, the stored content is only dropped if it is gone
+            if (!Files.exists(file)) {
+                remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        entry.lastAccess = now;
+        touch(file, now);
+        hits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Add a file whose content has been verified to match a SHA-256 checksum. The file is copied into
+     * the store, so later changes to it do not reach the stored copy, which is read-only.
+     *
+     * @param sha256  the SHA-256 checksum of the content
+     * @param file  the file
+     * @throws IOException if the file can not be stored
+     */
+    public void put(String sha256, Path file) throws IOException {
+        String key = sha256.trim().toLowerCase(Locale.ENGLISH);
+        if (!SHA256.matcher(key).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256 checksum: " + sha256);
+        }
+        Path stored = pathOf(key);
+        if (entries.containsKey(key) && Files.exists(stored)) {
+            return;
+        }
+
+        Files.createDirectories(stored.getParent());
+        Path temp = stored.resolveSibling(key + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            Files.copy(file, temp);
+            if (!temp.toFile().setReadOnly()) {
+                logger.debug("Unable to make \"{}\" read-only", temp);
+            }
+            // a concurrent put of the same key moves identical content
+            Files.move(temp, stored, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(stored, BasicFileAttributes.class);
+        Entry entry = new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), System.currentTimeMillis());
+        if (entries.putIfAbsent(key, entry) == null) {
+            size.addAndGet(entry.size);
+            logger.debug("Stored content {}, {} bytes", key, entry.size);
+            evict(key);
+        }
+    }
+
+    /**
+     * Delete the least recently used entries until the store fits its maximum size.
+     *
+     * @param keep  the key of an entry just added that is kept, may be null
+     */
+    private void evict(String keep) {
+        if (size.get() <= maxBytes) {
+            return;
+        }
+        synchronized (evictionLock) {
+            List<Map.Entry<String, Entry>> lru = new ArrayList<>(entries.entrySet());
+            Collections.sort(lru, new Comparator<Map.Entry<String, Entry>>() {
+                @Override
+                public int compare(Map.Entry<String, Entry> e1, Map.Entry<String, Entry> e2) {
+                    return Long.compare(e1.getValue().lastAccess, e2.getValue().lastAccess);
+                }
+            });
+            for (Map.Entry<String, Entry> e : lru) {
+                if (size.get() <= maxBytes) {
+                    break;
+                }
+                if (!e.getKey().equals(keep) && remove(e.getKey(), e.getValue())) {
+                    evictions.incrementAndGet();
+                    logger.debug("Evicted stored content {}, {} bytes", e.getKey(), e.getValue().size);
+                }
+            }
+        }
+    }
+
+    private boolean remove(String key, Entry entry) {
+        if (!entries.remove(key, entry)) {
+            return false;
+        }
+        size.addAndGet(-entry.size);
+        try {
+            Files.deleteIfExists(pathOf(key));
+        } catch (IOException ex) {
+            logger.debug("Unable to delete stored content {}: {}", key, ex.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Check that a stored file still has the size and modification time recorded for it, verifying
+     * its content against the checksum if the modification time changed.
+     *
+     * @return false if the content no longer matches
+     */
+    private boolean isIntact(String key, Entry entry, Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.size() != entry.size) {
+            return false;
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (modified == entry.modified) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!new Checksum(Checksum.SHA256, key).matches(channel)) {
+                return false;
+            }
+        }
+        logger.debug("Stored content {} was modified but still matches its checksum", key);
+        entry.modified = modified;
+        return true;
+    }
+
+    /**
+     * Copy stored content to a target, checking it against its checksum.
+     *
+     * @return false if the content does not match, the target is deleted then
+     */
+    private boolean copyVerified(String key, Path file, Path target) throws IOException {
+        MessageDigest digest = Checksum.newDigest(Checksum.SHA256);
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            Files.copy(in, target);
+        }
+        if (!new Checksum(Checksum.SHA256, key).matches(digest)) {
+            Files.deleteIfExists(target);
+            return false;
+        }
+        return true;
+    }
+
+    private void load() throws IOException {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root)) {
+            for (Path dir : dirs) {
+                if (!Files.isDirectory(dir)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                    for (Path file : files) {
+                        String name = file.getFileName().toString();
+                        if (name.endsWith(TEMP_SUFFIX)) {
+                            // left behind by a put that did not finish
+                            Files.deleteIfExists(file);
+                        } else if (SHA256.matcher(name).matches() && file.equals(pathOf(name))) {
+                            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                            entries.put(name, new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                                    attributes.lastAccessTime().toMillis()));
+                            size.addAndGet(attributes.size());
+                        }
+                    }
+                }
+            }
+        }
+        logger.debug("Opened content store \"{}\" with {} entries, {} bytes", root, entries.size(), size.get());
+    }
+
+    private Path pathOf(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static void touch(Path file, long millis) {
+        try {
+            // the access time only, a changed modification time would fail the next check
+            Files.getFileAttributeView(file, BasicFileAttributeView.class).setTimes(null, FileTime.fromMillis(millis), null);
+        } catch (IOException ex) {
+            logger.debug("Unable to update access time of \"{}\": {}", file, ex.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ContentStore{" + "root=" + root + ", maxBytes=" + maxBytes + ", size=" + size + ", entries=" + entries.size() + '}';
+    }
+
+    private static final class Entry {
+        private final long size;
+        private volatile long modified;
+        private volatile long lastAccess;
+
+        Entry(long size, long modified, long lastAccess) {
+            this.size = size;
+            this.modified = modified;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+}
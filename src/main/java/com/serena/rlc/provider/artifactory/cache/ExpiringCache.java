@@ -0,0 +1,209 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.cache;
+
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded cache with a time-to-live per entry.
+ * Expired entries still inside the stale window are returned immediately while a single
+ * background refresh reloads them (stale-while-revalidate).
+ * @author klee@serena.com
+ */
+public class ExpiringCache<K, V> {
+    private static final Logger logger = LoggerFactory.getLogger(ExpiringCache.class);
+
+    /**
+     * Loads the value for a cache key.
+     */
+    public interface Loader<K, V> {
+        V load(K key) throws ArtifactoryClientException;
+    }
+
+    private static final Executor refreshExecutor = new ThreadPoolExecutor(1, 2, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(64), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "artifactory-cache-refresh");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final String name;
+    private final Map<K, Entry<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param name  the cache name used in log messages
+     * @param maxEntries  the maximum number of entries, least recently used are evicted first
+     */
+    public ExpiringCache(String name, final int maxEntries) {
+        this.name = name;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a value, loading it if it is missing or older than the stale window.
+     *
+     * @param key  the cache key
+     * @param ttlMillis  how long a loaded value is fresh, 0 or less bypasses the cache
+     * @param staleMillis  how long after expiry a value may still be served while it is refreshed
+     * @param loader  the loader used on a miss or refresh
+     * @return the cached or loaded value
+     * @throws ArtifactoryClientException
+     */
+    public V get(final K key, long ttlMillis, long staleMillis, final Loader<K, V> loader) throws ArtifactoryClientException {
+        if (ttlMillis <= 0) {
+            return loader.load(key);
+        }
+
+        final Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        long now = System.currentTimeMillis();
+        if (entry != null) {
+            long age = now - entry.loadedAt;
+            if (age < ttlMillis) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (age < ttlMillis + staleMillis) {
+                hits.incrementAndGet();
+                if (entry.refreshing.compareAndSet(false, true)) {
+                    scheduleRefresh(key, entry, loader);
+                }
+                return entry.value;
+            }
+        }
+
+        logger.debug("{} cache miss for {}", name, key);
+        misses.incrementAndGet();
+        V value = loader.load(key);
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Get a value without loading it.
+     *
+     * @param key  the cache key
+     * @param ttlMillis  how long a loaded value is fresh
+     * @return the cached value or null if it is missing or expired
+     */
+    public V getIfPresent(K key, long ttlMillis) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null || System.currentTimeMillis() - entry.loadedAt >= ttlMillis) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the hit, miss and eviction counts, background refreshes are reported as revalidations.
+     * Lookups that bypass the cache are not counted.
+     *
+     * @return the cache statistics
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), refreshes.get(), size());
+    }
+
+    private void scheduleRefresh(final K key, final Entry<V> entry, final Loader<K, V> loader) {
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        logger.debug("Refreshing {} cache entry for {}", name, key);
+                        put(key, loader.load(key));
+                        refreshes.incrementAndGet();
+                    } catch (ArtifactoryClientException | RuntimeException ex) {
+                        logger.warn("Error refreshing {} cache entry for {}: {}", name, key, ex.getMessage());
+                    } finally {
+                        entry.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import com.serena.rlc.provider.artifactory.domain.ArtifactQuery;
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Consts;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search engine using the Artifactory Query Language (/api/search/aql).
+ * One round trip returns the item details and checksums, newest first, with the offset and limit
+ * applied on the server. AQL only sorts and pages queries that include item fields alone, so the
+ * properties of the returned page are fetched with a second query by path. When only the latest
+ * versions are wanted the whole match is streamed, keeping just those versions in memory, and the
+ * range applied afterwards.
+ * @author klee@serena.com
+ */
+public class AqlSearchEngine implements ArtifactSearchEngine {
+    private static final Logger logger = LoggerFactory.getLogger(AqlSearchEngine.class);
+
+    public static final String NAME = "aql";
+
+    static final ContentType AQL_CONTENT_TYPE = ContentType.create("text/plain", Consts.UTF_8);
+
+    private static final String ITEM_FIELD_NAMES = "\"repo\",\"path\",\"name\",\"size\",\"created\",\"created_by\"," +
+            "\"modified\",\"modified_by\",\"updated\",\"actual_sha1\",\"actual_md5\"";
+
+    /**
+     * Item fields only, required by queries that are sorted or paged.
+     */
+    static final String ITEM_FIELDS = ".include(" + ITEM_FIELD_NAMES + ")";
+
+    /**
+     * Item fields and properties, for queries that are neither sorted nor paged.
+     */
+    static final String ITEM_PROPERTY_FIELDS = ".include(" + ITEM_FIELD_NAMES + ",\"property\")";
+
+    /**
+     * Item fields, the SHA-256 and properties, for path lookups that need the SHA-256. Older Artifactory
+     * servers reject the sha256 field, so it is only asked for where a failure can be handled.
+     */
+    static final String ITEM_SHA256_PROPERTY_FIELDS = ".include(" + ITEM_FIELD_NAMES + ",\"sha256\",\"property\")";
+
+    private static final String PROPERTY_FIELDS = ".include(\"repo\",\"path\",\"name\",\"property\")";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supportsOffset() {
+        return true;
+    }
+
+    @Override
+    public List<Artifact> search(final ArtifactoryClient client, final ArtifactQuery query) throws ArtifactoryClientException {
+        if (StringUtils.isEmpty(query.getRepoId())) throw new ArtifactoryClientException("Artifactory Repository not specified");
+
+        String aql = buildQuery(query);
+        logger.debug("Executing AQL query: {}", aql);
+
+        List<Artifact> artifacts = client.processPost("/api/search/aql", "", new StringEntity(aql, AQL_CONTENT_TYPE),
+                new ArtifactoryClient.ResponseReader<List<Artifact>>() {
+                    @Override
+                    public List<Artifact> read(Reader body) throws IOException {
+                        if (query.getLatestVersions() > 0) {
+                            return Artifact.parseAqlLatest(body, query.getLatestVersions(), client.getArtifactoryUrl());
+                        }
+                        return Artifact.parseAql(body, query.getLimit(), client.getArtifactoryUrl());
+                    }
+                });
+        if (query.getLatestVersions() > 0) {
+            int from = (int) Math.min(query.getOffset(), artifacts.size());
+            int to = (int) Math.min(artifacts.size(), from + (long) query.getLimit());
+            artifacts = artifacts.subList(from, to);
+        }
+        addProperties(client, query.getRepoId(), artifacts);
+        return artifacts;
+    }
+
+    /**
+     * Fetch the properties of the artifacts of a page, in batches of {@link ArtifactoryClient#ARTIFACT_BATCH_SIZE}.
+     *
+     * @param client  the client to query with
+     * @param repoId  the repository of the artifacts
+     * @param artifacts  the artifacts, their properties are set
+     * @throws ArtifactoryClientException
+     */
+    private static void addProperties(final ArtifactoryClient client, String repoId, List<Artifact> artifacts) throws ArtifactoryClientException {
+        for (int i = 0; i < artifacts.size(); i += ArtifactoryClient.ARTIFACT_BATCH_SIZE) {
+            List<Artifact> batch = artifacts.subList(i, Math.min(i + ArtifactoryClient.ARTIFACT_BATCH_SIZE, artifacts.size()));
+            List<String> paths = new ArrayList<>(batch.size());
+            for (Artifact artifact : batch) {
+                paths.add(artifact.getPath());
+            }
+            String aql = buildPathQuery(repoId, paths, PROPERTY_FIELDS);
+            List<Artifact> found = client.processPost("/api/search/aql", "", new StringEntity(aql, AQL_CONTENT_TYPE),
+                    new ArtifactoryClient.ResponseReader<List<Artifact>>() {
+                        @Override
+                        public List<Artifact> read(Reader body) throws IOException {
+                            return Artifact.parseAql(body, Integer.MAX_VALUE, client.getArtifactoryUrl());
+                        }
+                    });
+            Map<String, Map<String, String>> properties = new HashMap<>(found.size() * 2);
+            for (Artifact artifact : found) {
+                properties.put(artifact.getPath(), artifact.getProperties());
+            }
+            for (Artifact artifact : batch) {
+                Map<String, String> values = properties.get(artifact.getPath());
+                if (values != null) {
+                    artifact.setProperties(values);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build an items.find() query for Maven GAVC criteria, e.g.
+     * items.find({"$and":[{"repo":"libs-release-local"},{"type":"file"},{"path":{"$match":"org/acme/app/*"}},
+     * {"path":{"$nmatch":"org/acme/*&#47;*&#47;*"}}]}) where the second path criterion keeps the group exact
+     *
+     * @param query  the search criteria and result range
+     * @return the AQL query
+     */
+    @SuppressWarnings("unchecked")
+    static String buildQuery(ArtifactQuery query) {
+        JSONArray criteria = new JSONArray();
+        criteria.add(criterion("repo", query.getRepoId()));
+        criteria.add(criterion("type", "file"));
+
+        String path = StringUtils.isEmpty(query.getGroupId()) ? "*" : query.getGroupId().trim().replace('.', '/') + "/" +
+                (StringUtils.isEmpty(query.getArtifactId()) ? "*" : query.getArtifactId().trim()) + "/" +
+                (StringUtils.isEmpty(query.getVersionId()) ? "*" : query.getVersionId().trim());
+        if (!"*".equals(path)) {
+            criteria.add(criterion("path", match(path)));
+            // AQL "*" also matches "/", keep to group/artifact/version like GAVC so subgroups are not searched
+            criteria.add(criterion("path", criterion("$nmatch", query.getGroupId().trim().replace('.', '/') + "/*/*/*")));
+        }
+        if (StringUtils.isNotEmpty(query.getClassId())) {
+            criteria.add(criterion("name", match("*-" + query.getClassId().trim() + ".*")));
+        }
+
+        StringBuilder aql = new StringBuilder(256);
+        // json-simple escapes "/" which AQL path patterns do not expect
+        aql.append("items.find(").append(criterion("$and", criteria).toJSONString().replace("\\/", "/")).append(')');
+        aql.append(ITEM_FIELDS);
+        if (query.getLatestVersions() > 0) {
+            // AQL orders versions as text only, the newest versions are selected while reading all matches;
+            // descending path order keeps the files of each version together and mostly brings newer versions first
+            aql.append(".sort({\"$desc\":[\"path\",\"name\"]})");
+            return aql.toString();
+        }
+        aql.append(".sort({\"$desc\":[\"created\"]})");
+        if (query.getOffset() > 0) {
+            aql.append(".offset(").append(query.getOffset()).append(')');
+        }
+        if (query.getLimit() < Integer.MAX_VALUE) {
+            aql.append(".limit(").append(query.getLimit()).append(')');
+        }
+        return aql.toString();
+    }
+
+    /**
+     * Build an items.find() query for a set of items in one repository, e.g.
+     * items.find({"$and":[{"repo":"libs-release-local"},{"$or":[{"$and":[{"path":"org/acme/app/1.0"},{"name":"app-1.0.jar"}]}]}]})
+     *
+     * @param repoId  the repository of the items
+     * @param storagePaths  the paths of the items inside the repository, e.g. /org/acme/app/1.0/app-1.0.jar
+     * @param include  the include clause, e.g. {@link #ITEM_PROPERTY_FIELDS}
+     * @return the AQL query
+     */
+    @SuppressWarnings("unchecked")
+    static String buildPathQuery(String repoId, Collection<String> storagePaths, String include) {
+        JSONArray items = new JSONArray();
+        for (String storagePath : storagePaths) {
+            int idx = storagePath.lastIndexOf('/');
+            String folder = (idx <= 0) ? "." : storagePath.substring(1, idx);
+            JSONArray item = new JSONArray();
+            item.add(criterion("path", folder));
+            item.add(criterion("name", storagePath.substring(idx + 1)));
+            items.add(criterion("$and", item));
+        }
+
+        JSONArray criteria = new JSONArray();
+        criteria.add(criterion("repo", repoId));
+        criteria.add(criterion("$or", items));
+
+        return "items.find(" + criterion("$and", criteria).toJSONString().replace("\\/", "/") + ")" + include;
+    }
+
+    /**
+     * Build an items.find() query for all files of a repository modified after a point in time, in path order, e.g.
+     * items.find({"$and":[{"repo":"libs-release-local"},{"type":"file"},{"modified":{"$gt":"2016-03-21T08:15:30.123Z"}}]})
+     *
+     * @param repoId  the repository of the items
+     * @param modifiedAfter  the ISO-8601 timestamp the items must be modified after, null for all items
+     * @param offset  the number of items to skip
+     * @param limit  the maximum number of items
+     * @return the AQL query
+     */
+    @SuppressWarnings("unchecked")
+    static String buildModifiedQuery(String repoId, String modifiedAfter, long offset, int limit) {
+        JSONArray criteria = new JSONArray();
+        criteria.add(criterion("repo", repoId));
+        criteria.add(criterion("type", "file"));
+        if (modifiedAfter != null) {
+            criteria.add(criterion("modified", criterion("$gt", modifiedAfter)));
+        }
+
+        StringBuilder aql = new StringBuilder(256);
+        aql.append("items.find(").append(criterion("$and", criteria).toJSONString().replace("\\/", "/")).append(')');
+        aql.append(ITEM_FIELDS);
+        aql.append(".sort({\"$asc\":[\"path\",\"name\"]})");
+        if (offset > 0) {
+            aql.append(".offset(").append(offset).append(')');
+        }
+        aql.append(".limit(").append(limit).append(')');
+        return aql.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    static JSONObject criterion(String field, Object value) {
+        JSONObject criterion = new JSONObject();
+        criterion.put(field, value);
+        return criterion;
+    }
+
+    static JSONObject match(String pattern) {
+        return criterion("$match", pattern);
+    }
+
+}
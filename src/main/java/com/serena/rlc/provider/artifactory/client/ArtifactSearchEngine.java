@@ -0,0 +1,44 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import com.serena.rlc.provider.artifactory.domain.ArtifactQuery;
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
+
+import java.util.List;
+
+/**
+ * Search backend used by {@link ArtifactoryClient#searchArtifacts(ArtifactSearchEngine, ArtifactQuery)}.
+ * @author klee@serena.com
+ */
+public interface ArtifactSearchEngine {
+
+    /**
+     * @return the name used to select this engine in the provider configuration
+     */
+    String getName();
+
+    /**
+     * @return true if the engine skips {@link ArtifactQuery#getOffset()} results on the server
+     */
+    boolean supportsOffset();
+
+    /**
+     * Search artifacts.
+     *
+     * @param client  the client to execute the search with
+     * @param query  the search criteria and result range
+     * @return a list of Artifacts, at most {@link ArtifactQuery#getLimit()}
+     * @throws ArtifactoryClientException
+     */
+    List<Artifact> search(ArtifactoryClient client, ArtifactQuery query) throws ArtifactoryClientException;
+
+}
@@ -11,8 +11,17 @@ package com.serena.rlc.provider.artifactory.client;
 
 import com.serena.rlc.provider.domain.SessionData;
 import com.serena.rlc.provider.artifactory.domain.*;
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryCircuitOpenException;
 import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryTimeoutException;
+import com.serena.rlc.provider.artifactory.metrics.ArtifactoryMetrics;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.Consts;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -20,103 +29,223 @@ import org.apache.http.StatusLine;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.params.CoreProtocolPNames;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Artifactory Client
+ * Artifactory Client, immutable and safe to share between threads.
+ * Instances are normally obtained from {@link ArtifactoryClientRegistry}.
  * @author klee@serena.com
  */
-@Component
 public class ArtifactoryClient {
     private static final Logger logger = LoggerFactory.getLogger(ArtifactoryClient.class);
 
     public static String DEFAULT_HTTP_CONTENT_TYPE = "application/json";
 
-    private String aUrl;
-    private String aUsername;
-    private String aPassword;
-    private SessionData session;
+    public static final ArtifactSearchEngine GAVC_SEARCH_ENGINE = new GavcSearchEngine();
+    public static final ArtifactSearchEngine AQL_SEARCH_ENGINE = new AqlSearchEngine();
 
-    public ArtifactoryClient() {
+    public static final int ARTIFACT_BATCH_SIZE = 100;
+    public static final String PART_SUFFIX = ".part";
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_DRAIN_BYTES = 256;
+    private static final int MAX_LOGGED_ERROR_CHARS = 1024;
+    private static final long TRANSFER_CHUNK_BYTES = 8L * 1024 * 1024;
+
+    /**
+     * Reads a response body as it is received from the server.
+     */
+    public interface ResponseReader<T> {
+        T read(Reader body) throws IOException, ArtifactoryClientException;
     }
 
+    private static final ResponseReader<String> STRING_READER = new ResponseReader<String>() {
+        @Override
+        public String read(Reader body) throws IOException {
+            return IOUtils.toString(body);
+        }
+    };
+
+    private static final ResponseReader<Artifact> ARTIFACT_READER = new ResponseReader<Artifact>() {
+        @Override
+        public Artifact read(Reader body) throws IOException {
+            return Artifact.parseSingle(IOUtils.toString(body));
+        }
+    };
+
+    private final String aUrl;
+    private final String aUsername;
+    private final String aPassword;
+    private final SessionData session;
+    private final ArtifactoryClientKey key;
+    private final ArtifactoryTimeouts timeouts;
+    private final Header authHeader;
+    private final SingleFlight<String, List<Repository>> repositoryCalls = new SingleFlight<>();
+    private final SingleFlight<List<Object>, List<Artifact>> searchCalls = new SingleFlight<>();
+    private final SingleFlight<String, Artifact> storageCalls = new SingleFlight<>();
+
+    /**
+     * Create a new client for Artifactory with the default timeouts.
+     *
+     * @param session  the session data, may be null
+     * @param url  the url to Artifactory, e.g. https://localhost:8081/artifactory
+     * @param username  the username of the Artifactory user
+     * @param password  the password/private token of the Artifactory user
+     */
     public ArtifactoryClient(SessionData session, String url, String username, String password) {
-        this.createConnection(session, url, username, password);
+        this(session, url, username, password, ArtifactoryTimeouts.DEFAULTS);
     }
 
-    public SessionData getSession() {
-        return session;
+    /**
+     * Create a new client for Artifactory.
+     *
+     * @param session  the session data, may be null
+     * @param url  the url to Artifactory, e.g. https://localhost:8081/artifactory
+     * @param username  the username of the Artifactory user
+     * @param password  the password/private token of the Artifactory user
+     * @param timeouts  the connect, read and pool timeouts and per-operation deadlines
+     */
+    public ArtifactoryClient(SessionData session, String url, String username, String password, ArtifactoryTimeouts timeouts) {
+        this.session = session;
+        this.timeouts = timeouts;
+        this.aUrl = url;
+        this.aUsername = username;
+        this.aPassword = password;
+        this.key = ArtifactoryClientKey.of(url, username, password);
+        this.authHeader = BasicScheme.authenticate(new UsernamePasswordCredentials(username, password), "US-ASCII", false);
     }
 
-    public void setSession(SessionData session) {
-        this.session = session;
+    public SessionData getSession() {
+        return session;
     }
 
     public String getArtifactoryUrl() {
         return aUrl;
     }
 
-    public void setArtifactoryUrl(String url) {
-        this.aUrl = url;
-    }
-
     public String getArtifactoryUsername() {
         return aUsername;
     }
 
-    public void setArtifactoryUsername(String username) {
-        this.aUsername = username;
-    }
-
     public String getArtifactoryPassword() {
         return aPassword;
     }
 
-    public void setArtifactoryPassword(String password) {
-        this.aPassword = password;
+    public ArtifactoryClientKey getKey() {
+        return key;
+    }
+
+    public ArtifactoryTimeouts getTimeouts() {
+        return timeouts;
     }
 
     /**
-     * Create a new connection to Artifactory.
+     * Get the number of requests that were saved by sharing the result of an identical request in flight.
      *
-     * @param url  the url to Artifactory, e.g. https://localhost:8081/artifactorye
-     * @param username  the username of the Artifactory user
-     * @param password  the password/private token of the Artifactory user
+     * @return the number of coalesced requests
      */
-    public void createConnection(SessionData session, String url, String username, String password) {
-        this.session = session;
-        this.aUrl = url;
-        this.aUsername = username;
-        this.aPassword = password;
+    public long getCoalescedRequestCount() {
+        return repositoryCalls.getCoalescedCount() + searchCalls.getCoalescedCount() + storageCalls.getCoalescedCount();
+    }
+
+    /**
+     * Get the shared connection pool for the current Artifactory URL.
+     *
+     * @return the connection pool
+     */
+    public ArtifactoryConnectionPool getConnectionPool() {
+        return ArtifactoryConnectionPool.forUrl(getArtifactoryUrl());
+    }
+
+    /**
+     * Get the leased, available and pending connection counts for the current Artifactory URL.
+     *
+     * @return the connection pool statistics
+     */
+    public PoolStats getConnectionPoolStats() {
+        return getConnectionPool().getStats();
     }
 
     /**
      * Get a artifacts via gavc search.
      *
      * @param resultLimit  the maximum number of Work Items to return
-     * @return  a list of Repositories
+     * @return  a read-only list of Repositories, shared with concurrent callers
      * @throws ArtifactoryClientException
      */
     public List<Repository> getRepositories(Integer resultLimit) throws ArtifactoryClientException {
         logger.debug("Retrieving Repositories");
         logger.debug("Limiting results to: " + resultLimit.toString());
 
-        String queryResponse = processGet("/api/repositories", "");
-        logger.debug(queryResponse);
+        return repositoryCalls.execute(createUrl("/api/repositories", ""), new SingleFlight.Call<String, List<Repository>>() {
+            @Override
+            public List<Repository> run(String url) throws ArtifactoryClientException {
+                String queryResponse = processGet("/api/repositories", "");
+                logger.debug("Received {} characters", queryResponse.length());
 
-        List<Repository> repositories = Repository.parse(queryResponse);
-        return repositories;
+                return Collections.unmodifiableList(Repository.parse(queryResponse));
+            }
+        });
     }
 
     /**
@@ -132,39 +261,101 @@ public class ArtifactoryClient {
      * @throws ArtifactoryClientException
      */
     public List<Artifact> getArtifacts(String repoId, String groupId, String artifactId, String classId, String versionId, Integer resultLimit) throws ArtifactoryClientException {
-        logger.debug("Retrieving Artifacts from repo \"{}\"", repoId);
-        logger.debug("Using Group Id: " + groupId);
-        logger.debug("Using Artifact Id: " + artifactId);
-        logger.debug("Using Class Id: " + classId);
-        logger.debug("Using Version Id: " + versionId);
-        logger.debug("Limiting results to: " + resultLimit.toString());
+        ArtifactQuery query = new ArtifactQuery(repoId, groupId, artifactId, classId, versionId);
+        query.setLimit(resultLimit);
+        return searchArtifacts(GAVC_SEARCH_ENGINE, query);
+    }
 
-        ///api/search/gavc?g=org.acme&a=artifact&v=1.0&c=sources&repos=libs-release-local
-        if (StringUtils.isEmpty(repoId)) throw new ArtifactoryClientException("Artifactory Repository not specified");
-        String params = "repos=" + repoId;
-        if (StringUtils.isNotEmpty(groupId)) {
-            params += "&g="+groupId;
-        }
-        if (StringUtils.isNotEmpty(artifactId)) {
-            params += "&a="+artifactId;
+    /**
+     * Search artifacts with a search engine. Concurrent identical searches share a single request
+     * and the returned list is read-only.
+     *
+     * @param engine  the search engine to use, e.g. {@link #getSearchEngine(String)}
+     * @param query  the search criteria and result range
+     * @return  a list of Artifacts
+     * @throws ArtifactoryClientException
+     */
+    public List<Artifact> searchArtifacts(final ArtifactSearchEngine engine, final ArtifactQuery query) throws ArtifactoryClientException {
+        logger.debug("Retrieving Artifacts using {} search: {}", engine.getName(), query);
+
+        // copy the query so the key does not change if the caller reuses it
+        ArtifactQuery queryKey = new ArtifactQuery(query);
+        return searchCalls.execute(Arrays.<Object>asList(engine.getName(), queryKey), new SingleFlight.Call<List<Object>, List<Artifact>>() {
+            @Override
+            public List<Artifact> run(List<Object> key) throws ArtifactoryClientException {
+                List<Artifact> artifacts = engine.search(ArtifactoryClient.this, (ArtifactQuery) key.get(1));
+                logger.debug("Received {} artifacts", artifacts.size());
+                return Collections.unmodifiableList(artifacts);
+            }
+        });
+    }
+
+    /**
+     * Search artifacts in several repositories at once. One search per repository runs in parallel on the
+     * bounded executor of the connection pool, so the search takes about as long as the slowest repository.
+     * The results are merged, an artifact found in several repositories with the same SHA-1 checksum is
+     * reported once from its most recently modified copy, and the merged list is ordered by last modification,
+     * most recent first.
+     *
+     * @param engine  the search engine to use, e.g. {@link #getSearchEngine(String)}
+     * @param repoIds  the repositories to search
+     * @param query  the search criteria and limit per repository, its repository and offset are ignored
+     * @return  at most limit merged artifacts, complete if no repository had further results
+     * @throws ArtifactoryClientException if the search of any repository failed
+     */
+    public ArtifactSearchResult searchArtifacts(ArtifactSearchEngine engine, Collection<String> repoIds, ArtifactQuery query) throws ArtifactoryClientException {
+        logger.debug("Retrieving Artifacts from {} repositories using {} search: {}", repoIds.size(), engine.getName(), query);
+
+        List<CompletableFuture<List<Artifact>>> searches = new ArrayList<>(repoIds.size());
+        for (String repoId : repoIds) {
+            ArtifactQuery repoQuery = new ArtifactQuery(query);
+            repoQuery.setRepoId(repoId);
+            repoQuery.setOffset(0);
+            searches.add(getArtifactsAsync(engine, repoQuery));
         }
-        if (StringUtils.isNotEmpty(classId)) {
-            params += "&c=" + classId;
+
+        List<ArtifactSearchResult> results = new ArrayList<>(searches.size());
+        ArtifactoryClientException failure = null;
+        for (CompletableFuture<List<Artifact>> search : searches) {
+            List<Artifact> artifacts;
+            try {
+                artifacts = search.join();
+            } catch (CompletionException ex) {
+                // wait for the other searches before failing so none is left running unobserved
+                if (failure == null) {
+                    failure = (ex.getCause() instanceof ArtifactoryClientException) ? (ArtifactoryClientException) ex.getCause() :
+                            new ArtifactoryClientException("Artifactory: Search failed", ex.getCause());
+                }
+                continue;
+            }
+            results.add(new ArtifactSearchResult(artifacts, artifacts.size() < query.getLimit()));
         }
-        if (StringUtils.isNotEmpty(versionId)) {
-            params += "&v=" + versionId;
+        if (failure != null) {
+            throw failure;
         }
-        String queryResponse = processGet("/api/search/gavc", params);
-        logger.debug(queryResponse);
 
-        List<Artifact> artifacts = Artifact.parse(queryResponse);
-        return artifacts;
+        ArtifactSearchResult merged = ArtifactSearchResult.merge(results, query.getLimit());
+        logger.debug("Merged {} Artifacts", merged.size());
+        return merged;
     }
 
     /**
-     * Get an artifact from its path.
+     * Get a search engine by name.
      *
-     * @param path  the repository id to search
+     * @param name  the name of the engine, "gavc" or "aql"
+     * @return  the search engine, GAVC if the name is empty or unknown
+     */
+    public static ArtifactSearchEngine getSearchEngine(String name) {
+        if (AqlSearchEngine.NAME.equalsIgnoreCase(StringUtils.trimToEmpty(name))) {
+            return AQL_SEARCH_ENGINE;
+        }
+        return GAVC_SEARCH_ENGINE;
+    }
+
+    /**
+     * Get an artifact from its path. Concurrent lookups of the same path share a single request.
+     *
+     * @param path  the storage path or storage uri of the artifact
      * @return  the artifact
      * @throws ArtifactoryClientException
      */
@@ -173,62 +364,825 @@ public class ArtifactoryClient {
 
         ///api/storage/libs-release-local/org/apache/commons/commons-lang3/3.3.2/commons-lang3-3.3.2.jar
         if (StringUtils.isEmpty(path)) throw new ArtifactoryClientException("Artifact path not specified");
-        if (!path.startsWith("/")) {
-            path = "/" + path;
+        final String storagePath = "/api/storage" + toStoragePath(path);
+        return storageCalls.execute(createUrl(storagePath, ""), new SingleFlight.Call<String, Artifact>() {
+            @Override
+            public Artifact run(String url) throws ArtifactoryClientException {
+                String queryResponse = processGet(storagePath, "");
+
+                Artifact artifact = Artifact.parseSingle(queryResponse);
+                return artifact;
+            }
+        });
+    }
+
+    /**
+     * Get many artifacts from their paths in as few requests as possible. Paths are grouped by repository
+     * and resolved with one AQL query per repository and batch of {@link #ARTIFACT_BATCH_SIZE} paths.
+     *
+     * @param paths  the storage paths or storage uris of the artifacts
+     * @return  the artifacts found, keyed by storage path as returned by {@link #toStoragePath(String)};
+     *          paths that do not exist are left out
+     * @throws ArtifactoryClientException
+     */
+    public Map<String, Artifact> getArtifacts(Collection<String> paths) throws ArtifactoryClientException {
+        return getArtifacts(paths, AqlSearchEngine.ITEM_PROPERTY_FIELDS);
+    }
+
+    /**
+     * Get many artifacts from their paths like {@link #getArtifacts(Collection)}, including their SHA-256
+     * checksums. Older Artifactory servers reject the request, callers need to fall back to
+     * {@link #getArtifact(String)} then.
+     *
+     * @param paths  the storage paths or storage uris of the artifacts
+     * @return  the artifacts found, keyed by storage path as returned by {@link #toStoragePath(String)};
+     *          paths that do not exist are left out
+     * @throws ArtifactoryClientException
+     */
+    public Map<String, Artifact> getArtifactsWithSha256(Collection<String> paths) throws ArtifactoryClientException {
+        return getArtifacts(paths, AqlSearchEngine.ITEM_SHA256_PROPERTY_FIELDS);
+    }
+
+    private Map<String, Artifact> getArtifacts(Collection<String> paths, String include) throws ArtifactoryClientException {
+        logger.debug("Retrieving {} Artifacts by path", paths.size());
+
+        // storage uris are percent-encoded, AQL criteria and results are not
+        Map<String, List<String>> pathsByRepo = new LinkedHashMap<>();
+        Map<String, String> storagePaths = new HashMap<>(paths.size() * 2);
+        for (String path : paths) {
+            if (StringUtils.isEmpty(path)) continue;
+            String storagePath = toStoragePath(path);
+            String decodedPath = UrlBuilder.decodePath(storagePath);
+            int idx = decodedPath.indexOf('/', 1);
+            if (idx < 0) continue;
+            String repoId = decodedPath.substring(1, idx);
+            List<String> repoPaths = pathsByRepo.get(repoId);
+            if (repoPaths == null) {
+                repoPaths = new ArrayList<>();
+                pathsByRepo.put(repoId, repoPaths);
+            }
+            repoPaths.add(decodedPath.substring(idx));
+            storagePaths.put(decodedPath, storagePath);
+        }
+
+        Map<String, Artifact> artifacts = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : pathsByRepo.entrySet()) {
+            List<String> repoPaths = entry.getValue();
+            for (int i = 0; i < repoPaths.size(); i += ARTIFACT_BATCH_SIZE) {
+                String aql = AqlSearchEngine.buildPathQuery(entry.getKey(), repoPaths.subList(i, Math.min(i + ARTIFACT_BATCH_SIZE, repoPaths.size())),
+                        include);
+                List<Artifact> batch = processPost("/api/search/aql", "", new StringEntity(aql, AqlSearchEngine.AQL_CONTENT_TYPE),
+                        new ResponseReader<List<Artifact>>() {
+                            @Override
+                            public List<Artifact> read(Reader body) throws IOException {
+                                return Artifact.parseAql(body, Integer.MAX_VALUE, getArtifactoryUrl());
+                            }
+                        });
+                for (Artifact artifact : batch) {
+                    String storagePath = storagePaths.get("/" + artifact.getRepo() + artifact.getPath());
+                    if (storagePath != null) {
+                        artifacts.put(storagePath, artifact);
+                    }
+                }
+            }
+        }
+
+        logger.debug("Received {} Artifacts", artifacts.size());
+        return artifacts;
+    }
+
+    /**
+     * Get a page of the files of a repository modified after a point in time, in path order.
+     * Used to seed and incrementally update a local index of the repository.
+     *
+     * @param repoId  the repository
+     * @param modifiedAfterMillis  the time the files must be modified after, {@link Timestamps#NONE} for all files
+     * @param offset  the number of files to skip
+     * @param limit  the maximum number of files
+     * @return  the artifacts of the page
+     * @throws ArtifactoryClientException
+     */
+    public List<Artifact> getArtifactsModifiedAfter(String repoId, long modifiedAfterMillis, long offset, int limit) throws ArtifactoryClientException {
+        logger.debug("Retrieving Artifacts of {} modified after {}, offset {}", repoId, modifiedAfterMillis, offset);
+
+        String aql = AqlSearchEngine.buildModifiedQuery(repoId, Timestamps.format(modifiedAfterMillis, 0), offset, limit);
+        return processPost("/api/search/aql", "", new StringEntity(aql, AqlSearchEngine.AQL_CONTENT_TYPE),
+                new ResponseReader<List<Artifact>>() {
+                    @Override
+                    public List<Artifact> read(Reader body) throws IOException {
+                        return Artifact.parseAql(body, Integer.MAX_VALUE, getArtifactoryUrl());
+                    }
+                });
+    }
+
+    /**
+     * Get an artifact from its path only if it was modified since a previously retrieved version.
+     *
+     * @param path  the storage path or storage uri of the artifact
+     * @param cached  the previously retrieved artifact
+     * @return  the artifact, or null if it was not modified
+     * @throws ArtifactoryClientException
+     */
+    public Artifact getArtifactIfModified(String path, Artifact cached) throws ArtifactoryClientException {
+        logger.debug("Revalidating Artifact from path \"{}\"", path);
+
+        if (StringUtils.isEmpty(path)) throw new ArtifactoryClientException("Artifact path not specified");
+        String ifModifiedSince = toHttpDate(cached.getLastModified());
+        String queryResponse = (ifModifiedSince == null) ?
+                processGet("/api/storage" + toStoragePath(path), "") :
+                processGet("/api/storage" + toStoragePath(path), "", new BasicHeader(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince));
+        if (queryResponse == null) {
+            return null;
         }
-        String queryResponse = processGet("/api/storage"+path, "");
-        logger.debug(queryResponse);
 
         Artifact artifact = Artifact.parseSingle(queryResponse);
+        if (artifact != null && StringUtils.isNotEmpty(artifact.getSha1()) && artifact.getSha1().equals(cached.getSha1()) &&
+                artifact.getLastModifiedMillis() == cached.getLastModifiedMillis()) {
+            // same content, keep the cached instance
+            return null;
+        }
         return artifact;
     }
 
+    /**
+     * Convert an artifact path or storage uri to a storage path, e.g. /libs-release-local/org/acme/app/1.0/app-1.0.jar
+     *
+     * @param path  the storage path or storage uri of the artifact
+     * @return  the storage path starting with "/"
+     */
+    public String toStoragePath(String path) {
+        String storagePath = path.trim();
+        int idx = storagePath.indexOf("/api/storage/");
+        if (idx >= 0) {
+            storagePath = storagePath.substring(idx + "/api/storage".length());
+        }
+        if (!storagePath.startsWith("/")) {
+            storagePath = "/" + storagePath;
+        }
+        return storagePath;
+    }
+
+    /**
+     * Get the url to download an artifact from.
+     *
+     * @param artifact  the artifact
+     * @return the download uri of the artifact, or one built from its repository and path
+     */
+    public String getDownloadUrl(Artifact artifact) {
+        if (StringUtils.isNotEmpty(artifact.getDownloadUri())) {
+            return artifact.getDownloadUri();
+        }
+        return createUrl("/" + artifact.getRepo() + artifact.getPath(), "");
+    }
+
+    /**
+     * Download an artifact to a file in a single stream.
+     *
+     * @param artifact  the artifact, its size and checksum are checked if known
+     * @param target  the file to write, replaced if it exists
+     * @return the number of bytes written
+     * @throws ArtifactoryClientException
+     * @see #download(Artifact, Path, long, int)
+     */
+    public long download(Artifact artifact, Path target) throws ArtifactoryClientException {
+        return download(artifact, target, 0, 1);
+    }
+
+    /**
+     * Download an artifact to a file. The body is transferred from the connection straight into a
+     * {@link FileChannel}, a chunk at a time, so it is never held on the heap whatever its size. It is
+     * written to a ".part" file next to the target, checked against the checksum of the artifact and moved
+     * into place once complete.
+     * An artifact larger than rangeSize is split into byte ranges fetched concurrently, each over its own
+     * pooled connection, with positional writes into the preallocated file. The completed ranges are saved
+     * next to it, so a download that failed is resumed from them by the next call for the same artifact.
+     * Smaller artifacts, and servers that do not honour ranges, are fetched in a single stream and a failed
+     * attempt is retried from the start.
+     *
+     * @param artifact  the artifact, its size and checksum are checked if known
+     * @param target  the file to write, replaced if it exists
+     * @param rangeSize  the size of a range in bytes, 0 to always download in a single stream
+     * @param parallelism  the number of ranges fetched at the same time
+     * @return the number of bytes written
+     * @throws ArtifactoryClientException
+     */
+    public long download(Artifact artifact, Path target, long rangeSize, int parallelism) throws ArtifactoryClientException {
+        String uri = getDownloadUrl(artifact);
+        long size = artifact.getSizeBytes();
+        Checksum checksum = Checksum.of(artifact);
+        Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+
+        logger.debug("Start downloading url=\"{}\" to \"{}\"", uri, target);
+
+        long bytes = -1;
+        if (rangeSize > 0 && size != Artifact.UNKNOWN_SIZE && size > rangeSize) {
+            bytes = downloadRanges(uri, part, size, rangeSize, parallelism, checksum);
+        }
+        if (bytes < 0) {
+            bytes = downloadStream(uri, part, size, checksum);
+        }
+
+        try {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            deleteQuietly(part);
+            throw new ArtifactoryClientException("Unable to move download to " + target + ": " + ex.getMessage(), ex);
+        }
+
+        logger.debug("End downloading url=\"{}\", {} bytes", uri, bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Download in a single stream, the content is checked while it is written.
+     */
+    private long downloadStream(String uri, Path part, long size, Checksum checksum) throws ArtifactoryClientException {
+        MessageDigest digest = (checksum == null) ? null : checksum.newDigest();
+        boolean complete = false;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long bytes = fetch(uri, channel, 0, size, false, digest);
+            if (checksum != null && !checksum.matches(digest)) {
+                throw new ArtifactoryClientException("Download from " + uri + " does not match checksum " + checksum);
+            }
+            complete = true;
+            return bytes;
+        } catch (IOException ex) {
+            throw new ArtifactoryClientException("Unable to write download to " + part + ": " + ex.getMessage(), ex);
+        } finally {
+            if (!complete) {
+                deleteQuietly(part);
+            }
+        }
+    }
+
+    /**
+     * Download in byte ranges, skipping the ranges completed by an earlier call. The part file and the
+     * completed ranges are kept if the download fails, so it can be resumed.
+     *
+     * @return the number of bytes written, or -1 if the server does not honour ranges
+     */
+    private long downloadRanges(String uri, Path part, long size, long rangeSize, int parallelism, Checksum checksum)
+            throws ArtifactoryClientException {
+        DownloadRanges ranges = DownloadRanges.open(part, size, rangeSize, (checksum == null) ? uri : checksum.toString());
+        boolean corrupt = false;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (channel.size() != size) {
+                // a new download, or the part file no longer matches the completed ranges
+                ranges.reset();
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            } else if (ranges.getCompletedCount() > 0) {
+                logger.info("Resuming download from url=\"{}\", {} of {} ranges complete", uri, ranges.getCompletedCount(), ranges.count());
+            }
+
+            List<Integer> pending = ranges.getPending();
+            if (!pending.isEmpty()) {
+                // the first range tells whether the server honours ranges before the others are requested
+                int first = pending.remove(0);
+                if (fetch(uri, channel, ranges.start(first), ranges.length(first), true, null) < 0) {
+                    logger.debug("Server does not honour ranges for url=\"{}\", downloading in a single stream", uri);
+                    ranges.delete();
+                    return -1;
+                }
+                channel.force(false);
+                ranges.complete(first);
+                fetchRanges(uri, channel, ranges, pending, parallelism);
+            }
+
+            if (checksum != null && !checksum.matches(channel)) {
+                corrupt = true;
+                throw new ArtifactoryClientException("Download from " + uri + " does not match checksum " + checksum);
+            }
+            ranges.delete();
+            return size;
+        } catch (IOException ex) {
+            throw new ArtifactoryClientException("Unable to write download to " + part + ": " + ex.getMessage(), ex);
+        } finally {
+            if (corrupt) {
+                ranges.delete();
+                deleteQuietly(part);
+            }
+        }
+    }
+
+    /**
+     * Fetch ranges concurrently, each completed range is flushed to disk and saved as soon as it is written. All ranges are
+     * attempted even if one fails, so as much as possible is kept for a resumed download.
+     */
+    private void fetchRanges(final String uri, final FileChannel channel, final DownloadRanges ranges, List<Integer> pending,
+                             int parallelism) throws ArtifactoryClientException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, pending.size())), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "artifactory-range-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        ArtifactoryClientException failure = null;
+        try {
+            List<Future<Void>> fetches = new ArrayList<>(pending.size());
+            for (final Integer range : pending) {
+                fetches.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (fetch(uri, channel, ranges.start(range), ranges.length(range), true, null) < 0) {
+                            throw new ArtifactoryClientException("Server stopped honouring ranges for " + uri);
+                        }
+                        channel.force(false);
+                        ranges.complete(range);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> fetch : fetches) {
+                try {
+                    fetch.get();
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        Throwable cause = ex.getCause();
+                        failure = (cause instanceof ArtifactoryClientException) ? (ArtifactoryClientException) cause :
+                                new ArtifactoryClientException("Unable to download from " + uri + ": " + cause.getMessage(), cause);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure = new ArtifactoryClientException("Interrupted while downloading from " + uri, ex);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (failure != null) {
+            logger.warn("Download from url=\"{}\" failed with {} of {} ranges complete", uri, ranges.getCompletedCount(), ranges.count());
+            throw failure;
+        }
+    }
+
+    /**
+     * Fetch a download, or a range of it, into a file at its position. A failed range is retried from the
+     * last byte written, a failed whole body from the start.
+     *
+     * @param uri  the url to download from
+     * @param channel  the file to write to
+     * @param start  the position of the content in the file
+     * @param length  the number of bytes to fetch, {@link Artifact#UNKNOWN_SIZE} for a whole body of unknown size
+     * @param ranged  true to request the bytes as a range
+     * @param digest  fed the whole body, may be null
+     * @return the number of bytes written, or -1 if a range was requested but the server sent the whole body
+     * @throws ArtifactoryClientException
+     */
+    private long fetch(String uri, FileChannel channel, long start, long length, boolean ranged, MessageDigest digest)
+            throws ArtifactoryClientException {
+        DefaultHttpClient httpClient = getConnectionPool().getHttpClient();
+        ArtifactoryOperation operation = ArtifactoryOperation.DOWNLOAD;
+        CircuitBreaker circuitBreaker = checkCircuit(operation);
+        RetryPolicy retryPolicy = getRetryPolicy();
+        long written = 0;
+
+        for (int attempt = 1; ; attempt++) {
+            HttpGet getRequest = new HttpGet(uri);
+            getRequest.addHeader(authHeader);
+            if (ranged) {
+                getRequest.addHeader(HttpHeaders.RANGE, "bytes=" + (start + written) + "-" + (start + length - 1));
+            } else {
+                written = 0;
+                if (digest != null) {
+                    digest.reset();
+                }
+            }
+            RequestDeadline deadline = startRequest(getRequest, timeouts.getDeadline(operation));
+            long attemptStarted = System.nanoTime();
+            long attemptWritten = 0;
+            int status = 0;
+            long retryDelay;
+
+            try {
+                if (!ranged && attempt > 1) {
+                    channel.truncate(0);
+                }
+                HttpResponse response = httpClient.execute(getRequest);
+                status = response.getStatusLine().getStatusCode();
+                if (retryPolicy.isRetryable(status)) {
+                    ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.outcomeOf(status), attemptStarted);
+                    retryDelay = retryPolicy.canRetry(attempt) ? retryPolicy.getDelay(attempt, getRetryAfter(response)) : -1;
+                    if (retryDelay < 0) {
+                        circuitBreaker.onFailure();
+                        throw createHttpError(response);
+                    }
+                    logger.warn("Download from url=\"{}\" returned {}, retrying in {} ms", uri, status, retryDelay);
+                } else {
+                    circuitBreaker.onSuccess();
+                    if (ranged && status == HttpStatus.SC_OK) {
+                        ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.OUTCOME_SUCCESS, attemptStarted);
+                        return -1;
+                    }
+                    if (status != (ranged ? HttpStatus.SC_PARTIAL_CONTENT : HttpStatus.SC_OK)) {
+                        ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.outcomeOf(status), attemptStarted);
+                        throw createHttpError(response);
+                    }
+                    if (ranged) {
+                        Header contentRange = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+                        if (contentRange == null || !contentRange.getValue().startsWith("bytes " + (start + written) + "-")) {
+                            throw new IOException("Unexpected Content-Range " + ((contentRange == null) ? null : contentRange.getValue()));
+                        }
+                    }
+
+                    long readStarted = System.nanoTime();
+                    try (InputStream content = response.getEntity().getContent();
+                         ReadableByteChannel source = Channels.newChannel((digest == null) ? content : new DigestInputStream(content, digest))) {
+                        long transferred;
+                        while ((transferred = channel.transferFrom(source, start + written, (length == Artifact.UNKNOWN_SIZE) ?
+                                TRANSFER_CHUNK_BYTES : Math.min(TRANSFER_CHUNK_BYTES, length - written))) > 0) {
+                            written += transferred;
+                            attemptWritten += transferred;
+                        }
+                    }
+                    if (length != Artifact.UNKNOWN_SIZE && written != length) {
+                        throw new IOException("Download incomplete, received " + written + " of " + length + " bytes");
+                    }
+                    ArtifactoryMetrics.recordResponse(operation.getTag(), ContentEncoding.IDENTITY, attemptWritten, attemptWritten, readStarted);
+                    ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.OUTCOME_SUCCESS, attemptStarted);
+                    break;
+                }
+            } catch (IOException ex) {
+                ArtifactoryClientException error = toClientException(ex, deadline, uri);
+                ArtifactoryMetrics.recordRequest(operation.getTag(), status, outcomeOf(error), attemptStarted);
+                retryDelay = (!deadline.expired && retryPolicy.canRetry(attempt)) ? retryPolicy.getDelay(attempt, -1) : -1;
+                if (retryDelay < 0) {
+                    circuitBreaker.onFailure();
+                    throw error;
+                }
+                logger.warn("Download from url=\"{}\" failed after {} bytes, retrying in {} ms: {}", uri, written, retryDelay, ex.getMessage());
+            } finally {
+                deadline.cancel();
+                getRequest.releaseConnection();
+            }
+
+            sleep(retryDelay);
+        }
+
+        return written;
+    }
+
+    /**
+     * Deploy a file to a repository. A checksum deploy is tried first, which sends no content and
+     * succeeds if Artifactory already stores a binary with the same checksums; otherwise the file is
+     * uploaded. The file is read once to compute its checksums before anything is sent.
+     *
+     * @param repoId  the repository to deploy to
+     * @param path  the path in the repository, e.g. /org/acme/app/1.0/app-1.0.tar.gz
+     * @param file  the file to deploy
+     * @return the deployed artifact
+     * @throws ArtifactoryClientException
+     */
+    public Artifact deploy(String repoId, String path, Path file) throws ArtifactoryClientException {
+        Checksum[] checksums;
+        try {
+            checksums = Checksum.of(file, Checksum.SHA1, Checksum.SHA256, Checksum.MD5);
+        } catch (IOException ex) {
+            throw new ArtifactoryClientException("Unable to read " + file + ": " + ex.getMessage(), ex);
+        }
+        Artifact artifact = deployByChecksum(repoId, path, checksums);
+        return (artifact != null) ? artifact : upload(repoId, path, file, checksums);
+    }
+
+    /**
+     * Deploy content Artifactory already stores, e.g. under another path, by sending only its checksums.
+     *
+     * @param repoId  the repository to deploy to
+     * @param path  the path in the repository
+     * @param checksums  the checksums of the content, at least the SHA-1 or SHA-256
+     * @return the deployed artifact, or null if Artifactory does not have the content
+     * @throws ArtifactoryClientException
+     */
+    public Artifact deployByChecksum(String repoId, String path, Checksum... checksums) throws ArtifactoryClientException {
+        return put(repoId, path, null, checksums);
+    }
+
+    /**
+     * Upload a file to a repository. The request body is streamed from the file, and the checksums are
+     * sent along so Artifactory rejects an upload that was corrupted on the way.
+     *
+     * @param repoId  the repository to deploy to
+     * @param path  the path in the repository
+     * @param file  the file to upload
+     * @param checksums  the checksums of the file, may be empty
+     * @return the deployed artifact
+     * @throws ArtifactoryClientException
+     */
+    public Artifact upload(String repoId, String path, Path file, Checksum... checksums) throws ArtifactoryClientException {
+        return put(repoId, path, file, checksums);
+    }
+
+    /**
+     * Execute a deploy request, retrying failed attempts; the file entity is read again for each attempt.
+     *
+     * @param file  the file to upload, null for a checksum deploy
+     * @return the deployed artifact, or null if a checksum deploy found no content with the checksums
+     */
+    private Artifact put(String repoId, String path, Path file, Checksum[] checksums) throws ArtifactoryClientException {
+        if (StringUtils.isBlank(repoId) || StringUtils.isBlank(path)) {
+            throw new ArtifactoryClientException("Repository and path to deploy to not specified");
+        }
+        String uri = createUrl("/" + repoId + (path.startsWith("/") ? path : "/" + path), "");
+        boolean checksumDeploy = (file == null);
+
+        logger.debug("Start deploying {} to url=\"{}\"", checksumDeploy ? "by checksum" : "\"" + file + "\"", uri);
+
+        DefaultHttpClient httpClient = getConnectionPool().getHttpClient();
+        ArtifactoryOperation operation = ArtifactoryOperation.DEPLOY;
+        CircuitBreaker circuitBreaker = checkCircuit(operation);
+        RetryPolicy retryPolicy = getRetryPolicy();
+        Artifact artifact;
+
+        for (int attempt = 1; ; attempt++) {
+            HttpPut putRequest = new HttpPut(uri);
+            putRequest.addHeader(authHeader);
+            putRequest.addHeader(HttpHeaders.ACCEPT, DEFAULT_HTTP_CONTENT_TYPE);
+            for (Checksum checksum : checksums) {
+                String header = getChecksumHeader(checksum.getAlgorithm());
+                if (header != null) {
+                    putRequest.addHeader(header, checksum.getValue());
+                }
+            }
+            if (checksumDeploy) {
+                putRequest.addHeader("X-Checksum-Deploy", "true");
+            } else {
+                putRequest.setEntity(new FileEntity(file.toFile(), ContentType.APPLICATION_OCTET_STREAM));
+                // let the server refuse the request before the body is sent
+                putRequest.getParams().setBooleanParameter(CoreProtocolPNames.USE_EXPECT_CONTINUE, true);
+            }
+            RequestDeadline deadline = startRequest(putRequest, timeouts.getDeadline(operation));
+            long attemptStarted = System.nanoTime();
+            int status = 0;
+            long retryDelay;
+
+            try {
+                HttpResponse response = httpClient.execute(putRequest);
+                status = response.getStatusLine().getStatusCode();
+                if (retryPolicy.isRetryable(status)) {
+                    ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.outcomeOf(status), attemptStarted);
+                    retryDelay = retryPolicy.canRetry(attempt) ? retryPolicy.getDelay(attempt, getRetryAfter(response)) : -1;
+                    if (retryDelay < 0) {
+                        circuitBreaker.onFailure();
+                        throw createHttpError(response);
+                    }
+                    logger.warn("Deploy to url=\"{}\" returned {}, retrying in {} ms", uri, status, retryDelay);
+                } else {
+                    circuitBreaker.onSuccess();
+                    if (checksumDeploy && status == HttpStatus.SC_NOT_FOUND) {
+                        ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.OUTCOME_SUCCESS, attemptStarted);
+                        logger.debug("No content with the checksums for url=\"{}\", upload required", uri);
+                        return null;
+                    }
+                    if (status != HttpStatus.SC_CREATED && status != HttpStatus.SC_OK) {
+                        ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.outcomeOf(status), attemptStarted);
+                        throw createHttpError(response);
+                    }
+
+                    artifact = readEntity(response.getEntity(), ARTIFACT_READER, operation);
+                    ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.OUTCOME_SUCCESS, attemptStarted);
+                    break;
+                }
+            } catch (IOException ex) {
+                ArtifactoryClientException error = toClientException(ex, deadline, uri);
+                ArtifactoryMetrics.recordRequest(operation.getTag(), status, outcomeOf(error), attemptStarted);
+                retryDelay = (!deadline.expired && retryPolicy.canRetry(attempt)) ? retryPolicy.getDelay(attempt, -1) : -1;
+                if (retryDelay < 0) {
+                    circuitBreaker.onFailure();
+                    throw error;
+                }
+                logger.warn("Deploy to url=\"{}\" failed, retrying in {} ms: {}", uri, retryDelay, ex.getMessage());
+            } finally {
+                deadline.cancel();
+                putRequest.releaseConnection();
+            }
+
+            sleep(retryDelay);
+        }
+
+        logger.debug("End deploying to url=\"{}\"", uri);
+
+        return artifact;
+    }
+
+    private static String getChecksumHeader(String algorithm) {
+        switch (algorithm) {
+            case Checksum.SHA1:
+                return "X-Checksum-Sha1";
+            case Checksum.SHA256:
+                return "X-Checksum-Sha256";
+            case Checksum.MD5:
+                return "X-Checksum";
+            default:
+                return null;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.debug("Unable to delete \"{}\": {}", file, ex.getMessage());
+        }
+    }
+
+    /**
+     * Get the repositories without blocking the calling thread.
+     *
+     * @param resultLimit  the maximum number of Repositories to return
+     * @return  a future for the list of Repositories
+     */
+    public CompletableFuture<List<Repository>> getRepositoriesAsync(final Integer resultLimit) {
+        return supplyAsync(new Callable<List<Repository>>() {
+            @Override
+            public List<Repository> call() throws ArtifactoryClientException {
+                return getRepositories(resultLimit);
+            }
+        });
+    }
+
+    /**
+     * Search artifacts without blocking the calling thread.
+     *
+     * @param engine  the search engine to use
+     * @param query  the search criteria and result range
+     * @return  a future for the list of Artifacts
+     */
+    public CompletableFuture<List<Artifact>> getArtifactsAsync(final ArtifactSearchEngine engine, final ArtifactQuery query) {
+        return supplyAsync(new Callable<List<Artifact>>() {
+            @Override
+            public List<Artifact> call() throws ArtifactoryClientException {
+                return searchArtifacts(engine, query);
+            }
+        });
+    }
+
+    /**
+     * Get many artifacts from their paths without blocking the calling thread.
+     *
+     * @param paths  the storage paths or storage uris of the artifacts
+     * @return  a future for the artifacts found, keyed by storage path
+     */
+    public CompletableFuture<Map<String, Artifact>> getArtifactsAsync(final Collection<String> paths) {
+        return supplyAsync(new Callable<Map<String, Artifact>>() {
+            @Override
+            public Map<String, Artifact> call() throws ArtifactoryClientException {
+                return getArtifacts(paths);
+            }
+        });
+    }
+
+    /**
+     * Get an artifact from its path without blocking the calling thread.
+     *
+     * @param path  the storage path or storage uri of the artifact
+     * @return  a future for the artifact
+     */
+    public CompletableFuture<Artifact> getArtifactAsync(final String path) {
+        return supplyAsync(new Callable<Artifact>() {
+            @Override
+            public Artifact call() throws ArtifactoryClientException {
+                return getArtifact(path);
+            }
+        });
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Run a request on the bounded executor of the connection pool. The future fails with an
+     * {@link ArtifactoryClientException} if the request fails or too many requests are queued.
+     *
+     * @param request  the request to run
+     * @return a future for the result of the request
+     */
+    protected <T> CompletableFuture<T> supplyAsync(final Callable<T> request) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            getConnectionPool().getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(request.call());
+                    } catch (Exception ex) {
+                        future.completeExceptionally(ex);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new ArtifactoryClientException("Too many concurrent Artifactory requests", ex));
+        }
+        return future;
+    }
 
     /**
      * Execute a get request to Artifactory.
      *
      * @param path  the path for the specific request
      * @param parameters  parameters to send with the query
-     * @return String containing the response body
+     * @param headers  additional request headers, e.g. for conditional requests
+     * @return String containing the response body, or null if the resource was not modified
+     * @throws ArtifactoryClientException
+     */
+    protected String processGet(String path, String parameters, Header... headers) throws ArtifactoryClientException {
+        return processGet(path, parameters, STRING_READER, headers);
+    }
+
+    /**
+     * Execute a get request to Artifactory and read the response body as it is received.
+     *
+     * @param path  the path for the specific request
+     * @param parameters  parameters to send with the query
+     * @param reader  the reader for the response body
+     * @param headers  additional request headers, e.g. for conditional requests
+     * @return the result of the reader, or null if the resource was not modified
      * @throws ArtifactoryClientException
      */
-    protected String processGet(String path, String parameters) throws ArtifactoryClientException {
+    protected <T> T processGet(String path, String parameters, ResponseReader<T> reader, Header... headers) throws ArtifactoryClientException {
         String uri = createUrl(path, parameters);
 
         logger.debug("Start executing Artifactory GET request to url=\"{}\"", uri);
 
-        DefaultHttpClient httpClient = new DefaultHttpClient();
-        HttpGet getRequest = new HttpGet(uri);
-        UsernamePasswordCredentials creds = new UsernamePasswordCredentials(getArtifactoryUsername(), getArtifactoryPassword());
-        getRequest.addHeader(BasicScheme.authenticate(creds, "US-ASCII", false) );
-        getRequest.addHeader(HttpHeaders.CONTENT_TYPE, DEFAULT_HTTP_CONTENT_TYPE);
-        getRequest.addHeader(HttpHeaders.ACCEPT, DEFAULT_HTTP_CONTENT_TYPE);
-        getRequest.addHeader("X-Result-Detail", "info, properties");
-        String result = "";
+        DefaultHttpClient httpClient = getConnectionPool().getHttpClient();
+        ArtifactoryOperation operation = ArtifactoryOperation.forPath(path);
+        CircuitBreaker circuitBreaker = checkCircuit(operation);
+        RetryPolicy retryPolicy = getRetryPolicy();
+        long deadlineMillis = timeouts.getDeadline(operation);
+        long started = System.currentTimeMillis();
+        T result;
 
-        try {
-            HttpResponse response = httpClient.execute(getRequest);
-            if (response.getStatusLine().getStatusCode() != org.apache.http.HttpStatus.SC_OK) {
-                throw createHttpError(response);
+        for (int attempt = 1; ; attempt++) {
+            HttpGet getRequest = new HttpGet(uri);
+            getRequest.addHeader(authHeader);
+            getRequest.addHeader(HttpHeaders.CONTENT_TYPE, DEFAULT_HTTP_CONTENT_TYPE);
+            getRequest.addHeader(HttpHeaders.ACCEPT, DEFAULT_HTTP_CONTENT_TYPE);
+            getRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, ContentEncoding.ACCEPTED);
+            getRequest.addHeader("X-Result-Detail", "info, properties");
+            for (Header header : headers) {
+                getRequest.addHeader(header);
             }
+            RequestDeadline deadline = startRequest(getRequest,
+                    (deadlineMillis > 0) ? deadlineMillis - (System.currentTimeMillis() - started) : 0);
+            long attemptStarted = System.nanoTime();
+            int status = 0;
+            long retryDelay;
+
+            try {
+                HttpResponse response = httpClient.execute(getRequest);
+                status = response.getStatusLine().getStatusCode();
+                if (retryPolicy.isRetryable(status)) {
+                    ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.outcomeOf(status), attemptStarted);
+                    retryDelay = retryPolicy.canRetry(attempt) ? retryPolicy.getDelay(attempt, getRetryAfter(response)) : -1;
+                    if (!canRetry(retryDelay, deadlineMillis, started)) {
+                        circuitBreaker.onFailure();
+                        throw createHttpError(response);
+                    }
+                    logger.warn("Artifactory GET request to url=\"{}\" returned {}, retrying in {} ms", uri, status, retryDelay);
+                } else {
+                    circuitBreaker.onSuccess();
+                    if (headers.length > 0 && status == HttpStatus.SC_NOT_MODIFIED) {
+                        ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.OUTCOME_SUCCESS, attemptStarted);
+                        logger.debug("Artifactory GET request to url=\"{}\" not modified", uri);
+                        return null;
+                    }
+                    if (status != org.apache.http.HttpStatus.SC_OK) {
+                        ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.outcomeOf(status), attemptStarted);
+                        throw createHttpError(response);
+                    }
 
-            BufferedReader br = new BufferedReader(new InputStreamReader((response.getEntity().getContent())));
-            StringBuilder sb = new StringBuilder(1024);
-            String output;
-            while ((output = br.readLine()) != null) {
-                sb.append(output);
+                    result = readEntity(response.getEntity(), reader, operation);
+                    ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.OUTCOME_SUCCESS, attemptStarted);
+                    break;
+                }
+            } catch (IOException ex) {
+                ArtifactoryClientException error = toClientException(ex, deadline, uri);
+                ArtifactoryMetrics.recordRequest(operation.getTag(), status, outcomeOf(error), attemptStarted);
+                retryDelay = (!deadline.expired && retryPolicy.canRetry(attempt)) ? retryPolicy.getDelay(attempt, -1) : -1;
+                if (!canRetry(retryDelay, deadlineMillis, started)) {
+                    circuitBreaker.onFailure();
+                    throw error;
+                }
+                logger.warn("Artifactory GET request to url=\"{}\" failed, retrying in {} ms: {}", uri, retryDelay, ex.getMessage());
+            } finally {
+                deadline.cancel();
+                // return the connection to the pool, aborting it if the body was not fully read
+                getRequest.releaseConnection();
             }
-            result = sb.toString();
-        } catch (IOException ex) {
-            logger.error(ex.getMessage(), ex);
-            throw new ArtifactoryClientException("Server not available", ex);
-        } finally {
-            httpClient.getConnectionManager().shutdown();
+
+            sleep(retryDelay);
         }
 
-        logger.debug("End executing Artifactory GET request to url=\"{}\" and receive this result={}", uri, result);
+        logger.debug("End executing Artifactory GET request to url=\"{}\"", uri);
 
         return result;
     }
@@ -243,68 +1197,277 @@ public class ArtifactoryClient {
      * @throws ArtifactoryClientException
      */
     public String processPost(String path, String parameters, String body) throws ArtifactoryClientException {
+        return processPost(path, parameters, new StringEntity(body, ContentType.create(DEFAULT_HTTP_CONTENT_TYPE, Consts.UTF_8)),
+                STRING_READER);
+    }
+
+    /**
+     * Execute a post request to Artifactory and read the response body as it is received.
+     *
+     * @param path  the path for the specific request
+     * @param parameters  parameters to send with the query
+     * @param body  the body to send with the request, including its content type
+     * @param reader  the reader for the response body
+     * @return the result of the reader
+     * @throws ArtifactoryClientException
+     */
+    protected <T> T processPost(String path, String parameters, HttpEntity body, ResponseReader<T> reader) throws ArtifactoryClientException {
         String uri = createUrl(path, parameters);
 
-        logger.debug("Start executing Artifactory POST request to url=\"{}\" with data: {}", uri, body);
+        logger.debug("Start executing Artifactory POST request to url=\"{}\" with {} bytes of data", uri, body.getContentLength());
 
-        DefaultHttpClient httpClient = new DefaultHttpClient();
+        DefaultHttpClient httpClient = getConnectionPool().getHttpClient();
         HttpPost postRequest = new HttpPost(uri);
-        UsernamePasswordCredentials creds = new UsernamePasswordCredentials(getArtifactoryUsername(), getArtifactoryPassword());
-        postRequest.addHeader(BasicScheme.authenticate(creds, "US-ASCII", false) );
-        postRequest.addHeader(HttpHeaders.CONTENT_TYPE, DEFAULT_HTTP_CONTENT_TYPE);
+        postRequest.addHeader(authHeader);
         postRequest.addHeader(HttpHeaders.ACCEPT, DEFAULT_HTTP_CONTENT_TYPE);
-
-        try {
-            postRequest.setEntity(new StringEntity(body,"UTF-8"));
-        } catch (UnsupportedEncodingException ex) {
-            logger.error(ex.getMessage(), ex);
-            throw new ArtifactoryClientException("Error creating body for POST request", ex);
-        }
-        String result = "";
+        postRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, ContentEncoding.ACCEPTED);
+        postRequest.setEntity(body);
+        ArtifactoryOperation operation = ArtifactoryOperation.forPath(path);
+        CircuitBreaker circuitBreaker = checkCircuit(operation);
+        RequestDeadline deadline = startRequest(postRequest, timeouts.getDeadline(operation));
+        long requestStarted = System.nanoTime();
+        int status = 0;
+        T result;
 
         try {
             HttpResponse response = httpClient.execute(postRequest);
-            if (response.getStatusLine().getStatusCode() != org.apache.commons.httpclient.HttpStatus.SC_OK && response.getStatusLine().getStatusCode() != org.apache.commons.httpclient.HttpStatus.SC_CREATED &&
-                    response.getStatusLine().getStatusCode() != org.apache.commons.httpclient.HttpStatus.SC_ACCEPTED) {
+            status = response.getStatusLine().getStatusCode();
+            if (getRetryPolicy().isRetryable(status)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            if (status != org.apache.commons.httpclient.HttpStatus.SC_OK && status != org.apache.commons.httpclient.HttpStatus.SC_CREATED &&
+                    status != org.apache.commons.httpclient.HttpStatus.SC_ACCEPTED) {
+                ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.outcomeOf(status), requestStarted);
                 throw createHttpError(response);
             }
 
-            BufferedReader br = new BufferedReader(new InputStreamReader((response.getEntity().getContent())));
-            StringBuilder sb = new StringBuilder(1024);
-            String output;
-            while ((output = br.readLine()) != null) {
-                sb.append(output);
-            }
-            result = sb.toString();
+            result = readEntity(response.getEntity(), reader, operation);
+            ArtifactoryMetrics.recordRequest(operation.getTag(), status, ArtifactoryMetrics.OUTCOME_SUCCESS, requestStarted);
         } catch (IOException e) {
-            logger.error(e.getMessage(), e);
-            throw new ArtifactoryClientException("Server not available", e);
+            circuitBreaker.onFailure();
+            ArtifactoryClientException error = toClientException(e, deadline, uri);
+            ArtifactoryMetrics.recordRequest(operation.getTag(), status, outcomeOf(error), requestStarted);
+            throw error;
+        } finally {
+            deadline.cancel();
+            postRequest.releaseConnection();
+        }
+
+        logger.debug("End executing Artifactory POST request to url=\"{}\"", uri);
+
+        return result;
+    }
+
+    /**
+     * Apply the connect, read and pool timeouts to a request and start its deadline, if any.
+     *
+     * @param request  the request about to be executed
+     * @param deadlineMillis  the time left for the request in milliseconds, 0 for no deadline
+     * @return the deadline, cancel it once the request completed
+     */
+    private RequestDeadline startRequest(HttpRequestBase request, long deadlineMillis) {
+        HttpParams params = request.getParams();
+        HttpConnectionParams.setConnectionTimeout(params, (int) timeouts.getConnectTimeout());
+        HttpConnectionParams.setSoTimeout(params, (int) timeouts.getReadTimeout());
+        params.setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, timeouts.getPoolTimeout());
+
+        RequestDeadline deadline = new RequestDeadline(request, deadlineMillis);
+        if (deadline.millis > 0) {
+            deadline.future = ArtifactoryConnectionPool.scheduleDeadline(deadline, deadline.millis);
+        }
+        return deadline;
+    }
+
+    /**
+     * Get the circuit breaker for the current Artifactory URL, failing fast while it is open.
+     *
+     * @param operation  the operation of the request
+     * @return the circuit breaker to report the outcome of the request to
+     * @throws ArtifactoryCircuitOpenException if the circuit is open
+     */
+    private CircuitBreaker checkCircuit(ArtifactoryOperation operation) throws ArtifactoryCircuitOpenException {
+        CircuitBreaker circuitBreaker = getConnectionPool().getCircuitBreaker();
+        if (!circuitBreaker.allowRequest()) {
+            ArtifactoryMetrics.recordRequest(operation.getTag(), 0, ArtifactoryMetrics.OUTCOME_CIRCUIT_OPEN, System.nanoTime());
+            throw new ArtifactoryCircuitOpenException("Artifactory: Server not available, requests suspended for another " +
+                    TimeUnit.MILLISECONDS.toSeconds(circuitBreaker.getRemainingOpenMillis()) + " seconds");
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Check whether a retry can still finish within the request deadline.
+     *
+     * @param retryDelay  the delay before the retry, -1 if no retry is allowed
+     * @param deadlineMillis  the deadline of the request, 0 for none
+     * @param started  the time the first attempt started
+     * @return true if the request should be retried
+     */
+    private static boolean canRetry(long retryDelay, long deadlineMillis, long started) {
+        return retryDelay >= 0 && (deadlineMillis <= 0 || System.currentTimeMillis() - started + retryDelay < deadlineMillis);
+    }
+
+    /**
+     * Get the Retry-After delay of a response, given either in seconds or as an HTTP date.
+     *
+     * @param response  the response
+     * @return the delay in milliseconds, or -1 if the header is missing or not valid
+     */
+    private static long getRetryAfter(HttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null || StringUtils.isBlank(header.getValue())) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        if (StringUtils.isNumeric(value)) {
+            return TimeUnit.SECONDS.toMillis(NumberUtils.toLong(value, -1));
+        }
+        try {
+            return Math.max(0L, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() -
+                    System.currentTimeMillis());
+        } catch (DateTimeParseException ex) {
+            return -1;
+        }
+    }
+
+    private static void sleep(long millis) throws ArtifactoryClientException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ArtifactoryClientException("Artifactory: Interrupted while waiting to retry request", ex);
+        }
+    }
+
+    /**
+     * Get the retry policy for idempotent requests.
+     *
+     * @return the retry policy
+     */
+    protected RetryPolicy getRetryPolicy() {
+        return RetryPolicy.DEFAULT;
+    }
+
+    /**
+     * Convert a failed request to a client exception, timeouts are reported as {@link ArtifactoryTimeoutException}.
+     *
+     * @param ex  the I/O error
+     * @param deadline  the deadline of the request
+     * @param uri  the request url
+     * @return the exception to throw
+     */
+    private ArtifactoryClientException toClientException(IOException ex, RequestDeadline deadline, String uri) {
+        if (deadline.expired) {
+            logger.warn("Artifactory request to url=\"{}\" exceeded its deadline of {} ms", uri, deadline.millis);
+            return new ArtifactoryTimeoutException("Artifactory: Request exceeded deadline of " + deadline.millis + " ms", ex);
+        } else if (ex instanceof ConnectionPoolTimeoutException) {
+            logger.warn("Timed out waiting for a connection to \"{}\" {}", getArtifactoryUrl(), getConnectionPoolStats());
+            return new ArtifactoryTimeoutException("Artifactory: Timed out waiting for a free connection", ex);
+        } else if (ex instanceof ConnectTimeoutException) {
+            logger.warn("Connect to url=\"{}\" timed out", uri);
+            return new ArtifactoryTimeoutException("Artifactory: Connect timed out", ex);
+        } else if (ex instanceof SocketTimeoutException) {
+            logger.warn("Read from url=\"{}\" timed out", uri);
+            return new ArtifactoryTimeoutException("Artifactory: Read timed out", ex);
+        }
+        logger.error(ex.getMessage(), ex);
+        return new ArtifactoryClientException("Server not available", ex);
+    }
+
+    private static String outcomeOf(ArtifactoryClientException error) {
+        return (error instanceof ArtifactoryTimeoutException) ? ArtifactoryMetrics.OUTCOME_TIMEOUT : ArtifactoryMetrics.OUTCOME_IO_ERROR;
+    }
+
+    /**
+     * Aborts a request that is still running when its deadline passes.
+     */
+    private static final class RequestDeadline implements Runnable {
+        private final HttpRequestBase request;
+        private final long millis;
+        private volatile boolean expired = false;
+        private ScheduledFuture<?> future;
+
+        RequestDeadline(HttpRequestBase request, long millis) {
+            this.request = request;
+            this.millis = millis;
+        }
+
+        @Override
+        public void run() {
+            expired = true;
+            request.abort();
         }
 
-        logger.debug("End executing Artifactory POST request to url=\"{}\" and received this result={}", uri, result);
+        void cancel() {
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
 
+    /**
+     * Read a response entity with a reader. A short remainder after the reader finished, e.g. trailing
+     * whitespace, is drained so the connection can be reused; a longer one means the reader stopped
+     * early and is left unread so the connection is dropped instead. A gzip or deflate body is
+     * decompressed as it is read; both its size on the wire and decompressed are recorded.
+     *
+     * @param entity  the response entity
+     * @param reader  the reader for the response body
+     * @param operation  the operation of the request, for the response metrics
+     * @return the result of the reader
+     * @throws IOException
+     * @throws ArtifactoryClientException
+     */
+    private <T> T readEntity(HttpEntity entity, ResponseReader<T> reader, ArtifactoryOperation operation) throws IOException, ArtifactoryClientException {
+        if (entity == null) {
+            return reader.read(new StringReader(""));
+        }
+        long readStarted = System.nanoTime();
+        ContentType contentType = ContentType.getOrDefault(entity);
+        Charset charset = (contentType.getCharset() != null) ? contentType.getCharset() : Consts.UTF_8;
+        String encoding = ContentEncoding.of(entity);
+        CountingInputStream wire = new CountingInputStream(entity.getContent());
+        CountingInputStream content = (ContentEncoding.IDENTITY.equals(encoding)) ? wire :
+                new CountingInputStream(ContentEncoding.decode(wire, encoding));
+        T result = reader.read(new BufferedReader(new InputStreamReader(content, charset), READ_BUFFER_SIZE));
+        ArtifactoryMetrics.recordResponse(operation.getTag(), encoding, wire.getByteCount(), content.getByteCount(), readStarted);
+        for (int i = 0; i < MAX_DRAIN_BYTES; i++) {
+            if (content.read() == -1) {
+                break;
+            }
+        }
         return result;
     }
 
     /**
      * Create a Artifactory URL from base and path.
      *
-     * @param path  the path to the request
-     * @param parameters  the parameters to send with the request
+     * @param path  the path to the request, percent-encoded where needed
+     * @param parameters  the encoded parameters to send with the request, see {@link UrlBuilder#appendParam}
      * @return a String containing a complete Artifactory path
      */
     public String createUrl(String path, String parameters) {
-        String base = getArtifactoryUrl();
+        return UrlBuilder.build(getArtifactoryUrl(), path, parameters);
+    }
 
-        // trim and encode path
-        path = path.trim().replaceAll(" ", "%20");
-        // if path doesn't start with "/" add it
-        if (!path.startsWith("/")) {
-            path = "/" + path;
+    /**
+     * Convert an Artifactory ISO-8601 timestamp to an HTTP date.
+     *
+     * @param timestamp  the timestamp, e.g. 2016-03-21T10:15:30.123+02:00
+     * @return the HTTP date or null if the timestamp is empty or not valid
+     */
+    private static String toHttpDate(String timestamp) {
+        if (StringUtils.isEmpty(timestamp)) {
+            return null;
+        }
+        try {
+            return DateTimeFormatter.RFC_1123_DATE_TIME.format(OffsetDateTime.parse(timestamp).atZoneSameInstant(ZoneOffset.UTC));
+        } catch (DateTimeParseException ex) {
+            logger.debug("Unable to parse timestamp \"{}\"", timestamp);
+            return null;
         }
-
-        //System.out.println(base + path + "?" + parameters);
-        return base + path + "?" + parameters;
     }
 
     /**
@@ -316,7 +1479,9 @@ public class ArtifactoryClient {
         String message;
         try {
             StatusLine statusLine = response.getStatusLine();
-            BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
+            HttpEntity entity = response.getEntity();
+            BufferedReader rd = new BufferedReader(new InputStreamReader(
+                    ContentEncoding.decode(entity.getContent(), ContentEncoding.of(entity))));
             String line;
             StringBuffer responsePayload = new StringBuffer();
             // Read response until the end
@@ -324,6 +1489,11 @@ public class ArtifactoryClient {
                 responsePayload.append(line);
             }
 
+            // error pages can be large, keep the message and log to their start
+            if (responsePayload.length() > MAX_LOGGED_ERROR_CHARS) {
+                responsePayload.setLength(MAX_LOGGED_ERROR_CHARS);
+                responsePayload.append("...");
+            }
             message = String.format(" request not successful: %d %s. Reason: %s", statusLine.getStatusCode(), statusLine.getReasonPhrase(), responsePayload);
 
             logger.debug(message);
@@ -0,0 +1,99 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Identity of an Artifactory client configuration: url, user and a fingerprint of the credential.
+ * The credential itself is never kept in the key.
+ * @author klee@serena.com
+ */
+public final class ArtifactoryClientKey {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String url;
+    private final String username;
+    private final String credentialFingerprint;
+    private final int hash;
+
+    private ArtifactoryClientKey(String url, String username, String credentialFingerprint) {
+        this.url = url;
+        this.username = username;
+        this.credentialFingerprint = credentialFingerprint;
+        int h = url.hashCode();
+        h = 31 * h + username.hashCode();
+        h = 31 * h + credentialFingerprint.hashCode();
+        this.hash = h;
+    }
+
+    /**
+     * Create a key for an Artifactory configuration.
+     *
+     * @param url  the url to Artifactory
+     * @param username  the username of the Artifactory user
+     * @param password  the password/private token of the Artifactory user
+     * @return the client key
+     */
+    public static ArtifactoryClientKey of(String url, String username, String password) {
+        return new ArtifactoryClientKey(url == null ? "" : url.trim(), username == null ? "" : username,
+                fingerprint(password));
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getCredentialFingerprint() {
+        return credentialFingerprint;
+    }
+
+    private static String fingerprint(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest((password == null ? "" : password).getBytes(StandardCharsets.UTF_8));
+            char[] chars = new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+                chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+                chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ArtifactoryClientKey)) return false;
+        ArtifactoryClientKey that = (ArtifactoryClientKey) o;
+        return url.equals(that.url) && username.equals(that.username) &&
+                credentialFingerprint.equals(that.credentialFingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "ArtifactoryClientKey{" + "url=" + url + ", username=" + username + '}';
+    }
+
+}
@@ -0,0 +1,321 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import com.serena.rlc.provider.artifactory.cache.ArtifactCache;
+import com.serena.rlc.provider.artifactory.cache.ArtifactIndex;
+import com.serena.rlc.provider.artifactory.cache.CacheStats;
+import com.serena.rlc.provider.artifactory.cache.ContentStore;
+import com.serena.rlc.provider.artifactory.cache.ExpiringCache;
+import com.serena.rlc.provider.artifactory.domain.ArtifactSearchResult;
+import com.serena.rlc.provider.artifactory.domain.Repository;
+import com.serena.rlc.provider.artifactory.metrics.ArtifactoryMetrics;
+import com.serena.rlc.provider.artifactory.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of immutable Artifactory clients, one per provider configuration and set of timeouts.
+ * Lookups are lock-free so concurrent provider calls never share mutable connection state.
+ * The least recently used clients are dropped beyond {@link #DEFAULT_CLIENT_CACHE_SIZE}, so clients
+ * for replaced credentials or timeouts do not stay in memory.
+ * @author klee@serena.com
+ */
+public class ArtifactoryClientRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactoryClientRegistry.class);
+
+    public static final int DEFAULT_CLIENT_CACHE_SIZE = 32;
+    public static final int DEFAULT_REPOSITORY_CACHE_SIZE = 64;
+    public static final int DEFAULT_ARTIFACT_CACHE_SIZE = 5000;
+    public static final int DEFAULT_SEARCH_WINDOW_CACHE_SIZE = 256;
+
+    private static final ArtifactoryClientRegistry defaultRegistry = new ArtifactoryClientRegistry();
+
+    static {
+        defaultRegistry.registerCacheGauges();
+    }
+
+    private final ConcurrentMap<List<Object>, RegisteredClient> clients = new ConcurrentHashMap<>();
+    private final ExpiringCache<ArtifactoryClientKey, List<Repository>> repositoryCache =
+            new ExpiringCache<>("repository", DEFAULT_REPOSITORY_CACHE_SIZE);
+    private final ArtifactCache artifactCache = new ArtifactCache(DEFAULT_ARTIFACT_CACHE_SIZE);
+    private final ExpiringCache<List<Object>, ArtifactSearchResult> searchWindowCache =
+            new ExpiringCache<>("search window", DEFAULT_SEARCH_WINDOW_CACHE_SIZE);
+    private final ConcurrentMap<List<Object>, ArtifactIndex> indexes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Path, ContentStore> contentStores = new ConcurrentHashMap<>();
+
+    public ArtifactoryClientRegistry() {
+    }
+
+    /**
+     * Get the process wide registry.
+     *
+     * @return the default registry
+     */
+    public static ArtifactoryClientRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * Get the client for an Artifactory configuration, creating it on first use.
+     *
+     * @param url  the url to Artifactory, e.g. http://localhost:8081/artifactory
+     * @param username  the username of the Artifactory user
+     * @param password  the password/private token of the Artifactory user
+     * @return the shared client for this configuration
+     */
+    public ArtifactoryClient getClient(String url, String username, String password) {
+        return getClient(url, username, password, ArtifactoryTimeouts.DEFAULTS);
+    }
+
+    /**
+     * Get the client for an Artifactory configuration, creating it on first use. Providers configured with
+     * different timeouts for the same server and credentials each get their own client; the connection
+     * pool of the server and the caches keyed by {@link ArtifactoryClientKey} are still shared.
+     *
+     * @param url  the url to Artifactory, e.g. http://localhost:8081/artifactory
+     * @param username  the username of the Artifactory user
+     * @param password  the password/private token of the Artifactory user
+     * @param timeouts  the connect, read and pool timeouts and per-operation deadlines
+     * @return the shared client for this configuration
+     */
+    public ArtifactoryClient getClient(String url, String username, String password, ArtifactoryTimeouts timeouts) {
+        ArtifactoryClientKey key = ArtifactoryClientKey.of(url, username, password);
+        List<Object> clientKey = Arrays.<Object>asList(key, timeouts);
+        RegisteredClient registered = clients.get(clientKey);
+        if (registered == null) {
+            RegisteredClient created = new RegisteredClient(new ArtifactoryClient(null, key.getUrl(), username, password, timeouts));
+            registered = clients.putIfAbsent(clientKey, created);
+            if (registered == null) {
+                logger.debug("Registered Artifactory client for {} with {}", key, timeouts);
+                registered = created;
+                evictClients();
+            }
+        }
+        registered.lastUsed = System.nanoTime();
+        return registered.client;
+    }
+
+    /**
+     * Drop the least recently used clients beyond the maximum number of clients.
+     */
+    private void evictClients() {
+        synchronized (clients) {
+            while (clients.size() > DEFAULT_CLIENT_CACHE_SIZE) {
+                Map.Entry<List<Object>, RegisteredClient> eldest = null;
+                for (Map.Entry<List<Object>, RegisteredClient> entry : clients.entrySet()) {
+                    if (eldest == null || entry.getValue().lastUsed - eldest.getValue().lastUsed < 0) {
+                        eldest = entry;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                clients.remove(eldest.getKey(), eldest.getValue());
+                logger.debug("Dropped least recently used Artifactory client for {}", eldest.getKey().get(0));
+            }
+        }
+    }
+
+    /**
+     * Remove the clients for an Artifactory configuration, e.g. after its credentials changed.
+     *
+     * @param url  the url to Artifactory
+     * @param username  the username of the Artifactory user
+     * @param password  the password/private token of the Artifactory user
+     */
+    public void removeClient(String url, String username, String password) {
+        ArtifactoryClientKey key = ArtifactoryClientKey.of(url, username, password);
+        for (List<Object> clientKey : clients.keySet()) {
+            if (key.equals(clientKey.get(0))) {
+                clients.remove(clientKey);
+            }
+        }
+    }
+
+    /**
+     * Get the cache of parsed repository lists, keyed by client configuration.
+     *
+     * @return the repository cache
+     */
+    public ExpiringCache<ArtifactoryClientKey, List<Repository>> getRepositoryCache() {
+        return repositoryCache;
+    }
+
+    /**
+     * Get the cache of artifact storage info, keyed by client configuration and path.
+     *
+     * @return the artifact cache
+     */
+    public ArtifactCache getArtifactCache() {
+        return artifactCache;
+    }
+
+    /**
+     * Get the cache of search result windows used to serve further pages of a search.
+     *
+     * @return the search window cache
+     */
+    public ExpiringCache<List<Object>, ArtifactSearchResult> getSearchWindowCache() {
+        return searchWindowCache;
+    }
+
+    /**
+     * Get the local artifact index of a repository, creating an empty one on first use.
+     *
+     * @param clientKey  the client configuration
+     * @param repoId  the repository
+     * @return the shared index of the repository
+     */
+    public ArtifactIndex getArtifactIndex(ArtifactoryClientKey clientKey, String repoId) {
+        List<Object> key = Arrays.<Object>asList(clientKey, repoId);
+        ArtifactIndex index = indexes.get(key);
+        if (index == null) {
+            ArtifactIndex created = new ArtifactIndex(repoId);
+            index = indexes.putIfAbsent(key, created);
+            if (index == null) {
+                index = created;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get the content store in a directory, opening it on first use. There is one store per directory;
+     * a different maximum size changes the size of the existing store.
+     *
+     * @param root  the store directory
+     * @param maxBytes  the maximum total size of the stored files
+     * @return the shared store
+     * @throws IOException if the store can not be opened
+     */
+    public ContentStore getContentStore(Path root, long maxBytes) throws IOException {
+        Path key = root.toAbsolutePath().normalize();
+        ContentStore store = contentStores.get(key);
+        if (store == null) {
+            synchronized (contentStores) {
+                // opening indexes the directory, so only one store is ever opened for it
+                store = contentStores.get(key);
+                if (store == null) {
+                    store = new ContentStore(key, maxBytes);
+                    contentStores.put(key, store);
+                    logger.debug("Opened {}", store);
+                }
+            }
+        }
+        store.setMaxBytes(maxBytes);
+        return store;
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * Publish the hit ratio and size of the caches of this registry as gauges.
+     */
+    private void registerCacheGauges() {
+        new CacheGauges("repository") {
+            @Override
+            CacheStats getStats() {
+                return repositoryCache.getStats();
+            }
+        }.register();
+        new CacheGauges("artifact") {
+            @Override
+            CacheStats getStats() {
+                return artifactCache.getStats();
+            }
+        }.register();
+        new CacheGauges("search_window") {
+            @Override
+            CacheStats getStats() {
+                return searchWindowCache.getStats();
+            }
+        }.register();
+        new CacheGauges("content_store") {
+            @Override
+            CacheStats getStats() {
+                long hits = 0, misses = 0, evictions = 0, size = 0;
+                for (ContentStore store : contentStores.values()) {
+                    CacheStats stats = store.getStats();
+                    hits += stats.getHits();
+                    misses += stats.getMisses();
+                    evictions += stats.getEvictions();
+                    size += stats.getSize();
+                }
+                return new CacheStats(hits, misses, evictions, 0, size);
+            }
+        }.register();
+    }
+
+    /**
+     * A registered client and when it was last handed out.
+     */
+    private static final class RegisteredClient {
+        private final ArtifactoryClient client;
+        private volatile long lastUsed = System.nanoTime();
+
+        RegisteredClient(ArtifactoryClient client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * Hit ratio and size gauges of a single cache.
+     */
+    private abstract static class CacheGauges {
+        private final String cache;
+
+        CacheGauges(String cache) {
+            this.cache = cache;
+        }
+
+        abstract CacheStats getStats();
+
+        void register() {
+            ArtifactoryMetrics.registerGauge(ArtifactoryMetrics.CACHE_HIT_RATIO, new MetricsRegistry.Gauge() {
+                @Override
+                public double value() {
+                    return getStats().getHitRatio();
+                }
+            }, ArtifactoryMetrics.TAG_CACHE, cache);
+            ArtifactoryMetrics.registerGauge(ArtifactoryMetrics.CACHE_SIZE, new MetricsRegistry.Gauge() {
+                @Override
+                public double value() {
+                    return getStats().getSize();
+                }
+            }, ArtifactoryMetrics.TAG_CACHE, cache);
+        }
+    }
+
+    /**
+     * Drop all clients and shut down their connection pools. This affects every provider configuration
+     * in the process using this registry, so it must not be tied to the life cycle of one provider context.
+     */
+    public void shutdown() {
+        clients.clear();
+        repositoryCache.invalidateAll();
+        artifactCache.invalidateAll();
+        searchWindowCache.invalidateAll();
+        indexes.clear();
+        contentStores.clear();
+        ArtifactoryConnectionPool.shutdownAll();
+    }
+
+}
@@ -0,0 +1,295 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import com.serena.rlc.provider.artifactory.metrics.ArtifactoryMetrics;
+import com.serena.rlc.provider.artifactory.metrics.MetricsRegistry;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived pooled HTTP connections to a single Artifactory base URL.
+ * Pools are shared by every client talking to the same base URL and are shut down
+ * on JVM exit or explicitly via {@link #shutdownAll()}.
+ * @author klee@serena.com
+ */
+public class ArtifactoryConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactoryConnectionPool.class);
+
+    public static final int DEFAULT_MAX_TOTAL = 20;
+    public static final int DEFAULT_MAX_PER_ROUTE = 10;
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 30000L;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30000L;
+    public static final long EVICTION_INTERVAL_MILLIS = 5000L;
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 256;
+
+    private static final ConcurrentMap<String, ArtifactoryConnectionPool> pools = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "artifactory-idle-connection-evictor");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private static final ScheduledThreadPoolExecutor deadlineScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "artifactory-request-deadline");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static {
+        // most requests finish before their deadline, drop cancelled timers straight away
+        deadlineScheduler.setRemoveOnCancelPolicy(true);
+
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                for (ArtifactoryConnectionPool pool : pools.values()) {
+                    pool.evictIdleConnections();
+                }
+            }
+        }, EVICTION_INTERVAL_MILLIS, EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread("artifactory-connection-pool-shutdown") {
+            @Override
+            public void run() {
+                shutdownAll();
+            }
+        });
+    }
+
+    private final String baseUrl;
+    private final PoolingClientConnectionManager connectionManager;
+    private final DefaultHttpClient httpClient;
+    private final long idleTimeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final CircuitBreaker circuitBreaker;
+    private volatile boolean gaugesRegistered = false;
+
+    protected ArtifactoryConnectionPool(String baseUrl, int maxTotal, int maxPerRoute, final long keepAliveMillis, long idleTimeoutMillis) {
+        this.baseUrl = baseUrl;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+
+        SchemeRegistry schemeRegistry = SchemeRegistryFactory.createDefault();
+        this.connectionManager = new PoolingClientConnectionManager(schemeRegistry);
+        this.connectionManager.setMaxTotal(maxTotal);
+        this.connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        this.httpClient = new DefaultHttpClient(connectionManager);
+        // honour the server Keep-Alive header, otherwise keep connections for a bounded time
+        this.httpClient.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+                return (duration > 0) ? duration : keepAliveMillis;
+            }
+        });
+
+        // one worker per pooled connection, further requests wait in a bounded queue
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxPerRoute, maxPerRoute, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(DEFAULT_ASYNC_QUEUE_SIZE), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "artifactory-async-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.circuitBreaker = new CircuitBreaker(baseUrl, CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * Get the shared pool for an Artifactory base URL, creating it on first use.
+     *
+     * @param baseUrl  the url to Artifactory, e.g. http://localhost:8081/artifactory
+     * @return the shared connection pool
+     */
+    public static ArtifactoryConnectionPool forUrl(String baseUrl) {
+        String key = normalize(baseUrl);
+        ArtifactoryConnectionPool pool = pools.get(key);
+        if (pool == null) {
+            ArtifactoryConnectionPool created = new ArtifactoryConnectionPool(key, DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE,
+                    DEFAULT_KEEP_ALIVE_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS);
+            pool = pools.putIfAbsent(key, created);
+            if (pool == null) {
+                logger.debug("Created connection pool for \"{}\"", key);
+                pool = created;
+                pool.registerGauges();
+            } else {
+                created.shutdown();
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Get connection statistics for every active pool, keyed by base URL.
+     *
+     * @return a map of base URL to pool statistics
+     */
+    public static Map<String, PoolStats> getAllStats() {
+        Map<String, PoolStats> stats = new HashMap<>();
+        for (Map.Entry<String, ArtifactoryConnectionPool> entry : pools.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Schedule a task to run once a request deadline has passed.
+     *
+     * @param task  the task, e.g. aborting the request
+     * @param deadlineMillis  the deadline in milliseconds from now
+     * @return the scheduled task, cancel it once the request completed
+     */
+    public static ScheduledFuture<?> scheduleDeadline(Runnable task, long deadlineMillis) {
+        return deadlineScheduler.schedule(task, deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Shut down every pool and close all of their connections.
+     */
+    public static void shutdownAll() {
+        for (String key : pools.keySet()) {
+            ArtifactoryConnectionPool pool = pools.remove(key);
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public DefaultHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Get the bounded executor that runs asynchronous requests against this pool.
+     *
+     * @return the executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the circuit breaker guarding calls to this base URL.
+     *
+     * @return the circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Get the leased, available, pending and maximum connection counts of this pool.
+     *
+     * @return the pool statistics
+     */
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    protected void evictIdleConnections() {
+        try {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            logger.debug("Error evicting idle connections for \"{}\": {}", baseUrl, ex.getMessage());
+        }
+    }
+
+    /**
+     * Publish the connection counts and circuit breaker state of this pool as gauges.
+     */
+    protected void registerGauges() {
+        gaugesRegistered = true;
+        ArtifactoryMetrics.registerGauge(ArtifactoryMetrics.POOL_LEASED, new MetricsRegistry.Gauge() {
+            @Override
+            public double value() {
+                return getStats().getLeased();
+            }
+        }, ArtifactoryMetrics.TAG_URL, baseUrl);
+        ArtifactoryMetrics.registerGauge(ArtifactoryMetrics.POOL_AVAILABLE, new MetricsRegistry.Gauge() {
+            @Override
+            public double value() {
+                return getStats().getAvailable();
+            }
+        }, ArtifactoryMetrics.TAG_URL, baseUrl);
+        ArtifactoryMetrics.registerGauge(ArtifactoryMetrics.POOL_PENDING, new MetricsRegistry.Gauge() {
+            @Override
+            public double value() {
+                return getStats().getPending();
+            }
+        }, ArtifactoryMetrics.TAG_URL, baseUrl);
+        ArtifactoryMetrics.registerGauge(ArtifactoryMetrics.CIRCUIT_OPEN, new MetricsRegistry.Gauge() {
+            @Override
+            public double value() {
+                return (circuitBreaker.getState() == CircuitBreaker.State.CLOSED) ? 0 : 1;
+            }
+        }, ArtifactoryMetrics.TAG_URL, baseUrl);
+    }
+
+    protected void shutdown() {
+        logger.debug("Shutting down connection pool for \"{}\" {}", baseUrl, getStats());
+        if (gaugesRegistered) {
+            for (String gauge : new String[]{ArtifactoryMetrics.POOL_LEASED, ArtifactoryMetrics.POOL_AVAILABLE,
+                    ArtifactoryMetrics.POOL_PENDING, ArtifactoryMetrics.CIRCUIT_OPEN}) {
+                ArtifactoryMetrics.removeGauge(gauge, ArtifactoryMetrics.TAG_URL, baseUrl);
+            }
+        }
+        executor.shutdownNow();
+        connectionManager.shutdown();
+    }
+
+    private static String normalize(String baseUrl) {
+        String key = (baseUrl == null) ? "" : baseUrl.trim();
+        while (key.endsWith("/")) {
+            key = key.substring(0, key.length() - 1);
+        }
+        return key;
+    }
+
+}
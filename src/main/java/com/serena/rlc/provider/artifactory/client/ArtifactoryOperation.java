@@ -0,0 +1,53 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+/**
+ * Kinds of Artifactory REST requests, used to apply per-operation settings.
+ * @author klee@serena.com
+ */
+public enum ArtifactoryOperation {
+    REPOSITORIES("repositories"),
+    GAVC("gavc"),
+    AQL("aql"),
+    STORAGE("storage"),
+    DOWNLOAD("download"),
+    DEPLOY("deploy"),
+    OTHER("other");
+
+    private final String tag;
+
+    ArtifactoryOperation(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Get the operation of a request path.
+     *
+     * @param path  the request path, e.g. /api/search/gavc
+     * @return the operation
+     */
+    public static ArtifactoryOperation forPath(String path) {
+        if (path.startsWith("/api/storage")) {
+            return STORAGE;
+        } else if (path.startsWith("/api/search/gavc")) {
+            return GAVC;
+        } else if (path.startsWith("/api/search/aql")) {
+            return AQL;
+        } else if (path.startsWith("/api/repositories")) {
+            return REPOSITORIES;
+        }
+        return OTHER;
+    }
+}
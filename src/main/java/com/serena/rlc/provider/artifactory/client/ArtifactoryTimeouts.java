@@ -0,0 +1,118 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+/**
+ * Immutable connect, read and pool lease timeouts plus per-operation deadlines, in milliseconds.
+ * A deadline bounds the whole request including reading the response; 0 means no deadline.
+ * @author klee@serena.com
+ */
+public final class ArtifactoryTimeouts {
+
+    public static final long DEFAULT_CONNECT_TIMEOUT = 10000L;
+    public static final long DEFAULT_READ_TIMEOUT = 60000L;
+    public static final long DEFAULT_POOL_TIMEOUT = 10000L;
+    public static final long DEFAULT_REPOSITORY_DEADLINE = 30000L;
+    public static final long DEFAULT_SEARCH_DEADLINE = 120000L;
+    public static final long DEFAULT_STORAGE_DEADLINE = 30000L;
+
+    public static final ArtifactoryTimeouts DEFAULTS = new ArtifactoryTimeouts(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT,
+            DEFAULT_POOL_TIMEOUT, DEFAULT_REPOSITORY_DEADLINE, DEFAULT_SEARCH_DEADLINE, DEFAULT_STORAGE_DEADLINE);
+
+    private final long connectTimeout;
+    private final long readTimeout;
+    private final long poolTimeout;
+    private final long repositoryDeadline;
+    private final long searchDeadline;
+    private final long storageDeadline;
+
+    public ArtifactoryTimeouts(long connectTimeout, long readTimeout, long poolTimeout,
+                               long repositoryDeadline, long searchDeadline, long storageDeadline) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.poolTimeout = poolTimeout;
+        this.repositoryDeadline = repositoryDeadline;
+        this.searchDeadline = searchDeadline;
+        this.storageDeadline = storageDeadline;
+    }
+
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public long getReadTimeout() {
+        return readTimeout;
+    }
+
+    public long getPoolTimeout() {
+        return poolTimeout;
+    }
+
+    public long getRepositoryDeadline() {
+        return repositoryDeadline;
+    }
+
+    public long getSearchDeadline() {
+        return searchDeadline;
+    }
+
+    public long getStorageDeadline() {
+        return storageDeadline;
+    }
+
+    /**
+     * Get the deadline for an operation.
+     *
+     * @param operation  the operation
+     * @return the deadline in milliseconds, 0 for none
+     */
+    public long getDeadline(ArtifactoryOperation operation) {
+        switch (operation) {
+            case REPOSITORIES:
+                return repositoryDeadline;
+            case GAVC:
+            case AQL:
+                return searchDeadline;
+            case STORAGE:
+                return storageDeadline;
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ArtifactoryTimeouts)) return false;
+        ArtifactoryTimeouts that = (ArtifactoryTimeouts) o;
+        return connectTimeout == that.connectTimeout && readTimeout == that.readTimeout && poolTimeout == that.poolTimeout &&
+                repositoryDeadline == that.repositoryDeadline && searchDeadline == that.searchDeadline &&
+                storageDeadline == that.storageDeadline;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = connectTimeout;
+        h = 31 * h + readTimeout;
+        h = 31 * h + poolTimeout;
+        h = 31 * h + repositoryDeadline;
+        h = 31 * h + searchDeadline;
+        h = 31 * h + storageDeadline;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "ArtifactoryTimeouts{" + "connect=" + connectTimeout + ", read=" + readTimeout + ", pool=" + poolTimeout +
+                ", repositoryDeadline=" + repositoryDeadline + ", searchDeadline=" + searchDeadline +
+                ", storageDeadline=" + storageDeadline + '}';
+    }
+
+}
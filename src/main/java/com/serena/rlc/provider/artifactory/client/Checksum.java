@@ -0,0 +1,165 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * A checksum Artifactory reports for an artifact, used to verify downloaded content and to deploy
+ * content Artifactory already has by checksum.
+ * @author klee@serena.com
+ */
+public final class Checksum {
+
+    public static final String SHA256 = "SHA-256";
+    public static final String SHA1 = "SHA-1";
+    public static final String MD5 = "MD5";
+
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String algorithm;
+    private final String value;
+
+    public Checksum(String algorithm, String value) {
+        this.algorithm = algorithm;
+        this.value = value.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Get the strongest checksum known for an artifact.
+     *
+     * @param artifact  the artifact
+     * @return the SHA-256, SHA-1 or MD5 checksum, null if the artifact has none
+     */
+    public static Checksum of(Artifact artifact) {
+        if (StringUtils.isNotBlank(artifact.getSha256())) {
+            return new Checksum(SHA256, artifact.getSha256());
+        } else if (StringUtils.isNotBlank(artifact.getSha1())) {
+            return new Checksum(SHA1, artifact.getSha1());
+        } else if (StringUtils.isNotBlank(artifact.getMd5())) {
+            return new Checksum(MD5, artifact.getMd5());
+        }
+        return null;
+    }
+
+    /**
+     * Compute several checksums of a file, reading it once.
+     *
+     * @param file  the file
+     * @param algorithms  the digest algorithms, e.g. {@link #SHA1} and {@link #SHA256}
+     * @return the checksums in the order of the algorithms
+     * @throws IOException if the file can not be read
+     */
+    public static Checksum[] of(Path file, String... algorithms) throws IOException {
+        MessageDigest[] digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            digests[i] = newDigest(algorithms[i]);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                for (MessageDigest digest : digests) {
+                    buffer.mark();
+                    digest.update(buffer);
+                    buffer.reset();
+                }
+                buffer.clear();
+            }
+        }
+        Checksum[] checksums = new Checksum[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            checksums[i] = new Checksum(algorithms[i], toHex(digests[i].digest()));
+        }
+        return checksums;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Create a digest for the algorithm of this checksum.
+     *
+     * @return a new digest
+     */
+    public MessageDigest newDigest() {
+        return newDigest(algorithm);
+    }
+
+    /**
+     * Check whether a digest that has been fed the content matches this checksum.
+     *
+     * @param digest  the digest, it is reset
+     * @return true if the checksums are equal
+     */
+    public boolean matches(MessageDigest digest) {
+        return value.equals(toHex(digest.digest()));
+    }
+
+    /**
+     * Check whether the content of a file matches this checksum.
+     *
+     * @param channel  the file, read from position 0 without changing its position
+     * @return true if the content matches this checksum
+     * @throws IOException if the file can not be read
+     */
+    public boolean matches(FileChannel channel) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return matches(digest);
+    }
+
+    public static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Unsupported digest algorithm: " + algorithm, ex);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + ":" + value;
+    }
+
+}
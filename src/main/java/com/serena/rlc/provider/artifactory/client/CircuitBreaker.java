@@ -0,0 +1,122 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker for a single Artifactory base URL. After a number of consecutive failed calls the
+ * circuit opens and calls are rejected without contacting the server; once the open interval has
+ * passed a single trial call is let through and its outcome closes or re-opens the circuit.
+ * @author klee@serena.com
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 30000L;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt;
+    private long trialStartedAt;
+
+    /**
+     * Create a new circuit breaker.
+     *
+     * @param name  the name used in log messages, e.g. the base URL
+     * @param failureThreshold  the number of consecutive failures that opens the circuit
+     * @param openMillis  how long the circuit stays open before a trial call is allowed
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Check whether a call may be made now.
+     *
+     * @return true if the circuit is closed or this call is the trial call of a half open circuit
+     */
+    public synchronized boolean allowRequest() {
+        long now = System.currentTimeMillis();
+        switch (state) {
+            case OPEN:
+                if (now - openedAt < openMillis) {
+                    return false;
+                }
+                logger.info("Circuit for \"{}\" half open, sending trial request", name);
+                state = State.HALF_OPEN;
+                trialStartedAt = now;
+                return true;
+            case HALF_OPEN:
+                // allow another trial if the previous one never reported back
+                if (now - trialStartedAt < openMillis) {
+                    return false;
+                }
+                trialStartedAt = now;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Record a call that reached the server and got an answer.
+     */
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Circuit for \"{}\" closed", name);
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * Record a call that failed because the server was not available.
+     */
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            logger.warn("Circuit for \"{}\" opened after {} consecutive failures", name, failures);
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Get the time left before an open circuit allows a trial call.
+     *
+     * @return the remaining time in milliseconds, 0 if the circuit is not open
+     */
+    public synchronized long getRemainingOpenMillis() {
+        return (state == State.OPEN) ? Math.max(0L, openMillis - (System.currentTimeMillis() - openedAt)) : 0L;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{" + "name=" + name + ", state=" + state + ", failures=" + failures + '}';
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content codings accepted for Artifactory API responses. Compressed bodies are decompressed as they
+ * are read, so the JSON parser is fed straight from the connection without buffering the body.
+ * @author klee@serena.com
+ */
+final class ContentEncoding {
+
+    /**
+     * The Accept-Encoding request header value.
+     */
+    static final String ACCEPTED = "gzip, deflate";
+
+    static final String IDENTITY = "identity";
+
+    private static final int INFLATE_BUFFER_SIZE = 8192;
+
+    private ContentEncoding() {
+
+    }
+
+    /**
+     * Get the content coding of a response entity.
+     *
+     * @param entity  the response entity
+     * @return the coding in lower case, identity if there is none
+     */
+    static String of(HttpEntity entity) {
+        Header header = (entity == null) ? null : entity.getContentEncoding();
+        String value = (header == null) ? null : header.getValue();
+        return (value == null || value.trim().isEmpty()) ? IDENTITY : value.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Wrap a response body in a stream that decodes it.
+     *
+     * @param in  the body as received
+     * @param encoding  the content coding, see {@link #of(HttpEntity)}
+     * @return the decoded body
+     * @throws IOException if the body can not be decoded
+     */
+    static InputStream decode(InputStream in, String encoding) throws IOException {
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+            case "deflate":
+                return inflate(in);
+            case IDENTITY:
+                return in;
+            default:
+                throw new IOException("Unsupported response content encoding: " + encoding);
+        }
+    }
+
+    /**
+     * HTTP deflate is meant to be zlib wrapped, but some servers send a raw deflate stream; tell them
+     * apart by the zlib header.
+     */
+    private static InputStream inflate(InputStream in) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, 2);
+        int b0 = pushback.read();
+        int b1 = (b0 == -1) ? -1 : pushback.read();
+        if (b1 != -1) {
+            pushback.unread(b1);
+        }
+        if (b0 != -1) {
+            pushback.unread(b0);
+        }
+        boolean zlib = b1 != -1 && (b0 & 0x0f) == 8 && ((b0 << 8) | b1) % 31 == 0;
+        return new InflaterInputStream(pushback, new Inflater(!zlib), INFLATE_BUFFER_SIZE);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The byte ranges of a download split into parts, and which of them have been written. The completed
+ * ranges are saved next to the ".part" file after each range, so a download that failed or was
+ * interrupted resumes from where it stopped, provided the artifact has not changed in the meantime.
+ * @author klee@serena.com
+ */
+final class DownloadRanges {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadRanges.class);
+
+    static final String STATE_SUFFIX = ".ranges";
+
+    private final Path stateFile;
+    private final long size;
+    private final long rangeSize;
+    private final String identity;
+    private final BitSet completed = new BitSet();
+
+    private DownloadRanges(Path stateFile, long size, long rangeSize, String identity) {
+        this.stateFile = stateFile;
+        this.size = size;
+        this.rangeSize = rangeSize;
+        this.identity = identity;
+    }
+
+    /**
+     * Load the ranges of a download, keeping the completed ranges of an earlier attempt if it was for
+     * the same content.
+     *
+     * @param part  the file downloaded to
+     * @param size  the size of the content
+     * @param rangeSize  the size of a range
+     * @param identity  identifies the content, e.g. its checksum
+     * @return the ranges
+     */
+    static DownloadRanges open(Path part, long size, long rangeSize, String identity) {
+        DownloadRanges ranges = new DownloadRanges(part.resolveSibling(part.getFileName() + STATE_SUFFIX), size, rangeSize, identity);
+        Properties state = new Properties();
+        try (InputStream in = Files.newInputStream(ranges.stateFile)) {
+            state.load(in);
+        } catch (NoSuchFileException ex) {
+            return ranges;
+        } catch (IOException ex) {
+            logger.debug("Unable to read download state \"{}\": {}", ranges.stateFile, ex.getMessage());
+            return ranges;
+        }
+
+        if (String.valueOf(size).equals(state.getProperty("size")) && String.valueOf(rangeSize).equals(state.getProperty("rangeSize")) &&
+                identity.equals(state.getProperty("identity"))) {
+            try {
+                for (String index : state.getProperty("completed", "").split(",")) {
+                    if (!index.isEmpty()) {
+                        ranges.completed.set(Integer.parseInt(index));
+                    }
+                }
+            } catch (NumberFormatException ex) {
+                logger.debug("Ignoring invalid download state \"{}\": {}", ranges.stateFile, ex.getMessage());
+                ranges.completed.clear();
+            }
+        }
+        return ranges;
+    }
+
+    int count() {
+        return (int) ((size + rangeSize - 1) / rangeSize);
+    }
+
+    long start(int range) {
+        return range * rangeSize;
+    }
+
+    long length(int range) {
+        return Math.min(rangeSize, size - start(range));
+    }
+
+    /**
+     * Get the ranges still to be downloaded, in order.
+     *
+     * @return the range numbers
+     */
+    synchronized List<Integer> getPending() {
+        List<Integer> pending = new ArrayList<>();
+        for (int i = completed.nextClearBit(0); i < count(); i = completed.nextClearBit(i + 1)) {
+            pending.add(i);
+        }
+        return pending;
+    }
+
+    synchronized int getCompletedCount() {
+        return completed.cardinality();
+    }
+
+    /**
+     * Forget the completed ranges, e.g. when the file they were written to is gone.
+     */
+    synchronized void reset() {
+        completed.clear();
+        delete();
+    }
+
+    /**
+     * Record a range as written and save the state.
+     *
+     * @param range  the range number
+     * @throws IOException if the state can not be saved
+     */
+    synchronized void complete(int range) throws IOException {
+        completed.set(range);
+
+        StringBuilder indexes = new StringBuilder();
+        for (int i = completed.nextSetBit(0); i >= 0; i = completed.nextSetBit(i + 1)) {
+            indexes.append((indexes.length() > 0) ? "," : "").append(i);
+        }
+        Properties state = new Properties();
+        state.setProperty("size", String.valueOf(size));
+        state.setProperty("rangeSize", String.valueOf(rangeSize));
+        state.setProperty("identity", identity);
+        state.setProperty("completed", indexes.toString());
+
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            state.store(out, null);
+        }
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Delete the saved state.
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(stateFile);
+        } catch (IOException ex) {
+            logger.debug("Unable to delete download state \"{}\": {}", stateFile, ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import com.serena.rlc.provider.artifactory.domain.ArtifactQuery;
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Search engine using the GAVC search API (/api/search/gavc).
+ * The API has no paging, results are read from the start and reading stops at the limit. When only the
+ * latest versions are wanted every result is read, keeping just those versions in memory.
+ * @author klee@serena.com
+ */
+public class GavcSearchEngine implements ArtifactSearchEngine {
+
+    public static final String NAME = "gavc";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supportsOffset() {
+        return false;
+    }
+
+    @Override
+    public List<Artifact> search(ArtifactoryClient client, final ArtifactQuery query) throws ArtifactoryClientException {
+        ///api/search/gavc?g=org.acme&a=artifact&v=1.0&c=sources&repos=libs-release-local
+        if (StringUtils.isEmpty(query.getRepoId())) throw new ArtifactoryClientException("Artifactory Repository not specified");
+        StringBuilder params = new StringBuilder(64);
+        UrlBuilder.appendParam(params, "repos", query.getRepoId());
+        UrlBuilder.appendParam(params, "g", query.getGroupId());
+        UrlBuilder.appendParam(params, "a", query.getArtifactId());
+        UrlBuilder.appendParam(params, "c", query.getClassId());
+        UrlBuilder.appendParam(params, "v", query.getVersionId());
+
+        final long offset = query.getOffset();
+        List<Artifact> artifacts = client.processGet("/api/search/gavc", params.toString(), new ArtifactoryClient.ResponseReader<List<Artifact>>() {
+            @Override
+            public List<Artifact> read(Reader body) throws IOException {
+                if (query.getLatestVersions() > 0) {
+                    return Artifact.parseLatest(body, query.getLatestVersions());
+                }
+                return Artifact.parse(body, (int) Math.min(Integer.MAX_VALUE, offset + query.getLimit()));
+            }
+        });
+        int from = (int) Math.min(offset, artifacts.size());
+        int to = (int) Math.min(artifacts.size(), from + (long) query.getLimit());
+        return (from > 0 || to < artifacts.size()) ? artifacts.subList(from, to) : artifacts;
+    }
+
+}
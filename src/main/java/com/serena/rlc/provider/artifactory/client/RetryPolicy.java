@@ -0,0 +1,110 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import org.apache.http.HttpStatus;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Immutable retry policy for idempotent requests: bounded exponential backoff with full jitter.
+ * A server supplied Retry-After delay is honoured as long as it is not longer than the maximum delay.
+ * @author klee@serena.com
+ */
+public final class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY = 200L;
+    public static final long DEFAULT_MAX_DELAY = 5000L;
+    public static final long DEFAULT_MAX_RETRY_AFTER = 30000L;
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY,
+            DEFAULT_MAX_RETRY_AFTER);
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0L, 0L, 0L);
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long maxRetryAfter;
+
+    /**
+     * Create a new retry policy.
+     *
+     * @param maxAttempts  the maximum number of attempts including the first one
+     * @param baseDelay  the backoff before the first retry in milliseconds, doubled for each further retry
+     * @param maxDelay  the maximum backoff in milliseconds
+     * @param maxRetryAfter  the longest Retry-After delay in milliseconds that is waited for, longer ones fail the request
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, long maxRetryAfter) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public long getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    /**
+     * Check whether a request may be attempted again.
+     *
+     * @param attempt  the number of the attempt that just failed, starting at 1
+     * @return true if another attempt is allowed
+     */
+    public boolean canRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * Check whether a response status means the server is temporarily unable to handle the request.
+     *
+     * @param status  the HTTP status code
+     * @return true for 429, 502, 503 and 504
+     */
+    public boolean isRetryable(int status) {
+        return status == 429 || status == HttpStatus.SC_BAD_GATEWAY || status == HttpStatus.SC_SERVICE_UNAVAILABLE ||
+                status == HttpStatus.SC_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * Get the delay before the next attempt.
+     *
+     * @param attempt  the number of the attempt that just failed, starting at 1
+     * @param retryAfter  the Retry-After delay sent by the server in milliseconds, or -1 if none was sent
+     * @return the delay in milliseconds, or -1 if the server asked to wait longer than allowed
+     */
+    public long getDelay(int attempt, long retryAfter) {
+        if (retryAfter >= 0) {
+            return (retryAfter <= maxRetryAfter) ? retryAfter : -1;
+        }
+        long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        return (ceiling > 0) ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" + "maxAttempts=" + maxAttempts + ", baseDelay=" + baseDelay + ", maxDelay=" + maxDelay +
+                ", maxRetryAfter=" + maxRetryAfter + '}';
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import com.serena.rlc.provider.artifactory.exception.ArtifactoryClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical concurrent calls: the first caller for a key runs the call and every caller
+ * arriving while it is in flight waits for and shares its result or failure. Nothing is kept once
+ * the call completed, so shared results must be treated as read-only.
+ * @author klee@serena.com
+ */
+public class SingleFlight<K, V> {
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlight.class);
+
+    /**
+     * A call that can be shared by concurrent callers.
+     */
+    public interface Call<K, V> {
+        V run(K key) throws ArtifactoryClientException;
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Run a call, or join the identical call already in flight.
+     *
+     * @param key  the identity of the call, e.g. the client key and request url
+     * @param call  the call to run if none is in flight
+     * @return the result of the call
+     * @throws ArtifactoryClientException
+     */
+    public V execute(K key, Call<K, V> call) throws ArtifactoryClientException {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, result);
+        if (inFlight != null) {
+            coalesced.incrementAndGet();
+            logger.debug("Joining in flight call for {}", key);
+            return await(inFlight);
+        }
+
+        executed.incrementAndGet();
+        try {
+            V value = call.run(key);
+            result.complete(value);
+            return value;
+        } catch (ArtifactoryClientException | RuntimeException | Error ex) {
+            result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            calls.remove(key, result);
+        }
+    }
+
+    /**
+     * Get the number of calls that were run.
+     *
+     * @return the number of calls run
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * Get the number of calls that shared the result of a call in flight.
+     *
+     * @return the number of calls coalesced
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public int getInFlightCount() {
+        return calls.size();
+    }
+
+    private V await(CompletableFuture<V> inFlight) throws ArtifactoryClientException {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ArtifactoryClientException("Artifactory: Interrupted while waiting for request", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof ArtifactoryClientException) {
+                throw (ArtifactoryClientException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ArtifactoryClientException(cause);
+        }
+    }
+
+}
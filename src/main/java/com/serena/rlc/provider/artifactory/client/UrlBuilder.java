@@ -0,0 +1,197 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation light URL building with RFC 3986 percent-encoding, using precomputed character
+ * tables instead of regular expressions and a per-thread buffer instead of string concatenation.
+ * Existing percent-encoded sequences in paths are kept so already encoded storage uris are not encoded twice.
+ * @author klee@serena.com
+ */
+public final class UrlBuilder {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    // unreserved characters plus the sub-delimiters allowed unencoded in a path and a query value
+    private static final boolean[] PATH_SAFE = table("-._~!$&'()*+,;=:@/");
+    private static final boolean[] QUERY_SAFE = table("-._~!$'()*,;:@/?");
+
+    private static final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(INITIAL_CAPACITY);
+        }
+    };
+
+    private UrlBuilder() {
+    }
+
+    /**
+     * Build a url from a base url, a path and a query string.
+     *
+     * @param base  the base url, e.g. http://localhost:8081/artifactory, used as is
+     * @param path  the path, encoded where needed and prefixed with "/" if missing
+     * @param query  the query string without "?", already encoded, may be empty
+     * @return the url
+     */
+    public static String build(String base, String path, String query) {
+        StringBuilder sb = buffer();
+        sb.append(base);
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) <= ' ') start++;
+        while (end > start && path.charAt(end - 1) <= ' ') end--;
+        if (start == end || path.charAt(start) != '/') {
+            sb.append('/');
+        }
+        appendEncoded(sb, path, start, end, PATH_SAFE, true);
+        if (query != null && !query.isEmpty()) {
+            sb.append('?').append(query);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Append a query parameter, percent-encoding its value. Empty values are skipped.
+     *
+     * @param query  the query string being built
+     * @param name  the parameter name, must not need encoding
+     * @param value  the parameter value, may be null
+     * @return the query string
+     */
+    public static StringBuilder appendParam(StringBuilder query, String name, String value) {
+        if (value == null || value.isEmpty()) {
+            return query;
+        }
+        if (query.length() > 0) {
+            query.append('&');
+        }
+        query.append(name).append('=');
+        appendEncoded(query, value, 0, value.length(), QUERY_SAFE, false);
+        return query;
+    }
+
+    /**
+     * Percent-encode a query parameter value.
+     *
+     * @param value  the value
+     * @return the encoded value
+     */
+    public static String encodeQueryValue(String value) {
+        StringBuilder sb = buffer();
+        appendEncoded(sb, value, 0, value.length(), QUERY_SAFE, false);
+        return sb.toString();
+    }
+
+    /**
+     * Decode the percent-encoded sequences of a path as UTF-8. Unlike form decoding, "+" is kept, and so is a
+     * "%" not followed by two hex digits.
+     *
+     * @param path  the path, e.g. a storage path taken from a storage uri
+     * @return the decoded path
+     */
+    public static String decodePath(String path) {
+        int i = path.indexOf('%');
+        if (i < 0) {
+            return path;
+        }
+        StringBuilder sb = buffer();
+        sb.append(path, 0, i);
+        byte[] bytes = new byte[path.length() / 3];
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c != '%' || !isHex(path, i + 1, path.length()) || !isHex(path, i + 2, path.length())) {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            // collect a run of encoded bytes, a code point may span several of them
+            int count = 0;
+            while (i + 2 < path.length() && path.charAt(i) == '%' && isHex(path, i + 1, path.length()) && isHex(path, i + 2, path.length())) {
+                bytes[count++] = (byte) Integer.parseInt(path.substring(i + 1, i + 3), 16);
+                i += 3;
+            }
+            sb.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder sb = buffers.get();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            sb = new StringBuilder(INITIAL_CAPACITY);
+            buffers.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static void appendEncoded(StringBuilder sb, String value, int start, int end, boolean[] safe, boolean keepEncoded) {
+        // most values need no encoding, copy the leading safe run in one go
+        int i = start;
+        while (i < end) {
+            char c = value.charAt(i);
+            if (c >= 128 || !safe[c]) {
+                break;
+            }
+            i++;
+        }
+        if (start == 0 && i == value.length()) {
+            sb.append(value);
+            return;
+        }
+        sb.append(value, start, i);
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < 128 && safe[c]) {
+                sb.append(c);
+            } else if (c == '%' && keepEncoded && isHex(value, i + 1, end) && isHex(value, i + 2, end)) {
+                sb.append(c);
+            } else if (c < 128) {
+                appendByte(sb, c);
+            } else {
+                // encode the UTF-8 bytes of the code point, surrogate pairs included
+                int cp = value.codePointAt(i);
+                int count = Character.charCount(cp);
+                byte[] bytes = value.substring(i, Math.min(i + count, end)).getBytes(StandardCharsets.UTF_8);
+                for (byte b : bytes) {
+                    appendByte(sb, b & 0xFF);
+                }
+                i += count - 1;
+            }
+        }
+    }
+
+    private static void appendByte(StringBuilder sb, int b) {
+        sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
+    }
+
+    private static boolean isHex(String value, int i, int end) {
+        if (i >= end) {
+            return false;
+        }
+        char c = value.charAt(i);
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f');
+    }
+
+    private static boolean[] table(String extra) {
+        boolean[] safe = new boolean[128];
+        for (char c = 'a'; c <= 'z'; c++) safe[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) safe[c] = true;
+        for (char c = '0'; c <= '9'; c++) safe[c] = true;
+        for (int i = 0; i < extra.length(); i++) safe[extra.charAt(i)] = true;
+        return safe;
+    }
+
+}
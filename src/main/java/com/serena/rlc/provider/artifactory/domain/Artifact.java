@@ -9,8 +9,8 @@
  */
 package com.serena.rlc.provider.artifactory.domain;
 
-import org.apache.commons.httpclient.URI;
-import org.apache.commons.httpclient.URIException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -18,19 +18,26 @@ import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.net.URL;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
  *  Artifact Object
+ *  The size is kept as a number, repository and mime type are pooled and name and version
+ *  are derived from the path unless they were set to something else.
  * @author klee@serena.com
  */
 public class Artifact extends ArtifactoryObject {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
+
+    public static final long UNKNOWN_SIZE = -1L;
 
     private final static Logger logger = LoggerFactory.getLogger(Artifact.class);
 
@@ -38,9 +45,13 @@ public class Artifact extends ArtifactoryObject {
     private String path;
     private String downloadUri;
     private String mimeType;
-    private String size;
-    private String name;
-    private String version;
+    private long size = UNKNOWN_SIZE;
+    private String name;    // only set if it differs from the path
+    private String version; // only set if it differs from the path
+    private String sha1;
+    private String sha256;
+    private String md5;
+    private Map<String, String> properties;
 
     public Artifact() {
 
@@ -59,7 +70,7 @@ public class Artifact extends ArtifactoryObject {
     }
 
     public void setRepo(String repo) {
-        this.repo = repo;
+        this.repo = StringPool.intern(repo);
     }
 
     public String getPath() {
@@ -83,48 +94,168 @@ public class Artifact extends ArtifactoryObject {
     }
 
     public void setMimeType(String mimeType) {
-        this.mimeType = mimeType;
+        this.mimeType = StringPool.intern(mimeType);
     }
 
     public String getSize() {
-        return size;
+        return (size == UNKNOWN_SIZE) ? null : String.valueOf(size);
     }
 
     public void setSize(String size) {
+        this.size = NumberUtils.toLong(size, UNKNOWN_SIZE);
+    }
+
+    public long getSizeBytes() {
+        return size;
+    }
+
+    public void setSizeBytes(long size) {
         this.size = size;
     }
 
     public String getVersion() {
-        return version;
+        if (version != null) {
+            return version;
+        }
+        // the folder the artifact is in, e.g. /org/acme/app/1.0/app-1.0.jar
+        if (path == null) {
+            return null;
+        }
+        int end = path.lastIndexOf('/');
+        int start = (end > 0) ? path.lastIndexOf('/', end - 1) : -1;
+        return (start >= 0) ? path.substring(start + 1, end) : null;
     }
 
     public void setVersion(String version) {
-        this.version = version;
+        this.version = null;
+        if (!StringUtils.equals(version, getVersion())) {
+            this.version = version;
+        }
     }
 
     public String getName() {
-        return name;
+        if (name != null) {
+            return name;
+        }
+        return (path == null) ? null : path.substring(path.lastIndexOf('/') + 1);
     }
 
     public void setName(String name) {
-        this.name = name;
+        this.name = null;
+        if (!StringUtils.equals(name, getName())) {
+            this.name = name;
+        }
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    public void setSha1(String sha1) {
+        this.sha1 = sha1;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public void setProperties(Map<String, String> properties) {
+        this.properties = properties;
     }
 
     public static List<Artifact> parse(String options) {
-        List<Artifact> list = new ArrayList<>();
-        JSONParser parser = new JSONParser();
         try {
-            Object parsedObject = parser.parse(options);
-            JSONArray jsonArray = (JSONArray) getJSONValue((JSONObject) parsedObject, "results");
-            for (Object object : jsonArray) {
-                Artifact aObj = parseSingle((JSONObject)object);
-                list.add(aObj);
+            return parse(new StringReader(options), Integer.MAX_VALUE);
+        } catch (IOException e) {
+            // a StringReader does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parse search results as they are read, without building the whole JSON tree.
+     *
+     * @param reader  the reader for the response body
+     * @param limit  the maximum number of artifacts, reading stops once it is reached
+     * @return a list of Artifacts
+     * @throws IOException if the body can not be read, e.g. the connection is lost
+     */
+    public static List<Artifact> parse(Reader reader, int limit) throws IOException {
+        return parse(reader, new ArtifactResultsHandler(limit));
+    }
+
+    /**
+     * Parse search results as they are read, keeping only the newest versions of each artifact.
+     *
+     * @param reader  the reader for the response body
+     * @param latestVersions  the number of versions to keep per artifact
+     * @return a list of Artifacts, newest version first
+     * @throws IOException if the body can not be read, e.g. the connection is lost
+     */
+    public static List<Artifact> parseLatest(Reader reader, int latestVersions) throws IOException {
+        return parse(reader, new ArtifactResultsHandler(Integer.MAX_VALUE, ArtifactResultsHandler.STORAGE_INFO_MAPPER, new LatestVersions(latestVersions)));
+    }
+
+    /**
+     * Parse AQL items.find() results as they are read.
+     *
+     * @param reader  the reader for the response body
+     * @param limit  the maximum number of artifacts, reading stops once it is reached
+     * @param baseUrl  the Artifactory url used to build storage and download uris
+     * @return a list of Artifacts
+     * @throws IOException if the body can not be read, e.g. the connection is lost
+     */
+    public static List<Artifact> parseAql(Reader reader, int limit, final String baseUrl) throws IOException {
+        return parse(reader, new ArtifactResultsHandler(limit, aqlMapper(baseUrl)));
+    }
+
+    /**
+     * Parse AQL items.find() results as they are read, keeping only the newest versions of each artifact.
+     *
+     * @param reader  the reader for the response body
+     * @param latestVersions  the number of versions to keep per artifact
+     * @param baseUrl  the Artifactory url used to build storage and download uris
+     * @return a list of Artifacts, newest version first
+     * @throws IOException if the body can not be read, e.g. the connection is lost
+     */
+    public static List<Artifact> parseAqlLatest(Reader reader, int latestVersions, String baseUrl) throws IOException {
+        return parse(reader, new ArtifactResultsHandler(Integer.MAX_VALUE, aqlMapper(baseUrl), new LatestVersions(latestVersions)));
+    }
+
+    private static ArtifactResultsHandler.Mapper aqlMapper(final String baseUrl) {
+        return new ArtifactResultsHandler.Mapper() {
+            @Override
+            public Artifact map(JSONObject element) {
+                return parseAqlItem(element, baseUrl);
             }
+        };
+    }
+
+    private static List<Artifact> parse(Reader reader, ArtifactResultsHandler handler) throws IOException {
+        JSONParser parser = new JSONParser();
+        try {
+            parser.parse(reader, handler);
         } catch (ParseException e) {
-            logger.error("Error while parsing input JSON - " + options, e);
+            logger.error("Error while parsing input JSON at position " + parser.getPosition(), e);
         }
 
-        return list;
+        return handler.getArtifacts();
     }
 
     public static Artifact parseSingle(String options) {
@@ -142,30 +273,95 @@ public class Artifact extends ArtifactoryObject {
     public static Artifact parseSingle(JSONObject jsonObject) {
         Artifact aObj = null;
         if (jsonObject != null) {
-            aObj = new Artifact((String) getJSONValue(jsonObject, "uri"),
-                    (String) jsonObject.get("path"),
-                    (String) jsonObject.get("downloadUri")
+            // name and version are derived from the path, each field is looked up once
+            aObj = new Artifact(getJSONString(jsonObject, "uri"),
+                    getJSONString(jsonObject, "path"),
+                    getJSONString(jsonObject, "downloadUri")
             );
-            aObj.setRepo((String) jsonObject.get("repo"));
-            aObj.setCreated((String) jsonObject.get("created"));
-            aObj.setCreatedBy((String) jsonObject.get("createdBy"));
-            aObj.setLastModified((String) jsonObject.get("lastModified"));
-            aObj.setModifiedBy((String) jsonObject.get("modifiedBy"));
-            aObj.setLastUpdated((String) jsonObject.get("lastUpdated"));
-            aObj.setMimeType((String) jsonObject.get("mimeType"));
-            aObj.setSize((String) jsonObject.get("size"));
-            try {
-                URI uri = new URI((String) getJSONValue(jsonObject, "uri"));
-                aObj.setName(uri.getName());
-                String[] segments = uri.getPath().split("/");
-                aObj.setVersion(segments[segments.length-2]);
-            } catch (URIException ex) {
-                logger.error("Error while parsing input JSON - " + (String) getJSONValue(jsonObject, "uri"), ex);
+            aObj.setRepo(getJSONString(jsonObject, "repo"));
+            aObj.setCreated(getJSONString(jsonObject, "created"));
+            aObj.setCreatedBy(getJSONString(jsonObject, "createdBy"));
+            aObj.setLastModified(getJSONString(jsonObject, "lastModified"));
+            aObj.setModifiedBy(getJSONString(jsonObject, "modifiedBy"));
+            aObj.setLastUpdated(getJSONString(jsonObject, "lastUpdated"));
+            aObj.setMimeType(getJSONString(jsonObject, "mimeType"));
+            aObj.setSize(getJSONString(jsonObject, "size"));
+            Object checksums = jsonObject.get("checksums");
+            if (checksums instanceof JSONObject) {
+                JSONObject sums = (JSONObject) checksums;
+                aObj.setSha1(getJSONString(sums, "sha1"));
+                aObj.setSha256(getJSONString(sums, "sha256"));
+                aObj.setMd5(getJSONString(sums, "md5"));
+            }
+            Object properties = jsonObject.get("properties");
+            if (properties instanceof JSONObject) {
+                Map<?, ?> props = (JSONObject) properties;
+                Map<String, String> values = new LinkedHashMap<>(props.size() * 2);
+                for (Map.Entry<?, ?> property : props.entrySet()) {
+                    Object value = property.getValue();
+                    values.put((String) property.getKey(), (value instanceof List) ? StringUtils.join((List<?>) value, ",") : String.valueOf(value));
+                }
+                aObj.setProperties(values);
+            }
+        }
+        return aObj;
+    }
+
+    /**
+     * Map an AQL items.find() result to an artifact.
+     *
+     * @param jsonObject  the AQL item with repo, path and name
+     * @param baseUrl  the Artifactory url used to build storage and download uris
+     * @return the artifact
+     */
+    public static Artifact parseAqlItem(JSONObject jsonObject, String baseUrl) {
+        Artifact aObj = null;
+        if (jsonObject != null) {
+            String repo = (String) jsonObject.get("repo");
+            String folder = (String) jsonObject.get("path");
+            String name = (String) jsonObject.get("name");
+            // AQL uses "." as the path of items in the repository root
+            String path = (folder == null || ".".equals(folder)) ? "/" + name : "/" + folder + "/" + name;
+
+            aObj = new Artifact(baseUrl + "/api/storage/" + repo + path, path, baseUrl + "/" + repo + path);
+            aObj.setRepo(repo);
+            aObj.setCreated(getJSONString(jsonObject, "created"));
+            aObj.setCreatedBy(getJSONString(jsonObject, "created_by"));
+            aObj.setLastModified(getJSONString(jsonObject, "modified"));
+            aObj.setModifiedBy(getJSONString(jsonObject, "modified_by"));
+            aObj.setLastUpdated(getJSONString(jsonObject, "updated"));
+            Object size = jsonObject.get("size");
+            aObj.setSizeBytes((size instanceof Number) ? ((Number) size).longValue() : UNKNOWN_SIZE);
+            aObj.setSha1(getJSONString(jsonObject, "actual_sha1"));
+            aObj.setMd5(getJSONString(jsonObject, "actual_md5"));
+            aObj.setSha256(getJSONString(jsonObject, "sha256"));
+            JSONArray properties = (JSONArray) jsonObject.get("properties");
+            if (properties != null) {
+                Map<String, String> values = new LinkedHashMap<>();
+                for (Object property : properties) {
+                    JSONObject p = (JSONObject) property;
+                    String key = (String) p.get("key");
+                    String value = (String) p.get("value");
+                    String existing = values.get(key);
+                    values.put(key, (existing == null) ? value : existing + "," + value);
+                }
+                aObj.setProperties(values);
             }
         }
         return aObj;
     }
 
+    /**
+     * Share the pooled strings again after deserialization.
+     */
+    private Object readResolve() {
+        setRepo(repo);
+        setMimeType(mimeType);
+        setCreatedBy(getCreatedBy());
+        setModifiedBy(getModifiedBy());
+        return this;
+    }
+
     @Override
     public String toString() {
         return "Artifact{" + "repo=" + getRepo() + ", downloadUri=" + getDownloadUri() + '}';
@@ -0,0 +1,143 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Artifact search criteria in Maven GAVC terms, with the range of results to return.
+ * @author klee@serena.com
+ */
+public class ArtifactQuery implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String repoId;
+    private String groupId;
+    private String artifactId;
+    private String classId;
+    private String versionId;
+    private long offset;
+    private int limit = Integer.MAX_VALUE;
+    private int latestVersions;
+
+    public ArtifactQuery() {
+
+    }
+
+    public ArtifactQuery(String repoId, String groupId, String artifactId, String classId, String versionId) {
+        this.repoId = repoId;
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.classId = classId;
+        this.versionId = versionId;
+    }
+
+    public ArtifactQuery(ArtifactQuery query) {
+        this(query.repoId, query.groupId, query.artifactId, query.classId, query.versionId);
+        this.offset = query.offset;
+        this.limit = query.limit;
+        this.latestVersions = query.latestVersions;
+    }
+
+    public String getRepoId() {
+        return repoId;
+    }
+
+    public void setRepoId(String repoId) {
+        this.repoId = repoId;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public void setArtifactId(String artifactId) {
+        this.artifactId = artifactId;
+    }
+
+    public String getClassId() {
+        return classId;
+    }
+
+    public void setClassId(String classId) {
+        this.classId = classId;
+    }
+
+    public String getVersionId() {
+        return versionId;
+    }
+
+    public void setVersionId(String versionId) {
+        this.versionId = versionId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getLatestVersions() {
+        return latestVersions;
+    }
+
+    /**
+     * Keep only the newest versions of each artifact, ordered newest version first. The offset and
+     * limit then apply to the selected artifacts.
+     *
+     * @param latestVersions  the number of versions to keep per artifact, 0 to keep all in search order
+     */
+    public void setLatestVersions(int latestVersions) {
+        this.latestVersions = latestVersions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ArtifactQuery)) return false;
+        ArtifactQuery that = (ArtifactQuery) o;
+        return offset == that.offset && limit == that.limit && latestVersions == that.latestVersions &&
+                Objects.equals(repoId, that.repoId) && Objects.equals(groupId, that.groupId) && Objects.equals(artifactId, that.artifactId) &&
+                Objects.equals(classId, that.classId) && Objects.equals(versionId, that.versionId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(repoId, groupId, artifactId, classId, versionId, offset, limit, latestVersions);
+    }
+
+    @Override
+    public String toString() {
+        return "ArtifactQuery{" + "repo=" + repoId + ", g=" + groupId + ", a=" + artifactId + ", c=" + classId +
+                ", v=" + versionId + ", offset=" + offset + ", limit=" + limit +
+                ", latest=" + latestVersions + '}';
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Streaming handler for search responses of the form {"results": [ {...}, {...} ]}.
+ * Only the result element currently being read is held in memory; each completed element is
+ * mapped to an {@link Artifact} straight away and parsing stops once the limit is reached. With
+ * {@link LatestVersions} every result is read and only the newest versions of each artifact are kept.
+ * @author klee@serena.com
+ */
+public class ArtifactResultsHandler implements ContentHandler {
+
+    /**
+     * Maps a single result element to an artifact.
+     */
+    public interface Mapper {
+        Artifact map(JSONObject element);
+    }
+
+    static final Mapper STORAGE_INFO_MAPPER = new Mapper() {
+        @Override
+        public Artifact map(JSONObject element) {
+            return Artifact.parseSingle(element);
+        }
+    };
+
+    private final int limit;
+    private final Mapper mapper;
+    private final LatestVersions latestVersions;
+    private final List<Artifact> artifacts = new ArrayList<>();
+
+    private final Deque<Object> containers = new ArrayDeque<>();
+    private final Deque<String> keys = new ArrayDeque<>();
+    private int depth = 0;
+    private String topLevelKey;
+    private boolean inResults = false;
+    private boolean limitReached = false;
+
+    public ArtifactResultsHandler(int limit) {
+        this(limit, STORAGE_INFO_MAPPER);
+    }
+
+    public ArtifactResultsHandler(int limit, Mapper mapper) {
+        this(limit, mapper, null);
+    }
+
+    /**
+     * @param limit  the maximum number of artifacts, ignored when latestVersions is set
+     * @param mapper  maps result elements to artifacts
+     * @param latestVersions  keeps the newest versions of each artifact, or null to keep results in order
+     */
+    public ArtifactResultsHandler(int limit, Mapper mapper, LatestVersions latestVersions) {
+        this.limit = limit;
+        this.mapper = mapper;
+        this.latestVersions = latestVersions;
+    }
+
+    public List<Artifact> getArtifacts() {
+        return (latestVersions != null) ? latestVersions.getArtifacts() : artifacts;
+    }
+
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    @Override
+    public void startJSON() {
+    }
+
+    @Override
+    public void endJSON() {
+    }
+
+    @Override
+    public boolean startObject() {
+        if (!containers.isEmpty()) {
+            JSONObject object = new JSONObject();
+            attach(object);
+            containers.push(object);
+        } else if (inResults && depth == 2) {
+            containers.push(new JSONObject());
+        } else {
+            depth++;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObject() {
+        if (!containers.isEmpty()) {
+            Object completed = containers.pop();
+            if (containers.isEmpty()) {
+                return onResult((JSONObject) completed);
+            }
+        } else {
+            depth--;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        if (!containers.isEmpty()) {
+            keys.push(key);
+        } else if (depth == 1) {
+            topLevelKey = key;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        if (!containers.isEmpty()) {
+            keys.pop();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        if (!containers.isEmpty()) {
+            JSONArray array = new JSONArray();
+            attach(array);
+            containers.push(array);
+        } else {
+            depth++;
+            if (depth == 2 && "results".equals(topLevelKey)) {
+                inResults = true;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endArray() {
+        if (!containers.isEmpty()) {
+            containers.pop();
+        } else {
+            if (depth == 2) {
+                inResults = false;
+            }
+            depth--;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) {
+        if (!containers.isEmpty()) {
+            attach(value);
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void attach(Object value) {
+        Object parent = containers.peek();
+        if (parent instanceof JSONObject) {
+            ((JSONObject) parent).put(keys.peek(), value);
+        } else {
+            ((JSONArray) parent).add(value);
+        }
+    }
+
+    private boolean onResult(JSONObject result) {
+        if (latestVersions != null) {
+            latestVersions.add(mapper.map(result));
+            return true;
+        }
+        artifacts.add(mapper.map(result));
+        if (artifacts.size() >= limit) {
+            limitReached = true;
+            return false;
+        }
+        return true;
+    }
+
+}
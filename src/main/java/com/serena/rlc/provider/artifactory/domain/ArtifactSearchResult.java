@@ -0,0 +1,121 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Window of artifact search results, kept between page requests of the same search.
+ * @author klee@serena.com
+ */
+public class ArtifactSearchResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Artifact> artifacts;
+    private final boolean complete;
+
+    /**
+     * Create a new result window.
+     *
+     * @param artifacts  the artifacts retrieved so far, in server order
+     * @param complete  true if there are no further results on the server
+     */
+    public ArtifactSearchResult(List<Artifact> artifacts, boolean complete) {
+        this.artifacts = Collections.unmodifiableList(artifacts);
+        this.complete = complete;
+    }
+
+    public List<Artifact> getArtifacts() {
+        return artifacts;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int size() {
+        return artifacts.size();
+    }
+
+    /**
+     * Check whether this window can serve a page without another search.
+     *
+     * @param end  the index after the last result of the page
+     * @return true if the page is covered
+     */
+    public boolean covers(long end) {
+        return complete || artifacts.size() >= end;
+    }
+
+    /**
+     * Get a page of results.
+     *
+     * @param start  the index of the first result
+     * @param count  the maximum number of results
+     * @return the artifacts of the page, empty if start is past the end
+     */
+    public List<Artifact> getPage(long start, long count) {
+        int from = (int) Math.min(start, artifacts.size());
+        int to = (int) Math.min(start + count, artifacts.size());
+        return artifacts.subList(from, to);
+    }
+
+    /**
+     * Merge the results of several repositories. An artifact found more than once with the same SHA-1
+     * checksum is kept once, from its most recently modified copy, and the merged list is ordered by
+     * last modification, most recent first.
+     *
+     * @param results  the results per repository
+     * @param limit  the maximum number of merged artifacts
+     * @return the merged results, complete if every result was complete and none was cut off
+     */
+    public static ArtifactSearchResult merge(List<ArtifactSearchResult> results, int limit) {
+        boolean complete = true;
+        Map<String, Artifact> merged = new LinkedHashMap<>();
+        for (ArtifactSearchResult result : results) {
+            complete &= result.isComplete();
+            for (Artifact artifact : result.getArtifacts()) {
+                String key = StringUtils.isNotEmpty(artifact.getSha1()) ? artifact.getSha1() : "/" + artifact.getRepo() + artifact.getPath();
+                Artifact existing = merged.get(key);
+                if (existing == null || artifact.getLastModifiedMillis() > existing.getLastModifiedMillis()) {
+                    merged.put(key, artifact);
+                }
+            }
+        }
+
+        List<Artifact> artifacts = new ArrayList<>(merged.values());
+        Collections.sort(artifacts, new Comparator<Artifact>() {
+            @Override
+            public int compare(Artifact a1, Artifact a2) {
+                return Long.compare(a2.getLastModifiedMillis(), a1.getLastModifiedMillis());
+            }
+        });
+        if (artifacts.size() > limit) {
+            artifacts = new ArrayList<>(artifacts.subList(0, limit));
+            complete = false;
+        }
+        return new ArtifactSearchResult(artifacts, complete);
+    }
+
+    @Override
+    public String toString() {
+        return "ArtifactSearchResult{" + "size=" + artifacts.size() + ", complete=" + complete + '}';
+    }
+
+}
@@ -12,23 +12,33 @@ package com.serena.rlc.provider.artifactory.domain;
 import org.json.simple.JSONObject;
 
 import java.io.Serializable;
+import java.time.OffsetDateTime;
 
 /**
  * Base Artifactory Object
+ * Timestamps are kept as epoch milliseconds with their offset and user names are pooled;
+ * the String accessors convert on the fly and return the server text unchanged, which is only
+ * kept when it is not in the usual Artifactory format or can not be parsed.
  * @author klee@serena.com
  */
 public class ArtifactoryObject implements Serializable {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 3L;
 
     private String id; // usually uri
     private String title;
     private String description;
-    private String created;
+    private long created = Timestamps.NONE;
+    private int createdOffset;
+    private String createdText;
     private String createdBy;
-    private String lastModified;
+    private long lastModified = Timestamps.NONE;
+    private int lastModifiedOffset;
+    private String lastModifiedText;
     private String modifiedBy;
-    private String lastUpdated;
+    private long lastUpdated = Timestamps.NONE;
+    private int lastUpdatedOffset;
+    private String lastUpdatedText;
 
     public ArtifactoryObject() {
 
@@ -65,11 +75,23 @@ public class ArtifactoryObject implements Serializable {
     }
 
     public String getCreated() {
-        return created;
+        return (createdText != null) ? createdText : Timestamps.format(created, createdOffset);
     }
 
     public void setCreated(String created) {
+        OffsetDateTime timestamp = Timestamps.parse(created);
+        this.created = Timestamps.toMillis(timestamp);
+        this.createdOffset = Timestamps.toOffsetSeconds(timestamp);
+        this.createdText = Timestamps.unlessFormatted(created, this.created, this.createdOffset);
+    }
+
+    public long getCreatedMillis() {
+        return created;
+    }
+
+    public void setCreatedMillis(long created) {
         this.created = created;
+        this.createdText = null;
     }
 
     public String getCreatedBy() {
@@ -77,15 +99,27 @@ public class ArtifactoryObject implements Serializable {
     }
 
     public void setCreatedBy(String created) {
-        this.createdBy = created;
+        this.createdBy = StringPool.intern(created);
     }
 
     public String getLastModified() {
-        return lastModified;
+        return (lastModifiedText != null) ? lastModifiedText : Timestamps.format(lastModified, lastModifiedOffset);
     }
 
     public void setLastModified(String lastModified) {
+        OffsetDateTime timestamp = Timestamps.parse(lastModified);
+        this.lastModified = Timestamps.toMillis(timestamp);
+        this.lastModifiedOffset = Timestamps.toOffsetSeconds(timestamp);
+        this.lastModifiedText = Timestamps.unlessFormatted(lastModified, this.lastModified, this.lastModifiedOffset);
+    }
+
+    public long getLastModifiedMillis() {
+        return lastModified;
+    }
+
+    public void setLastModifiedMillis(long lastModified) {
         this.lastModified = lastModified;
+        this.lastModifiedText = null;
     }
 
     public String getModifiedBy() {
@@ -93,23 +127,43 @@ public class ArtifactoryObject implements Serializable {
     }
 
     public void setModifiedBy(String modifiedBy) {
-        this.modifiedBy = modifiedBy;
+        this.modifiedBy = StringPool.intern(modifiedBy);
     }
 
     public String getLastUpdated() {
-        return lastUpdated;
+        return (lastUpdatedText != null) ? lastUpdatedText : Timestamps.format(lastUpdated, lastUpdatedOffset);
     }
 
     public void setLastUpdated(String lastUpdated) {
+        OffsetDateTime timestamp = Timestamps.parse(lastUpdated);
+        this.lastUpdated = Timestamps.toMillis(timestamp);
+        this.lastUpdatedOffset = Timestamps.toOffsetSeconds(timestamp);
+        this.lastUpdatedText = Timestamps.unlessFormatted(lastUpdated, this.lastUpdated, this.lastUpdatedOffset);
+    }
+
+    public long getLastUpdatedMillis() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdatedMillis(long lastUpdated) {
         this.lastUpdated = lastUpdated;
+        this.lastUpdatedText = null;
     }
 
     public static Object getJSONValue(JSONObject obj, String key) {
-        Object retObj = null;
-        if (obj.containsKey(key)) {
-            return obj.get(key);
-        }
-        return retObj;
+        return obj.get(key);
+    }
+
+    /**
+     * Get a JSON value as a string with a single lookup, numbers and booleans are converted.
+     *
+     * @param obj  the JSON object
+     * @param key  the key of the value
+     * @return the value or null if it is missing
+     */
+    public static String getJSONString(JSONObject obj, String key) {
+        Object value = obj.get(key);
+        return (value == null || value instanceof String) ? (String) value : String.valueOf(value);
     }
 
     @Override
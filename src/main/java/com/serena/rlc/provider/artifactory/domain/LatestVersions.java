@@ -0,0 +1,125 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Keeps the newest versions of each artifact while results are streamed. Each artifact, i.e. each
+ * group and artifact id folder, has a bounded min-heap of at most count versions holding every file of
+ * those versions; a file of an older version than the heap minimum is dropped straight away, so memory
+ * stays bounded by the number of artifacts times count however many results are read.
+ * @author klee@serena.com
+ */
+public class LatestVersions {
+
+    private final int count;
+    private final Map<String, Module> modules = new LinkedHashMap<>();
+
+    public LatestVersions(int count) {
+        this.count = count;
+    }
+
+    /**
+     * Offer an artifact.
+     *
+     * @param artifact  the artifact
+     * @return true if the artifact is one of the newest versions so far
+     */
+    public boolean add(Artifact artifact) {
+        String path = artifact.getPath();
+        int end = (path == null) ? -1 : path.lastIndexOf('/');
+        int start = (end > 0) ? path.lastIndexOf('/', end - 1) : -1;
+        // the same version found in several repositories counts once
+        String moduleKey = (start >= 0) ? path.substring(0, start) : "";
+
+        Module module = modules.get(moduleKey);
+        if (module == null) {
+            module = new Module();
+            modules.put(moduleKey, module);
+        }
+        return module.add(artifact);
+    }
+
+    /**
+     * Get the artifacts kept, newest version first.
+     *
+     * @return the artifacts
+     */
+    public List<Artifact> getArtifacts() {
+        List<MavenVersion.Keyed> keyed = new ArrayList<>();
+        for (Module module : modules.values()) {
+            for (Map.Entry<MavenVersion, List<Artifact>> version : module.versions.entrySet()) {
+                for (Artifact artifact : version.getValue()) {
+                    keyed.add(new MavenVersion.Keyed(version.getKey(), artifact));
+                }
+            }
+        }
+        Collections.sort(keyed, MavenVersion.NEWEST_FIRST);
+        List<Artifact> artifacts = new ArrayList<>(keyed.size());
+        for (MavenVersion.Keyed k : keyed) {
+            artifacts.add(k.getArtifact());
+        }
+        return artifacts;
+    }
+
+    /**
+     * Keep the newest versions of the given artifacts.
+     *
+     * @param artifacts  the artifacts
+     * @param count  the number of versions to keep per artifact
+     * @return the artifacts kept, newest version first
+     */
+    public static List<Artifact> select(List<Artifact> artifacts, int count) {
+        LatestVersions latest = new LatestVersions(count);
+        for (Artifact artifact : artifacts) {
+            latest.add(artifact);
+        }
+        return latest.getArtifacts();
+    }
+
+    private class Module {
+        // ordered oldest first, so the first key is the heap minimum that is evicted
+        private final TreeMap<MavenVersion, List<Artifact>> versions = new TreeMap<>();
+        // files of one version usually arrive together, parse each version string once
+        private String lastVersion;
+        private MavenVersion lastParsed;
+
+        boolean add(Artifact artifact) {
+            String value = artifact.getVersion();
+            if (lastParsed == null || !Objects.equals(value, lastVersion)) {
+                lastVersion = value;
+                lastParsed = MavenVersion.of(value);
+            }
+            MavenVersion version = lastParsed;
+
+            List<Artifact> files = versions.get(version);
+            if (files == null) {
+                if (versions.size() >= count && version.compareTo(versions.firstKey()) < 0) {
+                    return false;
+                }
+                files = new ArrayList<>(2);
+                versions.put(version, files);
+                if (versions.size() > count) {
+                    versions.pollFirstEntry();
+                }
+            }
+            files.add(artifact);
+            return true;
+        }
+    }
+
+}
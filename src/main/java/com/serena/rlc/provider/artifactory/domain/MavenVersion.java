@@ -0,0 +1,291 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maven version, ordered like Maven's ComparableVersion: 1.0-alpha-1 &lt; 1.0-beta &lt; 1.0-rc &lt; 1.0-SNAPSHOT
+ * &lt; 1.0 = 1.0.0 = 1.0-ga &lt; 1.0-sp &lt; 1.0.1 &lt; 1.10. A version is parsed once into a sortable key, so sorting
+ * many artifacts compares keys instead of parsing versions again.
+ * @author klee@serena.com
+ */
+public final class MavenVersion implements Comparable<MavenVersion> {
+
+    private static final List<String> QUALIFIERS = Arrays.asList("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+    private static final String RELEASE_INDEX = String.valueOf(QUALIFIERS.indexOf(""));
+
+    /**
+     * Orders artifacts newest version first, artifacts without a version last.
+     */
+    public static final Comparator<Keyed> NEWEST_FIRST = new Comparator<Keyed>() {
+        @Override
+        public int compare(Keyed k1, Keyed k2) {
+            return k2.version.compareTo(k1.version);
+        }
+    };
+
+    private final String value;
+    private final Object[] items;
+
+    private MavenVersion(String value) {
+        this.value = value;
+        this.items = parse(value == null ? "" : value.toLowerCase(Locale.ENGLISH));
+    }
+
+    public static MavenVersion of(String value) {
+        return new MavenVersion(value);
+    }
+
+    /**
+     * Compare two version strings.
+     *
+     * @param v1  the first version
+     * @param v2  the second version
+     * @return a negative number, zero or a positive number as v1 is older, equal or newer than v2
+     */
+    public static int compare(String v1, String v2) {
+        return of(v1).compareTo(of(v2));
+    }
+
+    /**
+     * Sort artifacts by version, newest first. Each version is parsed once; artifacts of the same
+     * version keep their order.
+     *
+     * @param artifacts  the artifacts
+     * @return a new sorted list
+     */
+    public static List<Artifact> sortNewestFirst(List<Artifact> artifacts) {
+        List<Keyed> keyed = new ArrayList<>(artifacts.size());
+        for (Artifact artifact : artifacts) {
+            keyed.add(new Keyed(of(artifact.getVersion()), artifact));
+        }
+        Collections.sort(keyed, NEWEST_FIRST);
+        List<Artifact> sorted = new ArrayList<>(keyed.size());
+        for (Keyed k : keyed) {
+            sorted.add(k.artifact);
+        }
+        return sorted;
+    }
+
+    @Override
+    public int compareTo(MavenVersion other) {
+        return compareLists(items, other.items);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MavenVersion && compareTo((MavenVersion) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(items);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    /**
+     * An artifact with its parsed version.
+     */
+    public static final class Keyed {
+        final MavenVersion version;
+        final Artifact artifact;
+
+        public Keyed(MavenVersion version, Artifact artifact) {
+            this.version = version;
+            this.artifact = artifact;
+        }
+
+        public MavenVersion getVersion() {
+            return version;
+        }
+
+        public Artifact getArtifact() {
+            return artifact;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // items are Long for numbers, String for comparable qualifiers and Object[] for sub lists started by "-"
+
+    private static Object[] parse(String version) {
+        List<Object> root = new ArrayList<>();
+        List<Object> list = root;
+        List<List<Object>> stack = new ArrayList<>();
+        stack.add(root);
+
+        boolean digit = false;
+        int start = 0;
+        for (int i = 0; i < version.length(); i++) {
+            char c = version.charAt(i);
+            if (c == '.') {
+                list.add((i == start) ? Long.valueOf(0) : item(digit, version.substring(start, i)));
+                start = i + 1;
+            } else if (c == '-') {
+                list.add((i == start) ? Long.valueOf(0) : item(digit, version.substring(start, i)));
+                start = i + 1;
+                list = newList(list, stack);
+            } else if (Character.isDigit(c)) {
+                if (!digit && i > start) {
+                    // a qualifier directly followed by a number, e.g. alpha1
+                    list.add(qualifier(version.substring(start, i), true));
+                    start = i;
+                    list = newList(list, stack);
+                }
+                digit = true;
+            } else {
+                if (digit && i > start) {
+                    // a number directly followed by a qualifier, e.g. 1a
+                    list.add(item(true, version.substring(start, i)));
+                    start = i;
+                    list = newList(list, stack);
+                }
+                digit = false;
+            }
+        }
+        if (version.length() > start) {
+            list.add(item(digit, version.substring(start)));
+        }
+
+        // drop trailing null items, innermost lists first
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            normalize(stack.get(i));
+        }
+        return toArray(root);
+    }
+
+    private static List<Object> newList(List<Object> parent, List<List<Object>> stack) {
+        List<Object> list = new ArrayList<>();
+        parent.add(list);
+        stack.add(list);
+        return list;
+    }
+
+    private static Object item(boolean digit, String token) {
+        if (digit) {
+            String trimmed = token.replaceFirst("^0+(?=\\d)", "");
+            // numbers beyond a long keep their digits, longer digit strings are larger
+            return (trimmed.length() < 19) ? (Object) Long.valueOf(trimmed) : (Object) ("#" + (char) ('a' + trimmed.length()) + trimmed);
+        }
+        return qualifier(token, false);
+    }
+
+    private static String qualifier(String qualifier, boolean followedByDigit) {
+        String q = qualifier;
+        if (followedByDigit && q.length() == 1) {
+            q = ("a".equals(q)) ? "alpha" : ("b".equals(q)) ? "beta" : ("m".equals(q)) ? "milestone" : q;
+        }
+        if ("ga".equals(q) || "final".equals(q) || "release".equals(q)) {
+            q = "";
+        } else if ("cr".equals(q)) {
+            q = "rc";
+        }
+        int index = QUALIFIERS.indexOf(q);
+        // unknown qualifiers sort after the known ones, alphabetically
+        return (index >= 0) ? String.valueOf(index) : QUALIFIERS.size() + "-" + q;
+    }
+
+    private static void normalize(List<Object> list) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            Object last = list.get(i);
+            if (isNull(last)) {
+                list.remove(i);
+            } else if (!(last instanceof List)) {
+                break;
+            }
+        }
+    }
+
+    private static boolean isNull(Object item) {
+        if (item instanceof Long) {
+            return (Long) item == 0L;
+        } else if (item instanceof String) {
+            return RELEASE_INDEX.equals(item);
+        }
+        return ((List<?>) item).isEmpty();
+    }
+
+    private static Object[] toArray(List<Object> list) {
+        Object[] array = new Object[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            Object item = list.get(i);
+            @SuppressWarnings("unchecked")
+            Object converted = (item instanceof List) ? toArray((List<Object>) item) : item;
+            array[i] = converted;
+        }
+        return array;
+    }
+
+    private static int compareLists(Object[] l1, Object[] l2) {
+        int length = Math.max(l1.length, l2.length);
+        for (int i = 0; i < length; i++) {
+            Object i1 = (i < l1.length) ? l1[i] : null;
+            Object i2 = (i < l2.length) ? l2[i] : null;
+            int result = (i1 == null) ? -compareItem(i2, null) : compareItem(i1, i2);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compare an item to another item or to nothing, i.e. the end of a shorter version.
+     */
+    private static int compareItem(Object item, Object other) {
+        if (item instanceof Long) {
+            if (other == null) {
+                return ((Long) item == 0L) ? 0 : 1;
+            } else if (other instanceof Long) {
+                return Long.compare((Long) item, (Long) other);
+            } else if (other instanceof String) {
+                return isBigNumber(other) ? -1 : 1;
+            }
+            return 1;
+        } else if (item instanceof String) {
+            String s = (String) item;
+            if (isBigNumber(s)) {
+                return isBigNumber(other) ? s.compareTo((String) other) : 1;
+            }
+            if (other == null) {
+                return s.compareTo(RELEASE_INDEX);
+            } else if (other instanceof Long || isBigNumber(other)) {
+                return -1;
+            } else if (other instanceof String) {
+                return s.compareTo((String) other);
+            }
+            return -1;
+        }
+        Object[] list = (Object[]) item;
+        if (other == null) {
+            return (list.length == 0) ? 0 : compareItem(list[0], null);
+        } else if (other instanceof Long || isBigNumber(other)) {
+            return -1;
+        } else if (other instanceof String) {
+            return 1;
+        }
+        return compareLists(list, (Object[]) other);
+    }
+
+    private static boolean isBigNumber(Object item) {
+        return item instanceof String && ((String) item).startsWith("#");
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded pool of canonical instances for low cardinality strings such as repository keys,
+ * mime types and user names, so thousands of artifacts share one instance of each value.
+ * @author klee@serena.com
+ */
+public final class StringPool {
+
+    public static final int MAX_SIZE = 10000;
+
+    private static final ConcurrentMap<String, String> pool = new ConcurrentHashMap<>();
+
+    private StringPool() {
+    }
+
+    /**
+     * Get the canonical instance of a string. Once the pool is full new values are returned as is.
+     *
+     * @param value  the string, may be null
+     * @return the pooled instance
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = pool.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (pool.size() >= MAX_SIZE) {
+            return value;
+        }
+        pooled = pool.putIfAbsent(value, value);
+        return (pooled == null) ? value : pooled;
+    }
+
+    public static int size() {
+        return pool.size();
+    }
+
+    public static void clear() {
+        pool.clear();
+    }
+
+}
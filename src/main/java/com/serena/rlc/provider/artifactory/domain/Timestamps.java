@@ -0,0 +1,104 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Conversion between Artifactory ISO-8601 timestamps, e.g. 2016-03-21T10:15:30.123+02:00,
+ * and epoch milliseconds with the offset of the server in seconds.
+ * @author klee@serena.com
+ */
+public final class Timestamps {
+    private static final Logger logger = LoggerFactory.getLogger(Timestamps.class);
+
+    public static final long NONE = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter ARTIFACTORY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    private Timestamps() {
+    }
+
+    /**
+     * Parse a timestamp.
+     *
+     * @param timestamp  the ISO-8601 timestamp, may be empty
+     * @return the parsed timestamp or null if it is empty or not valid
+     */
+    public static OffsetDateTime parse(String timestamp) {
+        if (StringUtils.isEmpty(timestamp)) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(timestamp);
+        } catch (DateTimeParseException ex) {
+            logger.debug("Unable to parse timestamp \"{}\"", timestamp);
+            return null;
+        }
+    }
+
+    /**
+     * Format epoch milliseconds the way Artifactory does.
+     *
+     * @param millis  the epoch milliseconds or {@link #NONE}
+     * @param offsetSeconds  the offset from UTC in seconds
+     * @return the ISO-8601 timestamp or null for {@link #NONE}
+     */
+    public static String format(long millis, int offsetSeconds) {
+        if (millis == NONE) {
+            return null;
+        }
+        return ARTIFACTORY_FORMAT.format(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.ofTotalSeconds(offsetSeconds)));
+    }
+
+    /**
+     * Get the text to keep with a parsed timestamp so that it can be returned unchanged.
+     *
+     * @param timestamp  the timestamp as received, may be empty
+     * @param millis  the parsed epoch milliseconds or {@link #NONE}
+     * @param offsetSeconds  the parsed offset from UTC in seconds
+     * @return null if {@link #format(long, int)} gives back the same text, otherwise the timestamp
+     */
+    public static String unlessFormatted(String timestamp, long millis, int offsetSeconds) {
+        if (timestamp == null || timestamp.equals(format(millis, offsetSeconds))) {
+            return null;
+        }
+        return timestamp;
+    }
+
+    /**
+     * Get the epoch milliseconds of a parsed timestamp.
+     *
+     * @param timestamp  the parsed timestamp, may be null
+     * @return the epoch milliseconds or {@link #NONE}
+     */
+    public static long toMillis(OffsetDateTime timestamp) {
+        return (timestamp == null) ? NONE : timestamp.toInstant().toEpochMilli();
+    }
+
+    /**
+     * Get the offset of a parsed timestamp.
+     *
+     * @param timestamp  the parsed timestamp, may be null
+     * @return the offset from UTC in seconds
+     */
+    public static int toOffsetSeconds(OffsetDateTime timestamp) {
+        return (timestamp == null) ? 0 : timestamp.getOffset().getTotalSeconds();
+    }
+
+}
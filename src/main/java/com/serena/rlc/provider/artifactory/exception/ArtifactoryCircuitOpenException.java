@@ -0,0 +1,35 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.exception;
+
+/**
+ * Artifactory Client Exception for requests that were not sent because the server failed repeatedly
+ * and its circuit breaker is open.
+ * @author klee@serena.com
+ */
+public class ArtifactoryCircuitOpenException extends ArtifactoryClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ArtifactoryCircuitOpenException() {
+    }
+
+    public ArtifactoryCircuitOpenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ArtifactoryCircuitOpenException(String message) {
+        super(message);
+    }
+
+    public ArtifactoryCircuitOpenException(Throwable cause) {
+        super(cause);
+    }
+}
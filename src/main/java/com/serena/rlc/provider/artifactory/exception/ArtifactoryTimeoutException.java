@@ -0,0 +1,35 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.exception;
+
+/**
+ * Artifactory Client Exception for requests that timed out connecting, reading, waiting for a
+ * pooled connection or exceeded their deadline.
+ * @author klee@serena.com
+ */
+public class ArtifactoryTimeoutException extends ArtifactoryClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ArtifactoryTimeoutException() {
+    }
+
+    public ArtifactoryTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ArtifactoryTimeoutException(String message) {
+        super(message);
+    }
+
+    public ArtifactoryTimeoutException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Instrumentation of the Artifactory clients. Measurements go to an in-memory registry, published over
+ * JMX as {@value #OBJECT_NAME}, unless another registry is plugged in with {@link #setRegistry}.
+ * <ul>
+ *     <li>artifactory.requests: timer per request attempt, tagged with operation, status and outcome</li>
+ *     <li>artifactory.response.size: response body bytes after decompression, tagged with operation</li>
+ *     <li>artifactory.response.wire.size: response body bytes as received, tagged with operation and encoding</li>
+ *     <li>artifactory.response.read: time spent streaming and parsing a response body, tagged with operation</li>
+ *     <li>artifactory.cache.*: hit ratio and size gauges, tagged with cache</li>
+ *     <li>artifactory.pool.*: leased, available and pending connection gauges, tagged with url</li>
+ * </ul>
+ * @author klee@serena.com
+ */
+public final class ArtifactoryMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactoryMetrics.class);
+
+    public static final String OBJECT_NAME = "com.serena.rlc.provider.artifactory:type=Metrics";
+
+    public static final String REQUESTS = "artifactory.requests";
+    public static final String RESPONSE_SIZE = "artifactory.response.size";
+    public static final String RESPONSE_WIRE_SIZE = "artifactory.response.wire.size";
+    public static final String RESPONSE_READ = "artifactory.response.read";
+    public static final String CACHE_HIT_RATIO = "artifactory.cache.hit.ratio";
+    public static final String CACHE_SIZE = "artifactory.cache.size";
+    public static final String POOL_LEASED = "artifactory.pool.leased";
+    public static final String POOL_AVAILABLE = "artifactory.pool.available";
+    public static final String POOL_PENDING = "artifactory.pool.pending";
+    public static final String CIRCUIT_OPEN = "artifactory.circuit.open";
+
+    public static final String TAG_OPERATION = "operation";
+    public static final String TAG_STATUS = "status";
+    public static final String TAG_OUTCOME = "outcome";
+    public static final String TAG_CACHE = "cache";
+    public static final String TAG_URL = "url";
+    public static final String TAG_ENCODING = "encoding";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_CLIENT_ERROR = "client_error";
+    public static final String OUTCOME_SERVER_ERROR = "server_error";
+    public static final String OUTCOME_TIMEOUT = "timeout";
+    public static final String OUTCOME_IO_ERROR = "io_error";
+    public static final String OUTCOME_CIRCUIT_OPEN = "circuit_open";
+
+    public static final String NO_STATUS = "none";
+
+    private static final InMemoryMetricsRegistry inMemoryRegistry = new InMemoryMetricsRegistry();
+    private static final ConcurrentMap<MeterId, MetricsRegistry.Gauge> gauges = new ConcurrentHashMap<>();
+    private static volatile MetricsRegistry registry = inMemoryRegistry;
+
+    static {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MXBean(), name);
+            }
+        } catch (JMException | RuntimeException ex) {
+            logger.debug("Unable to register {}: {}", OBJECT_NAME, ex.getMessage());
+        }
+    }
+
+    private ArtifactoryMetrics() {
+    }
+
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Send all further measurements to another registry, registered gauges move along.
+     *
+     * @param metricsRegistry  the registry, null for the in-memory registry
+     */
+    public static synchronized void setRegistry(MetricsRegistry metricsRegistry) {
+        MetricsRegistry previous = registry;
+        MetricsRegistry next = (metricsRegistry == null) ? inMemoryRegistry : metricsRegistry;
+        for (Map.Entry<MeterId, MetricsRegistry.Gauge> entry : gauges.entrySet()) {
+            previous.removeGauge(entry.getKey().getName(), entry.getKey().getTags());
+            next.registerGauge(entry.getKey().getName(), entry.getValue(), entry.getKey().getTags());
+        }
+        registry = next;
+    }
+
+    public static InMemoryMetricsRegistry getInMemoryRegistry() {
+        return inMemoryRegistry;
+    }
+
+    /**
+     * Record a request attempt.
+     *
+     * @param operation  the operation tag, e.g. gavc
+     * @param status  the HTTP status, or 0 if no response was received
+     * @param outcome  the outcome, e.g. {@link #OUTCOME_SUCCESS}
+     * @param startNanos  the {@link System#nanoTime()} the attempt started
+     */
+    public static void recordRequest(String operation, int status, String outcome, long startNanos) {
+        registry.recordTime(REQUESTS, System.nanoTime() - startNanos, TAG_OPERATION, operation,
+                TAG_STATUS, (status > 0) ? Integer.toString(status) : NO_STATUS, TAG_OUTCOME, outcome);
+    }
+
+    /**
+     * Record a response body that was read.
+     *
+     * @param operation  the operation tag, e.g. gavc
+     * @param encoding  the content coding of the body, e.g. gzip or identity
+     * @param wireBytes  the number of bytes received
+     * @param bytes  the number of bytes read after decompression
+     * @param startNanos  the {@link System#nanoTime()} reading started
+     */
+    public static void recordResponse(String operation, String encoding, long wireBytes, long bytes, long startNanos) {
+        MetricsRegistry current = registry;
+        current.recordTime(RESPONSE_READ, System.nanoTime() - startNanos, TAG_OPERATION, operation);
+        current.recordAmount(RESPONSE_WIRE_SIZE, wireBytes, TAG_OPERATION, operation, TAG_ENCODING, encoding);
+        current.recordAmount(RESPONSE_SIZE, bytes, TAG_OPERATION, operation);
+    }
+
+    /**
+     * Get the outcome of an HTTP status.
+     *
+     * @param status  the HTTP status
+     * @return the outcome
+     */
+    public static String outcomeOf(int status) {
+        if (status >= 500) {
+            return OUTCOME_SERVER_ERROR;
+        } else if (status >= 400) {
+            return OUTCOME_CLIENT_ERROR;
+        }
+        return OUTCOME_SUCCESS;
+    }
+
+    public static synchronized void registerGauge(String name, MetricsRegistry.Gauge gauge, String... tags) {
+        gauges.put(new MeterId(name, tags), gauge);
+        registry.registerGauge(name, gauge, tags);
+    }
+
+    public static synchronized void removeGauge(String name, String... tags) {
+        gauges.remove(new MeterId(name, tags));
+        registry.removeGauge(name, tags);
+    }
+
+    private static final class MXBean implements ArtifactoryMetricsMXBean {
+
+        @Override
+        public String getRegistryType() {
+            return registry.getClass().getName();
+        }
+
+        @Override
+        public Map<String, Double> getValues() {
+            if (registry != inMemoryRegistry) {
+                return Collections.emptyMap();
+            }
+            return inMemoryRegistry.getValues();
+        }
+
+        @Override
+        public String scrape() {
+            return inMemoryRegistry.scrape();
+        }
+
+        @Override
+        public void reset() {
+            inMemoryRegistry.reset();
+        }
+    }
+
+}
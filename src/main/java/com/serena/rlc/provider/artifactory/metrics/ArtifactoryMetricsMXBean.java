@@ -0,0 +1,46 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the in-memory metrics registry.
+ * @author klee@serena.com
+ */
+public interface ArtifactoryMetricsMXBean {
+
+    /**
+     * Get the class name of the registry receiving the measurements.
+     *
+     * @return the registry class name
+     */
+    String getRegistryType();
+
+    /**
+     * Get the value of every in-memory meter, empty when another registry is configured.
+     *
+     * @return the values keyed by meter and statistic
+     */
+    Map<String, Double> getValues();
+
+    /**
+     * Get every in-memory meter in the Prometheus text format.
+     *
+     * @return the meters, one sample per line
+     */
+    String scrape();
+
+    /**
+     * Drop all recorded timers and distributions.
+     */
+    void reset();
+
+}
@@ -0,0 +1,253 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registry keeping every meter in memory, used when no other registry is configured. Timers and
+ * distributions keep a count, total, maximum and a log-linear histogram with 8 buckets per power of two,
+ * so percentiles are accurate to about 12%. The registry can be read as a map of values or in the
+ * Prometheus text format.
+ * @author klee@serena.com
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    private final ConcurrentMap<MeterId, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MeterId, Gauge> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordTime(String name, long nanos, String... tags) {
+        histogram(new MeterId(name, tags), true).record(nanos);
+    }
+
+    @Override
+    public void recordAmount(String name, long amount, String... tags) {
+        histogram(new MeterId(name, tags), false).record(amount);
+    }
+
+    @Override
+    public void registerGauge(String name, Gauge gauge, String... tags) {
+        gauges.put(new MeterId(name, tags), gauge);
+    }
+
+    @Override
+    public void removeGauge(String name, String... tags) {
+        gauges.remove(new MeterId(name, tags));
+    }
+
+    /**
+     * Get the current value of every meter. Timers and distributions are reported as count, total,
+     * max and percentiles, times in milliseconds, e.g. artifactory.requests{operation=gavc}.p99
+     *
+     * @return the values keyed by meter and statistic, sorted by key
+     */
+    public Map<String, Double> getValues() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Map.Entry<MeterId, Histogram> entry : sorted(histograms)) {
+            Histogram histogram = entry.getValue();
+            String prefix = entry.getKey().toString() + '.';
+            double scale = histogram.time ? TimeUnit.MILLISECONDS.toNanos(1) : 1.0;
+            values.put(prefix + "count", (double) histogram.count.get());
+            values.put(prefix + "total", histogram.total.get() / scale);
+            values.put(prefix + "max", histogram.max.get() / scale);
+            for (double percentile : PERCENTILES) {
+                values.put(prefix + "p" + format(percentile * 100), histogram.percentile(percentile) / scale);
+            }
+        }
+        for (Map.Entry<MeterId, Gauge> entry : sorted(gauges)) {
+            values.put(entry.getKey().toString(), sample(entry.getValue()));
+        }
+        return values;
+    }
+
+    /**
+     * Get every meter in the Prometheus text exposition format, times in seconds.
+     *
+     * @return the meters, one sample per line
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Map.Entry<MeterId, Histogram> entry : sorted(histograms)) {
+            Histogram histogram = entry.getValue();
+            MeterId id = entry.getKey();
+            String name = toPrometheusName(id.getName()) + (histogram.time ? "_seconds" : "");
+            double scale = histogram.time ? TimeUnit.SECONDS.toNanos(1) : 1.0;
+            for (double percentile : PERCENTILES) {
+                appendSample(sb, name, id.getTags(), "quantile", format(percentile), histogram.percentile(percentile) / scale);
+            }
+            appendSample(sb, name + "_count", id.getTags(), null, null, histogram.count.get());
+            appendSample(sb, name + "_sum", id.getTags(), null, null, histogram.total.get() / scale);
+            appendSample(sb, name + "_max", id.getTags(), null, null, histogram.max.get() / scale);
+        }
+        for (Map.Entry<MeterId, Gauge> entry : sorted(gauges)) {
+            appendSample(sb, toPrometheusName(entry.getKey().getName()), entry.getKey().getTags(), null, null, sample(entry.getValue()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Drop all recorded timers and distributions, gauges are kept.
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    private Histogram histogram(MeterId id, boolean time) {
+        Histogram histogram = histograms.get(id);
+        if (histogram == null) {
+            Histogram created = new Histogram(time);
+            histogram = histograms.putIfAbsent(id, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    private static double sample(Gauge gauge) {
+        try {
+            return gauge.value();
+        } catch (RuntimeException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private static <V> List<Map.Entry<MeterId, V>> sorted(Map<MeterId, V> meters) {
+        List<Map.Entry<MeterId, V>> entries = new ArrayList<>(meters.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<MeterId, V>>() {
+            @Override
+            public int compare(Map.Entry<MeterId, V> e1, Map.Entry<MeterId, V> e2) {
+                return e1.getKey().toString().compareTo(e2.getKey().toString());
+            }
+        });
+        return entries;
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String[] tags, String extraKey, String extraValue, double value) {
+        sb.append(name);
+        if (tags.length > 0 || extraKey != null) {
+            sb.append('{');
+            for (int i = 0; i < tags.length; i += 2) {
+                if (i > 0) sb.append(',');
+                appendLabel(sb, tags[i], tags[i + 1]);
+            }
+            if (extraKey != null) {
+                if (tags.length > 0) sb.append(',');
+                appendLabel(sb, extraKey, extraValue);
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static void appendLabel(StringBuilder sb, String key, String value) {
+        sb.append(toPrometheusName(key)).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static String toPrometheusName(String name) {
+        return name.replace('.', '_').replace('-', '_');
+    }
+
+    private static String format(double value) {
+        return (value == Math.rint(value)) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    /**
+     * Lock-free count, total, maximum and log-linear histogram of non-negative values.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        final boolean time;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        Histogram(boolean time) {
+            this.time = time;
+        }
+
+        void record(long value) {
+            long v = Math.max(0L, value);
+            buckets.incrementAndGet(bucketOf(v));
+            count.incrementAndGet();
+            total.addAndGet(v);
+            long current = max.get();
+            while (v > current && !max.compareAndSet(current, v)) {
+                current = max.get();
+            }
+        }
+
+        /**
+         * Get the upper bound of the bucket holding a percentile, capped at the maximum.
+         */
+        long percentile(double percentile) {
+            long target = (long) Math.ceil(count.get() * percentile);
+            if (target <= 0) {
+                return 0L;
+            }
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return Math.min(upperBoundOf(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long subBucket = bucket % SUB_BUCKETS;
+            long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+            return (upper < 0) ? Long.MAX_VALUE : upper;
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Identity of a meter, its name and tags.
+ * @author klee@serena.com
+ */
+public final class MeterId {
+
+    private final String name;
+    private final String[] tags;
+    private final int hash;
+
+    /**
+     * Create a meter id.
+     *
+     * @param name  the meter name
+     * @param tags  alternating tag keys and values
+     */
+    public MeterId(String name, String... tags) {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be key value pairs: " + Arrays.toString(tags));
+        }
+        this.name = name;
+        this.tags = tags;
+        this.hash = 31 * name.hashCode() + Arrays.hashCode(tags);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the tags.
+     *
+     * @return alternating tag keys and values, do not modify
+     */
+    public String[] getTags() {
+        return tags;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MeterId)) return false;
+        MeterId other = (MeterId) o;
+        return hash == other.hash && name.equals(other.name) && Arrays.equals(tags, other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Format the id as name{key=value,...}.
+     */
+    @Override
+    public String toString() {
+        if (tags.length == 0) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder(name).append('{');
+        for (int i = 0; i < tags.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(tags[i]).append('=').append(tags[i + 1]);
+        }
+        return sb.append('}').toString();
+    }
+
+}
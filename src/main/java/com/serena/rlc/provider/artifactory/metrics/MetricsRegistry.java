@@ -0,0 +1,62 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.metrics;
+
+/**
+ * Receives the measurements of the Artifactory clients, e.g. an adapter to the metrics library of the
+ * hosting application. Tags are given as alternating key and value strings and implementations must be
+ * safe for concurrent use.
+ * @author klee@serena.com
+ */
+public interface MetricsRegistry {
+
+    /**
+     * A value sampled whenever the registry is read, e.g. the size of a cache.
+     */
+    interface Gauge {
+        double value();
+    }
+
+    /**
+     * Record the duration of an event.
+     *
+     * @param name  the timer name, e.g. artifactory.requests
+     * @param nanos  the duration in nanoseconds
+     * @param tags  alternating tag keys and values
+     */
+    void recordTime(String name, long nanos, String... tags);
+
+    /**
+     * Record the amount of an event, e.g. the size of a response.
+     *
+     * @param name  the distribution name, e.g. artifactory.response.size
+     * @param amount  the amount
+     * @param tags  alternating tag keys and values
+     */
+    void recordAmount(String name, long amount, String... tags);
+
+    /**
+     * Register a gauge, replacing any gauge with the same name and tags.
+     *
+     * @param name  the gauge name, e.g. artifactory.pool.leased
+     * @param gauge  the gauge
+     * @param tags  alternating tag keys and values
+     */
+    void registerGauge(String name, Gauge gauge, String... tags);
+
+    /**
+     * Remove a gauge, e.g. once the pool it samples was shut down.
+     *
+     * @param name  the gauge name
+     * @param tags  alternating tag keys and values
+     */
+    void removeGauge(String name, String... tags);
+
+}
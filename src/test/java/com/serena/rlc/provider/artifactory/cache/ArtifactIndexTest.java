@@ -0,0 +1,109 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.cache;
+
+import com.serena.rlc.provider.artifactory.domain.Artifact;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the glob matching and Maven path parsing of {@link ArtifactIndex}.
+ * @author klee@serena.com
+ */
+public class ArtifactIndexTest {
+
+    @Test
+    public void matchesLiteral() {
+        assertTrue(ArtifactIndex.matches("1.0", "1.0"));
+        assertFalse(ArtifactIndex.matches("1.0", "1.0.1"));
+        assertFalse(ArtifactIndex.matches("1.0.1", "1.0"));
+        assertTrue(ArtifactIndex.matches("", ""));
+        assertFalse(ArtifactIndex.matches("", "a"));
+    }
+
+    @Test
+    public void matchesStar() {
+        assertTrue(ArtifactIndex.matches("*", ""));
+        assertTrue(ArtifactIndex.matches("*", "anything"));
+        assertTrue(ArtifactIndex.matches("1.*", "1.0.2"));
+        assertTrue(ArtifactIndex.matches("*-SNAPSHOT", "2.1-SNAPSHOT"));
+        assertFalse(ArtifactIndex.matches("*-SNAPSHOT", "2.1"));
+        assertTrue(ArtifactIndex.matches("1.*.3", "1.22.3"));
+        assertTrue(ArtifactIndex.matches("a*b*c", "aXbYbZc"));
+        assertFalse(ArtifactIndex.matches("a*b*c", "aXbYc1"));
+        assertTrue(ArtifactIndex.matches("**", "x"));
+    }
+
+    @Test
+    public void matchesQuestionMark() {
+        assertTrue(ArtifactIndex.matches("1.?", "1.5"));
+        assertFalse(ArtifactIndex.matches("1.?", "1.10"));
+        assertFalse(ArtifactIndex.matches("?", ""));
+        assertTrue(ArtifactIndex.matches("?*", "a"));
+    }
+
+    @Test
+    public void entryOfRelease() {
+        ArtifactIndex.Entry entry = entry("/org/acme/app/1.0/app-1.0.jar");
+        assertNotNull(entry);
+        assertEquals("org.acme", entry.group);
+        assertEquals("app", entry.module);
+        assertEquals("1.0", entry.version);
+        assertNull(entry.classifier);
+    }
+
+    @Test
+    public void entryOfClassifier() {
+        ArtifactIndex.Entry entry = entry("/org/acme/app/1.0/app-1.0-sources.jar");
+        assertNotNull(entry);
+        assertEquals("sources", entry.classifier);
+        assertTrue(entry.matches("1.*", "sour*"));
+        assertFalse(entry.matches(null, "javadoc"));
+
+        ArtifactIndex.Entry noClassifier = entry("/org/acme/app/1.0/app-1.0.jar");
+        assertTrue(noClassifier.matches("1.0", null));
+        assertFalse(noClassifier.matches(null, "sources"));
+    }
+
+    @Test
+    public void entryOfSnapshot() {
+        ArtifactIndex.Entry entry = entry("/org/acme/app/1.0-SNAPSHOT/app-1.0-SNAPSHOT.jar");
+        assertNotNull(entry);
+        assertEquals("1.0-SNAPSHOT", entry.version);
+        assertNull(entry.classifier);
+
+        ArtifactIndex.Entry timestamped = entry("/org/acme/app/1.0-SNAPSHOT/app-1.0-20160321.101530-7-tests.jar");
+        assertNotNull(timestamped);
+        assertEquals("1.0-SNAPSHOT", timestamped.version);
+        assertEquals("tests", timestamped.classifier);
+
+        assertNull(entry("/org/acme/app/1.0-SNAPSHOT/app-1.0-nightly.jar"));
+    }
+
+    @Test
+    public void entryOfNonMavenPath() {
+        assertNull(entry("/org/acme/app/maven-metadata.xml"));
+        assertNull(entry("/app-1.0.jar"));
+        assertNull(entry("/app/1.0/app-1.0.jar"));
+        assertNull(entry("/org/acme/app/1.0/other-1.0.jar"));
+        assertNull(entry("/org/acme/app/1.0/app-1.0x.jar"));
+    }
+
+    private static ArtifactIndex.Entry entry(String path) {
+        return ArtifactIndex.Entry.of(new Artifact("http://localhost/artifactory/api/storage/libs-release-local" + path, path,
+                "http://localhost/artifactory/libs-release-local" + path));
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.cache;
+
+import com.serena.rlc.provider.artifactory.client.Checksum;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests storing, placing, verifying and evicting content in {@link ContentStore}.
+ * @author klee@serena.com
+ */
+public class ContentStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private Path staging;
+
+    @Before
+    public void setUp() throws Exception {
+        root = folder.newFolder("store").toPath();
+        staging = folder.newFolder("staging").toPath();
+    }
+
+    @Test
+    public void putAndCopyTo() throws Exception {
+        ContentStore store = new ContentStore(root, 1000);
+        Path source = write("app-1.0.jar", 'a', 100);
+        String sha256 = sha256(source);
+        store.put(sha256, source);
+        store.put(sha256.toUpperCase(), source);
+        assertEquals(100, store.getSizeBytes());
+
+        Path target = staging.resolve("deploy/app.jar");
+        Files.createDirectories(target.getParent());
+        assertTrue(store.copyTo(sha256, 100, target));
+        assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(target));
+        assertTrue(store.copyTo(sha256, -1, target));
+        assertEquals(2, store.getStats().getHits());
+    }
+
+    @Test
+    public void storesPrivateCopy() throws Exception {
+        ContentStore store = new ContentStore(root, 1000);
+        Path source = write("app-1.0.jar", 'a', 100);
+        byte[] content = Files.readAllBytes(source);
+        String sha256 = sha256(source);
+        store.put(sha256, source);
+
+        Files.write(source, fill('b', 100));
+        Path target = staging.resolve("app.jar");
+        assertTrue(store.copyTo(sha256, 100, target));
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void missOnUnknownKeyOrSize() throws Exception {
+        ContentStore store = new ContentStore(root, 1000);
+        Path source = write("app-1.0.jar", 'a', 100);
+        String sha256 = sha256(source);
+        store.put(sha256, source);
+
+        Path target = staging.resolve("app.jar");
+        assertFalse(store.copyTo(sha256, 101, target));
+        assertFalse(store.copyTo(sha256(write("other.jar", 'b', 100)), 100, target));
+        assertFalse(Files.exists(target));
+        assertEquals(2, store.getStats().getMisses());
+        assertEquals(1, store.getStats().getSize());
+    }
+
+    @Test
+    public void tamperedEntryIsRemoved() throws Exception {
+        ContentStore store = new ContentStore(root, 1000);
+        Path source = write("app-1.0.jar", 'a', 100);
+        String sha256 = sha256(source);
+        store.put(sha256, source);
+
+        // changed in place through a staged hard link, same size
+        Path target = staging.resolve("app.jar");
+        assertTrue(store.copyTo(sha256, 100, target));
+        assertTrue(target.toFile().setWritable(true));
+        Files.write(target, fill('b', 100));
+        Files.setLastModifiedTime(stored(sha256), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        Path next = staging.resolve("next.jar");
+        assertFalse(store.copyTo(sha256, 100, next));
+        assertFalse(Files.exists(next));
+        assertFalse(Files.exists(stored(sha256)));
+        assertEquals(0, store.getSizeBytes());
+        assertEquals(0, store.getStats().getSize());
+    }
+
+    @Test
+    public void modifiedTimeOnlyStillMatches() throws Exception {
+        ContentStore store = new ContentStore(root, 1000);
+        Path source = write("app-1.0.jar", 'a', 100);
+        String sha256 = sha256(source);
+        store.put(sha256, source);
+
+        Files.setLastModifiedTime(stored(sha256), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        assertTrue(store.copyTo(sha256, 100, staging.resolve("app.jar")));
+        assertTrue(store.copyTo(sha256, 100, staging.resolve("again.jar")));
+        assertEquals(2, store.getStats().getHits());
+    }
+
+    @Test
+    public void evictionOrderAcrossReopen() throws Exception {
+        ContentStore store = new ContentStore(root, 300);
+        String[] keys = new String[3];
+        for (int i = 0; i < keys.length; i++) {
+            Path source = write("app-" + i + ".jar", (char) ('a' + i), 100);
+            keys[i] = sha256(source);
+            store.put(keys[i], source);
+            setAccessTime(stored(keys[i]), 1000000L * (i + 1));
+        }
+
+        // the access recorded by a hit survives the reopen, the oldest untouched entry goes first
+        store = new ContentStore(root, 300);
+        assertTrue(store.copyTo(keys[0], 100, staging.resolve("app-0.jar")));
+        store = new ContentStore(root, 200);
+        assertEquals(200, store.getSizeBytes());
+        assertFalse(Files.exists(stored(keys[1])));
+        assertTrue(store.copyTo(keys[0], 100, staging.resolve("app-0b.jar")));
+        assertTrue(store.copyTo(keys[2], 100, staging.resolve("app-2.jar")));
+    }
+
+    @Test
+    public void setMaxBytesEvicts() throws Exception {
+        ContentStore store = new ContentStore(root, 1000);
+        for (int i = 0; i < 3; i++) {
+            Path source = write("app-" + i + ".jar", (char) ('a' + i), 100);
+            store.put(sha256(source), source);
+        }
+        assertEquals(300, store.getSizeBytes());
+
+        store.setMaxBytes(150);
+        assertEquals(150, store.getMaxBytes());
+        assertEquals(100, store.getSizeBytes());
+        assertEquals(1, store.getStats().getSize());
+        assertEquals(2, store.getStats().getEvictions());
+    }
+
+    @Test
+    public void reopenIndexesFilesAndDropsTempFiles() throws Exception {
+        ContentStore store = new ContentStore(root, 1000);
+        Path source = write("app-1.0.jar", 'a', 100);
+        String sha256 = sha256(source);
+        store.put(sha256, source);
+
+        Path temp = stored(sha256).resolveSibling(sha256 + ".0123.tmp");
+        Files.write(temp, fill('x', 10));
+        Path unrelated = root.resolve("README");
+        Files.write(unrelated, fill('x', 10));
+
+        store = new ContentStore(root, 1000);
+        assertFalse(Files.exists(temp));
+        assertTrue(Files.exists(unrelated));
+        assertEquals(100, store.getSizeBytes());
+        assertTrue(store.copyTo(sha256, 100, staging.resolve("app.jar")));
+    }
+
+    @Test
+    public void isKey() {
+        assertTrue(ContentStore.isKey(" 0123456789ABCDEF0123456789abcdef0123456789abcdef0123456789abcdef "));
+        assertFalse(ContentStore.isKey("0123456789abcdef"));
+        assertFalse(ContentStore.isKey(null));
+    }
+
+    private Path write(String name, char c, int size) throws Exception {
+        return Files.write(staging.resolve(name), fill(c, size));
+    }
+
+    private Path stored(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private static byte[] fill(char c, int size) {
+        char[] chars = new char[size];
+        Arrays.fill(chars, c);
+        return new String(chars).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String sha256(Path file) throws Exception {
+        return Checksum.of(file, Checksum.SHA256)[0].getValue();
+    }
+
+    private static void setAccessTime(Path file, long millis) throws Exception {
+        Files.getFileAttributeView(file, BasicFileAttributeView.class).setTimes(null, FileTime.fromMillis(millis), null);
+    }
+
+}
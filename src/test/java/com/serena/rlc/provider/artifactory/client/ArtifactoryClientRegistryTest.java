@@ -0,0 +1,61 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the sharing and eviction of clients in {@link ArtifactoryClientRegistry}.
+ * @author klee@serena.com
+ */
+public class ArtifactoryClientRegistryTest {
+
+    private static final String URL = "http://localhost:8081/artifactory";
+
+    @Test
+    public void sharesClientPerConfiguration() {
+        ArtifactoryClientRegistry registry = new ArtifactoryClientRegistry();
+        ArtifactoryClient client = registry.getClient(URL, "admin", "secret");
+        assertSame(client, registry.getClient(" " + URL, "admin", "secret"));
+        assertNotSame(client, registry.getClient(URL, "admin", "rotated"));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void dropsLeastRecentlyUsedClients() {
+        ArtifactoryClientRegistry registry = new ArtifactoryClientRegistry();
+        ArtifactoryClient first = registry.getClient(URL, "admin", "password-0");
+        for (int i = 1; i < ArtifactoryClientRegistry.DEFAULT_CLIENT_CACHE_SIZE; i++) {
+            registry.getClient(URL, "admin", "password-" + i);
+        }
+        ArtifactoryClient second = registry.getClient(URL, "admin", "password-1");
+        assertSame(first, registry.getClient(URL, "admin", "password-0"));
+
+        registry.getClient(URL, "admin", "password-new");
+        assertEquals(ArtifactoryClientRegistry.DEFAULT_CLIENT_CACHE_SIZE, registry.size());
+        assertSame(first, registry.getClient(URL, "admin", "password-0"));
+        assertSame(second, registry.getClient(URL, "admin", "password-1"));
+        assertEquals(ArtifactoryClientRegistry.DEFAULT_CLIENT_CACHE_SIZE, registry.size());
+    }
+
+    @Test
+    public void removeClientDropsAllTimeouts() {
+        ArtifactoryClientRegistry registry = new ArtifactoryClientRegistry();
+        registry.getClient(URL, "admin", "secret");
+        registry.getClient(URL, "admin", "other");
+        registry.removeClient(URL, "admin", "secret");
+        assertEquals(1, registry.size());
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the range layout, saved state and resume of {@link DownloadRanges}.
+ * @author klee@serena.com
+ */
+public class DownloadRangesTest {
+
+    private static final String IDENTITY = "SHA-256:0123abcd";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path part;
+    private Path stateFile;
+
+    @Before
+    public void setUp() {
+        part = folder.getRoot().toPath().resolve("app-1.0.jar" + ArtifactoryClient.PART_SUFFIX);
+        stateFile = part.resolveSibling(part.getFileName() + DownloadRanges.STATE_SUFFIX);
+    }
+
+    @Test
+    public void splitsIntoRanges() {
+        DownloadRanges ranges = DownloadRanges.open(part, 250, 100, IDENTITY);
+        assertEquals(3, ranges.count());
+        assertEquals(0, ranges.start(0));
+        assertEquals(100, ranges.length(0));
+        assertEquals(200, ranges.start(2));
+        assertEquals(50, ranges.length(2));
+        assertEquals(Arrays.asList(0, 1, 2), ranges.getPending());
+
+        DownloadRanges exact = DownloadRanges.open(part, 200, 100, IDENTITY);
+        assertEquals(2, exact.count());
+        assertEquals(100, exact.length(1));
+    }
+
+    @Test
+    public void resumesCompletedRanges() throws Exception {
+        DownloadRanges ranges = DownloadRanges.open(part, 250, 100, IDENTITY);
+        ranges.complete(0);
+        ranges.complete(2);
+        assertTrue(Files.exists(stateFile));
+
+        DownloadRanges resumed = DownloadRanges.open(part, 250, 100, IDENTITY);
+        assertEquals(2, resumed.getCompletedCount());
+        assertEquals(Collections.singletonList(1), resumed.getPending());
+
+        resumed.complete(1);
+        assertTrue(DownloadRanges.open(part, 250, 100, IDENTITY).getPending().isEmpty());
+    }
+
+    @Test
+    public void startsOverWhenContentChanged() throws Exception {
+        DownloadRanges.open(part, 250, 100, IDENTITY).complete(0);
+
+        assertEquals(0, DownloadRanges.open(part, 250, 100, "SHA-256:ffff").getCompletedCount());
+        assertEquals(0, DownloadRanges.open(part, 251, 100, IDENTITY).getCompletedCount());
+        assertEquals(0, DownloadRanges.open(part, 250, 50, IDENTITY).getCompletedCount());
+        assertEquals(1, DownloadRanges.open(part, 250, 100, IDENTITY).getCompletedCount());
+    }
+
+    @Test
+    public void ignoresInvalidState() throws Exception {
+        Files.write(stateFile, "size=250\nrangeSize=100\nidentity=SHA-256:0123abcd\ncompleted=0,x\n".getBytes(StandardCharsets.ISO_8859_1));
+        DownloadRanges ranges = DownloadRanges.open(part, 250, 100, IDENTITY);
+        assertEquals(0, ranges.getCompletedCount());
+        assertEquals(3, ranges.getPending().size());
+    }
+
+    @Test
+    public void resetForgetsCompletedRanges() throws Exception {
+        DownloadRanges ranges = DownloadRanges.open(part, 250, 100, IDENTITY);
+        ranges.complete(1);
+        ranges.reset();
+        assertEquals(0, ranges.getCompletedCount());
+        assertFalse(Files.exists(stateFile));
+        assertEquals(0, DownloadRanges.open(part, 250, 100, IDENTITY).getCompletedCount());
+    }
+
+    @Test
+    public void deleteRemovesState() throws Exception {
+        DownloadRanges ranges = DownloadRanges.open(part, 250, 100, IDENTITY);
+        ranges.complete(0);
+        ranges.delete();
+        assertFalse(Files.exists(stateFile));
+        ranges.delete();
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the percent-encoding and decoding of {@link UrlBuilder}.
+ * @author klee@serena.com
+ */
+public class UrlBuilderTest {
+
+    private static final String BASE = "http://localhost:8081/artifactory";
+
+    @Test
+    public void buildsPlainPath() {
+        assertEquals(BASE + "/api/storage/libs-release-local/org/acme/app-1.0.jar",
+                UrlBuilder.build(BASE, "/api/storage/libs-release-local/org/acme/app-1.0.jar", null));
+        assertEquals(BASE + "/api/repositories", UrlBuilder.build(BASE, " api/repositories ", ""));
+        assertEquals(BASE + "/", UrlBuilder.build(BASE, "", null));
+        assertEquals(BASE + "/api/search/gavc?g=org.acme", UrlBuilder.build(BASE, "/api/search/gavc", "g=org.acme"));
+    }
+
+    @Test
+    public void encodesPath() {
+        assertEquals(BASE + "/generic/my%20app/a+b/100%25.zip", UrlBuilder.build(BASE, "/generic/my app/a+b/100%.zip", null));
+        assertEquals(BASE + "/generic/%C3%BCber/%E2%82%AC/%F0%9F%93%A6.tgz", UrlBuilder.build(BASE, "/generic/über/€/📦.tgz", null));
+        assertEquals(BASE + "/generic/a%23b%3Fc/x%22y", UrlBuilder.build(BASE, "/generic/a#b?c/x\"y", null));
+        assertEquals(BASE + "/generic/~user/(1);v=2@host:8", UrlBuilder.build(BASE, "/generic/~user/(1);v=2@host:8", null));
+    }
+
+    @Test
+    public void keepsEncodedSequencesInPath() {
+        assertEquals(BASE + "/generic/my%20app/%C3%BCber", UrlBuilder.build(BASE, "/generic/my%20app/%C3%BCber", null));
+        assertEquals(BASE + "/generic/a%2fb", UrlBuilder.build(BASE, "/generic/a%2fb", null));
+        assertEquals(BASE + "/generic/50%25off/%252", UrlBuilder.build(BASE, "/generic/50%off/%2", null));
+        assertEquals(BASE + "/generic/%25zz", UrlBuilder.build(BASE, "/generic/%zz", null));
+    }
+
+    @Test
+    public void encodesQueryValues() {
+        assertEquals("a%20b%2Bc%25d%26e%3Df", UrlBuilder.encodeQueryValue("a b+c%d&e=f"));
+        assertEquals("%C3%BCber/1.0?x", UrlBuilder.encodeQueryValue("über/1.0?x"));
+        assertEquals("%2520", UrlBuilder.encodeQueryValue("%20"));
+
+        StringBuilder query = new StringBuilder();
+        UrlBuilder.appendParam(query, "g", "org.acme");
+        UrlBuilder.appendParam(query, "a", null);
+        UrlBuilder.appendParam(query, "v", "");
+        UrlBuilder.appendParam(query, "c", "a&b");
+        assertEquals("g=org.acme&c=a%26b", query.toString());
+    }
+
+    @Test
+    public void decodesPath() {
+        String path = "/libs-release-local/org/acme/app-1.0.jar";
+        assertSame(path, UrlBuilder.decodePath(path));
+        assertEquals("/generic/my app/a+b", UrlBuilder.decodePath("/generic/my%20app/a+b"));
+        assertEquals("/generic/über/€", UrlBuilder.decodePath("/generic/%C3%BCber/%e2%82%ac"));
+        assertEquals("/generic/50%off/%2/%", UrlBuilder.decodePath("/generic/50%off/%2/%"));
+    }
+
+    @Test
+    public void decodeRoundTrip() {
+        String[] paths = {"/generic/my app/a+b/100%.zip", "/generic/über/€/📦.tgz", "/generic/a#b?c;d=e"};
+        for (String path : paths) {
+            String url = UrlBuilder.build(BASE, path, null);
+            assertEquals(path, UrlBuilder.decodePath(url.substring(BASE.length())));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the ordering and normalization of {@link MavenVersion}.
+ * @author klee@serena.com
+ */
+public class MavenVersionTest {
+
+    @Test
+    public void qualifierOrder() {
+        assertAscending("1.0-alpha-1", "1.0-alpha-2", "1.0-beta", "1.0-milestone-1", "1.0-rc-1", "1.0-SNAPSHOT",
+                "1.0", "1.0-sp", "1.0-foo", "1.0.1", "1.1", "1.10", "2");
+    }
+
+    @Test
+    public void numericOrder() {
+        assertAscending("1.2", "1.9", "1.10", "1.10.1", "1.100");
+        assertAscending("1.9", "1.12345678901234567890", "1.123456789012345678901");
+        assertAscending("1.0-1", "1.0-2", "1.0-10");
+    }
+
+    @Test
+    public void unknownQualifiersAlphabetically() {
+        assertAscending("1.0-sp", "1.0-abc", "1.0-xyz");
+    }
+
+    @Test
+    public void trailingZerosAndReleaseQualifiers() {
+        assertSame("1", "1.0", "1.0.0", "1.0-ga", "1.0-final", "1.0-release", "1.0-GA");
+        assertSame("1.0-rc1", "1.0-RC-1", "1.0-cr-1", "1.0rc1");
+        assertSame("1.0-alpha-1", "1.0a1", "1.0-alpha1");
+        assertSame("1.0-beta-2", "1.0b2");
+        assertSame("1.0-milestone-3", "1.0m3");
+        assertSame("1.01", "1.1");
+    }
+
+    @Test
+    public void hashCodeMatchesEquals() {
+        assertEquals(MavenVersion.of("1.0.0").hashCode(), MavenVersion.of("1").hashCode());
+        assertEquals(MavenVersion.of("1.0-ga").hashCode(), MavenVersion.of("1.0").hashCode());
+    }
+
+    @Test
+    public void sortNewestFirst() {
+        List<Artifact> artifacts = Arrays.asList(artifact("1.0"), artifact("1.10"), artifact("1.0-SNAPSHOT"),
+                artifact("1.9"), artifact("1.10-rc-1"));
+        List<Artifact> sorted = MavenVersion.sortNewestFirst(artifacts);
+        assertEquals(Arrays.asList("1.10", "1.10-rc-1", "1.9", "1.0", "1.0-SNAPSHOT"), versions(sorted));
+    }
+
+    @Test
+    public void sortNewestFirstIsStable() {
+        Artifact jar = artifact("2.0");
+        Artifact pom = new Artifact("pom", "/org/acme/app/2.0/app-2.0.pom", null);
+        Artifact older = artifact("1.0");
+        List<Artifact> sorted = MavenVersion.sortNewestFirst(Arrays.asList(older, jar, pom));
+        assertEquals(Arrays.asList(jar, pom, older), sorted);
+    }
+
+    private static void assertAscending(String... versions) {
+        for (int i = 1; i < versions.length; i++) {
+            assertTrue(versions[i - 1] + " < " + versions[i], MavenVersion.compare(versions[i - 1], versions[i]) < 0);
+            assertTrue(versions[i] + " > " + versions[i - 1], MavenVersion.compare(versions[i], versions[i - 1]) > 0);
+        }
+    }
+
+    private static void assertSame(String... versions) {
+        for (int i = 1; i < versions.length; i++) {
+            assertEquals(versions[0] + " = " + versions[i], 0, MavenVersion.compare(versions[0], versions[i]));
+            assertEquals(MavenVersion.of(versions[0]), MavenVersion.of(versions[i]));
+        }
+    }
+
+    private static Artifact artifact(String version) {
+        return new Artifact(version, "/org/acme/app/" + version + "/app-" + version + ".jar", null);
+    }
+
+    private static List<String> versions(List<Artifact> artifacts) {
+        String[] versions = new String[artifacts.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = artifacts.get(i).getVersion();
+        }
+        return Arrays.asList(versions);
+    }
+
+}
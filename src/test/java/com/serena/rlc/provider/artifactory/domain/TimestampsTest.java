@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.artifactory.domain;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the timestamp conversion of {@link Timestamps} and the timestamp accessors of {@link ArtifactoryObject}.
+ * @author klee@serena.com
+ */
+public class TimestampsTest {
+
+    @Test
+    public void parsesArtifactoryFormat() {
+        ArtifactoryObject object = new ArtifactoryObject();
+        object.setCreated("2016-03-21T10:15:30.123+02:00");
+        assertEquals("2016-03-21T10:15:30.123+02:00", object.getCreated());
+        assertEquals(1458548130123L, object.getCreatedMillis());
+
+        object.setLastModified("2016-03-21T08:15:30.123Z");
+        assertEquals("2016-03-21T08:15:30.123Z", object.getLastModified());
+        assertEquals(1458548130123L, object.getLastModifiedMillis());
+    }
+
+    @Test
+    public void keepsOtherFormatsUnchanged() {
+        ArtifactoryObject object = new ArtifactoryObject();
+        object.setCreated("2016-03-21T08:15:30Z");
+        assertEquals("2016-03-21T08:15:30Z", object.getCreated());
+        assertEquals(1458548130000L, object.getCreatedMillis());
+
+        object.setLastUpdated("yesterday");
+        assertEquals("yesterday", object.getLastUpdated());
+        assertEquals(Timestamps.NONE, object.getLastUpdatedMillis());
+
+        object.setLastModified("");
+        assertEquals("", object.getLastModified());
+        object.setLastModified(null);
+        assertNull(object.getLastModified());
+    }
+
+    @Test
+    public void settingMillisReplacesText() {
+        ArtifactoryObject object = new ArtifactoryObject();
+        object.setCreated("2016-03-21T08:15:30Z");
+        object.setCreatedMillis(1458548130123L);
+        assertEquals("2016-03-21T08:15:30.123Z", object.getCreated());
+    }
+
+    @Test
+    public void unlessFormatted() {
+        assertNull(Timestamps.unlessFormatted("2016-03-21T10:15:30.123+02:00", 1458548130123L, 7200));
+        assertEquals("2016-03-21T10:15:30+02:00", Timestamps.unlessFormatted("2016-03-21T10:15:30+02:00", 1458548130000L, 7200));
+        assertNull(Timestamps.unlessFormatted(null, Timestamps.NONE, 0));
+    }
+
+}